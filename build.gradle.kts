@@ -21,6 +21,11 @@ sourceSets {
             srcDir("src/examples/java")
         }
     }
+
+    create("jmh") {
+        compileClasspath += main.get().output
+        runtimeClasspath += main.get().output
+    }
 }
 
 tasks.withType<JavaCompile> {
@@ -44,6 +49,14 @@ tasks.compileTestJava {
     options.release.set(testToolchainVersion)
 }
 
+tasks.named<JavaCompile>("compileJmhJava") {
+    javaCompiler.set(javaToolchains.compilerFor {
+        languageVersion.set(JavaLanguageVersion.of(testToolchainVersion))
+    })
+
+    options.release.set(testToolchainVersion)
+}
+
 tasks.javadoc {
     javadocTool.set(javaToolchains.javadocToolFor {
         languageVersion.set(JavaLanguageVersion.of(javadocToolchainVersion))
@@ -84,6 +97,9 @@ dependencies {
     // https://mvnrepository.com/artifact/org.ow2.asm/asm
     val asmVersion = "9.7"
 
+    // https://mvnrepository.com/artifact/org.openjdk.jmh/jmh-core
+    val jmhVersion = "1.37"
+
     testImplementation("org.ow2.asm:asm:$asmVersion")
     testImplementation("org.ow2.asm:asm-tree:$asmVersion")
 
@@ -91,6 +107,9 @@ dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-params:$junitVersion")
 
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:$junitVersion")
+
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
 }
 
 tasks.test {
@@ -103,6 +122,24 @@ tasks.test {
     jvmArgs("--add-opens=java.base/java.util=ALL-UNNAMED")
 }
 
+// ./gradlew jmh -Pjmh.args="ParseBenchmark -prof gc"
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks."
+
+    javaLauncher.set(javaToolchains.launcherFor {
+        languageVersion.set(JavaLanguageVersion.of(testToolchainVersion))
+    })
+
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val jmhArgs = project.findProperty("jmh.args")?.toString()
+    if (jmhArgs != null) {
+        args(jmhArgs.split(' ').filter { it.isNotBlank() })
+    }
+}
+
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
     reports {
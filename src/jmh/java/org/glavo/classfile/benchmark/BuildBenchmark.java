@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.benchmark;
+
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.concurrent.TimeUnit;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.TypeKind;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.glavo.classfile.ClassFile.ACC_PUBLIC;
+import static org.glavo.classfile.ClassFile.ACC_STATIC;
+
+/**
+ * Measures building a class from scratch, with and without stack map generation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BuildBenchmark {
+
+    private static final ClassDesc CD_SYSTEM = ClassDesc.of("java.lang.System");
+    private static final ClassDesc CD_PRINT_STREAM = ClassDesc.of("java.io.PrintStream");
+    private static final MethodTypeDesc MTD_PRINTLN = MethodTypeDesc.of(CD_void, CD_int);
+    private static final MethodTypeDesc MTD_VOID = MethodTypeDesc.of(CD_void);
+    private static final MethodTypeDesc MTD_MAIN = MethodTypeDesc.of(CD_void, CD_String.arrayType());
+
+    @Param({"40"})
+    public int methods;
+
+    @Param({"STACK_MAPS_WHEN_REQUIRED", "DROP_STACK_MAPS"})
+    public ClassFile.StackMapsOption stackMaps;
+
+    private ClassFile cc;
+
+    @Setup
+    public void setup() {
+        cc = ClassFile.of(stackMaps);
+    }
+
+    @Benchmark
+    public byte[] build() {
+        return cc.build(ClassDesc.of("MyClass"), cb -> {
+            cb.withFlags(ACC_PUBLIC);
+            cb.withVersion(ClassFile.JAVA_17_VERSION, 0);
+            cb.withSuperclass(CD_Object);
+            cb.withMethodBody("<init>", MTD_VOID, 0, cob -> cob
+                    .aload(0)
+                    .invokespecial(CD_Object, "<init>", MTD_VOID)
+                    .return_());
+            for (int i = 0; i < methods; i++) {
+                cb.withMethodBody("main" + i, MTD_MAIN, ACC_PUBLIC | ACC_STATIC, cob -> {
+                    int fac = cob.allocateLocal(TypeKind.IntType);
+                    int n = cob.allocateLocal(TypeKind.IntType);
+                    cob.iconst_1()
+                       .istore(fac)
+                       .iconst_1()
+                       .istore(n)
+                       .block(loop -> loop
+                               .iload(n)
+                               .bipush(10)
+                               .if_icmpgt(loop.breakLabel())
+                               .iload(fac)
+                               .iload(n)
+                               .imul()
+                               .istore(fac)
+                               .iinc(n, 1)
+                               .goto_(loop.startLabel()))
+                       .getstatic(CD_SYSTEM, "out", CD_PRINT_STREAM)
+                       .iload(fac)
+                       .invokevirtual(CD_PRINT_STREAM, "println", MTD_PRINTLN)
+                       .return_();
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassModel;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Fixed corpus of JDK classes read from {@code jrt:/}, shared by all benchmarks.
+ * <p>
+ * Each benchmark invocation processes exactly one class of the corpus in round-robin order,
+ * so reported throughput and {@code -prof gc} allocation figures are per class.
+ */
+@State(Scope.Thread)
+public class CorpusState {
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    /**
+     * Package directories under {@code jrt:/modules/java.base} forming the corpus.
+     */
+    @Param({"java/util"})
+    public String packages;
+
+    public byte[][] bytes;
+    public ClassModel[] models;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setupCorpus() {
+        var cc = ClassFile.of();
+        bytes = Stream.of(packages.split(","))
+                .flatMap(CorpusState::walk)
+                .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(".class"))
+                .sorted()
+                .map(CorpusState::readAllBytes)
+                .toArray(byte[][]::new);
+        models = new ClassModel[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            models[i] = cc.parse(bytes[i]);
+        }
+    }
+
+    /**
+     * {@return the index of the next class in the corpus}
+     */
+    public int next() {
+        int i = index;
+        index = i + 1 == bytes.length ? 0 : i + 1;
+        return i;
+    }
+
+    private static Stream<Path> walk(String pkg) {
+        try {
+            List<Path> list;
+            try (var s = Files.walk(JRT.getPath("modules/java.base", pkg.trim()))) {
+                list = s.toList();
+            }
+            return list.stream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readAllBytes(Path path) {
+        try {
+            return Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
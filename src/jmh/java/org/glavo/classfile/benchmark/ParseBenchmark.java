@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.CodeModel;
+import org.glavo.classfile.CompoundElement;
+import org.glavo.classfile.FieldModel;
+import org.glavo.classfile.MethodModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link ClassFile#parse(byte[])} alone and followed by a full traversal of the model.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private final ClassFile cc = ClassFile.of();
+
+    @Benchmark
+    public ClassModel parse(CorpusState corpus) {
+        return cc.parse(corpus.bytes[corpus.next()]);
+    }
+
+    @Benchmark
+    public void parseAndTraverse(CorpusState corpus, Blackhole bh) {
+        traverse(cc.parse(corpus.bytes[corpus.next()]), bh);
+    }
+
+    static void traverse(CompoundElement<?> element, Blackhole bh) {
+        element.forEachElement(e -> {
+            if (e instanceof MethodModel || e instanceof FieldModel || e instanceof CodeModel) {
+                traverse((CompoundElement<?>) e, bh);
+            } else {
+                bh.consume(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.benchmark;
+
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.impl.AbstractPseudoInstruction.ExceptionCatchImpl;
+import org.glavo.classfile.impl.ClassFileImpl;
+import org.glavo.classfile.impl.ClassReaderImpl;
+import org.glavo.classfile.impl.CodeImpl;
+import org.glavo.classfile.impl.LabelContext;
+import org.glavo.classfile.impl.SplitConstantPool;
+import org.glavo.classfile.impl.StackMapGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link StackMapGenerator} on every method body of the corpus, in isolation from class building.
+ * <p>
+ * Each invocation generates stack maps for all methods of one class.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StackMapGeneratorBenchmark {
+
+    record GenData(LabelContext labelContext,
+                   ClassDesc thisClass,
+                   String methodName,
+                   MethodTypeDesc methodDesc,
+                   boolean isStatic,
+                   ByteBuffer bytecode,
+                   SplitConstantPool constantPool,
+                   List<ExceptionCatchImpl> handlers) {
+    }
+
+    private final ClassFileImpl context = (ClassFileImpl) ClassFile.of();
+    private GenData[][] data;
+
+    @Setup(Level.Trial)
+    public void setup(CorpusState corpus) {
+        data = new GenData[corpus.models.length][];
+        for (int i = 0; i < corpus.models.length; i++) {
+            ClassModel clm = corpus.models[i];
+            var thisClass = clm.thisClass().asSymbol();
+            var cp = new SplitConstantPool((ClassReaderImpl) clm.constantPool());
+            var list = new ArrayList<GenData>();
+            for (var m : clm.methods()) {
+                m.code().ifPresent(com -> {
+                    var bb = ByteBuffer.wrap(((CodeImpl) com).contents());
+                    list.add(new GenData(
+                            (LabelContext) com,
+                            thisClass,
+                            m.methodName().stringValue(),
+                            m.methodTypeSymbol(),
+                            (m.flags().flagsMask() & ClassFile.ACC_STATIC) != 0,
+                            bb.slice(8, bb.getInt(4)),
+                            cp,
+                            com.exceptionHandlers().stream().map(eh -> (ExceptionCatchImpl) eh).toList()));
+                });
+            }
+            data[i] = list.toArray(GenData[]::new);
+        }
+    }
+
+    @Benchmark
+    public int generate(CorpusState corpus) {
+        int maxStack = 0;
+        for (var d : data[corpus.next()]) {
+            var gen = new StackMapGenerator(
+                    d.labelContext(),
+                    d.thisClass(),
+                    d.methodName(),
+                    d.methodDesc(),
+                    d.isStatic(),
+                    d.bytecode().rewind(),
+                    d.constantPool(),
+                    context,
+                    d.handlers());
+            maxStack = Math.max(maxStack, gen.maxStack());
+        }
+        return maxStack;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassTransform;
+import org.glavo.classfile.CodeTransform;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link ClassFile#transform(org.glavo.classfile.ClassModel, ClassTransform)} of freshly parsed classes,
+ * both as a pass-through and with every method body exploded and rebuilt.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransformBenchmark {
+
+    private static final ClassTransform EXPLODE_CODE = ClassTransform.transformingMethodBodies(CodeTransform.ACCEPT_ALL);
+
+    private final ClassFile cc = ClassFile.of();
+    private final ClassFile ccNewPool = ClassFile.of(ClassFile.ConstantPoolSharingOption.NEW_POOL);
+
+    @Benchmark
+    public byte[] acceptAll(CorpusState corpus) {
+        return cc.transform(cc.parse(corpus.bytes[corpus.next()]), ClassTransform.ACCEPT_ALL);
+    }
+
+    @Benchmark
+    public byte[] acceptAllNewPool(CorpusState corpus) {
+        return ccNewPool.transform(ccNewPool.parse(corpus.bytes[corpus.next()]), ClassTransform.ACCEPT_ALL);
+    }
+
+    @Benchmark
+    public byte[] explodeCode(CorpusState corpus) {
+        return cc.transform(cc.parse(corpus.bytes[corpus.next()]), EXPLODE_CODE);
+    }
+}
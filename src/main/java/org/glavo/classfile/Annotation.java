@@ -34,6 +34,7 @@ import org.glavo.classfile.impl.TemporaryConstantPool;
 
 import java.lang.constant.ClassDesc;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Models an annotation on a declaration.
@@ -69,6 +70,20 @@ public sealed interface Annotation
      */
     List<AnnotationElement> elements();
 
+    /**
+     * {@return the value of the element with the given name, if present}
+     * Elements of an annotation read from a classfile are decoded on demand,
+     * and this lookup skips the other elements without decoding them.
+     * @param name the name of the element
+     */
+    default Optional<AnnotationValue> elementValue(String name) {
+        for (AnnotationElement e : elements()) {
+            if (e.name().equalsString(name))
+                return Optional.of(e.value());
+        }
+        return Optional.empty();
+    }
+
     /**
      * {@return an annotation}
      * @param annotationClass the class of the annotation
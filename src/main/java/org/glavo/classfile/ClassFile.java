@@ -26,8 +26,13 @@ package org.glavo.classfile;
 
 import java.io.IOException;
 import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -35,7 +40,9 @@ import org.glavo.classfile.attribute.ModuleAttribute;
 import org.glavo.classfile.constantpool.ClassEntry;
 import org.glavo.classfile.constantpool.ConstantPoolBuilder;
 import org.glavo.classfile.constantpool.Utf8Entry;
+import org.glavo.classfile.impl.BatchTransformImpl;
 import org.glavo.classfile.impl.ClassFileImpl;
+import org.glavo.classfile.impl.SymbolPool;
 import org.glavo.classfile.impl.TemporaryConstantPool;
 import org.glavo.classfile.attribute.CharacterRangeInfo;
 import org.glavo.classfile.attribute.LocalVariableInfo;
@@ -44,6 +51,8 @@ import org.glavo.classfile.instruction.ExceptionCatch;
 import org.glavo.classfile.jdk.JdkUtils;
 
 import java.util.List;
+import java.util.stream.Stream;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -135,6 +144,42 @@ public sealed interface ClassFile
         ClassHierarchyResolver classHierarchyResolver();
     }
 
+    /**
+     * Option describing whether to intern the class names and descriptors read
+     * from the constant pools of parsed classfiles.  Interning shares the
+     * strings inflated from the UTF-8 entries naming classes or holding field,
+     * method and method type descriptors, and the {@link ClassDesc}s and {@link
+     * java.lang.constant.MethodTypeDesc}s of class entries and descriptors,
+     * among all the classfiles parsed with the option, so names such as {@code
+     * java/lang/Object} and {@code ()V} are held once by analyses keeping many
+     * class models.  Other strings, such as member names and string constants,
+     * are not interned.
+     * <p>
+     * The pool of an option retains its values as long as the option is
+     * reachable, up to a bounded number of each kind; when the bound is
+     * reached the pool starts over, so values interned earlier are no longer
+     * shared with the following classfiles.
+     * Default is not to intern.
+     */
+    sealed interface InterningOption extends Option
+            permits ClassFileImpl.InterningOptionImpl {
+
+        /**
+         * {@return an option interning into a new pool, shared by all the
+         * contexts created with the option}
+         */
+        static InterningOption of() {
+            return new ClassFileImpl.InterningOptionImpl(new SymbolPool());
+        }
+
+        /**
+         * {@return an option not interning}
+         */
+        static InterningOption none() {
+            return ClassFileImpl.InterningOptionImpl.NONE;
+        }
+    }
+
     /**
      * Option describing whether to preserve the original constant pool when
      * transforming a classfile.  Reusing the constant pool enables significant
@@ -306,6 +351,135 @@ public sealed interface ClassFile
         return parse(Files.readAllBytes(path));
     }
 
+    /**
+     * Parse a classfile into a {@link ClassModel} directly from a buffer,
+     * without copying it to a byte array.  The classfile is read from the
+     * {@linkplain ByteBuffer#position() position} to the
+     * {@linkplain ByteBuffer#limit() limit} of the buffer, which may be a
+     * direct or {@linkplain java.nio.MappedByteBuffer mapped} buffer, for
+     * example a region of a mapped jar or jimage file.  The position of the
+     * buffer is not changed.
+     * <p>
+     * The model reads the buffer lazily, so the content of the buffer must
+     * not be modified while the model is in use.
+     *
+     * @param bytes the buffer holding the bytes of the classfile
+     * @return the class model
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     */
+    ClassModel parse(ByteBuffer bytes);
+
+    /**
+     * Parse a classfile into a {@link ClassModel}, mapping the file into memory
+     * instead of reading it into a byte array.
+     *
+     * @param path the path to the classfile
+     * @return the class model
+     * @throws java.io.IOException if an I/O error occurs
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     * @see #parse(ByteBuffer)
+     */
+    default ClassModel parseMapped(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Read a classfile, calling back the visitor for its elements in the
+     * order they appear in the classfile, without building a {@link ClassModel}.
+     * @param bytes the bytes of the classfile
+     * @param visitor the visitor
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     * @see #parse(ByteBuffer, ClassVisitor)
+     */
+    default void parse(byte[] bytes, ClassVisitor visitor) {
+        parse(ByteBuffer.wrap(bytes), visitor);
+    }
+
+    /**
+     * Read a classfile, calling back the visitor for its elements in the
+     * order they appear in the classfile, without building a {@link ClassModel}.
+     * Reading stops early when a callback of the visitor returns
+     * {@link ClassVisitor.VisitResult#STOP}, and the elements following that
+     * callback are not read.  The classfile is read from the
+     * {@linkplain ByteBuffer#position() position} to the
+     * {@linkplain ByteBuffer#limit() limit} of the buffer.  The models passed
+     * to the visitor read the buffer lazily, so the content of the buffer must
+     * not be modified while they are in use.
+     *
+     * @param bytes the buffer holding the bytes of the classfile
+     * @param visitor the visitor
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     */
+    void parse(ByteBuffer bytes, ClassVisitor visitor);
+
+    /**
+     * Read the header of a classfile into a {@link ClassSummary}, without
+     * building a {@link ClassModel} nor reading the fields and methods.
+     * @param bytes the bytes of the classfile
+     * @return the summary of the class
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     * @see #parseSummary(ByteBuffer, boolean)
+     */
+    default ClassSummary parseSummary(byte[] bytes) {
+        return parseSummary(ByteBuffer.wrap(bytes), false);
+    }
+
+    /**
+     * Read the header of a classfile into a {@link ClassSummary}, without
+     * building a {@link ClassModel}.
+     * @param bytes the bytes of the classfile
+     * @param withMembers whether to read the names and descriptors of the
+     *                    fields and methods
+     * @return the summary of the class
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     * @see #parseSummary(ByteBuffer, boolean)
+     */
+    default ClassSummary parseSummary(byte[] bytes, boolean withMembers) {
+        return parseSummary(ByteBuffer.wrap(bytes), withMembers);
+    }
+
+    /**
+     * Read the header of a classfile into a {@link ClassSummary}, without
+     * building a {@link ClassModel} nor reading the fields and methods.
+     * @param bytes the buffer holding the bytes of the classfile
+     * @return the summary of the class
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     * @see #parseSummary(ByteBuffer, boolean)
+     */
+    default ClassSummary parseSummary(ByteBuffer bytes) {
+        return parseSummary(bytes, false);
+    }
+
+    /**
+     * Read the header of a classfile into a {@link ClassSummary}, without
+     * building a {@link ClassModel}.  Only the constant pool entries referenced
+     * by the header, and by the fields and methods if requested, are read;
+     * attributes are skipped.  The classfile is read from the
+     * {@linkplain ByteBuffer#position() position} to the
+     * {@linkplain ByteBuffer#limit() limit} of the buffer.
+     * <p>
+     * Unlike {@link #parse(ByteBuffer)}, classfiles of versions newer than
+     * {@link #latestMajorVersion()} are accepted, as the layout of the header
+     * does not depend on the version.
+     *
+     * @param bytes the buffer holding the bytes of the classfile
+     * @param withMembers whether to read the names and descriptors of the
+     *                    fields and methods
+     * @return the summary of the class
+     * @throws IllegalArgumentException or its subclass if the classfile format is
+     * not supported or an incompatibility prevents parsing of the classfile
+     */
+    ClassSummary parseSummary(ByteBuffer bytes, boolean withMembers);
+
     /**
      * Build a classfile into a byte array.
      * @param thisClass the name of the class to build
@@ -469,6 +643,134 @@ public sealed interface ClassFile
      */
     byte[] transform(ClassModel model, ClassEntry newClassName, ClassTransform transform);
 
+    /**
+     * The outcome of transforming one classfile of a batch.
+     *
+     * @see #transformAll(Stream, ClassTransform, Executor, Consumer)
+     */
+    sealed interface BatchResult
+            permits BatchTransformImpl.BatchResultImpl {
+
+        /**
+         * {@return the position of the classfile in the batch, starting from zero}
+         */
+        int index();
+
+        /**
+         * {@return the name of the classfile relative to the jar or directory
+         * it was read from, or {@code null} if the batch was not read from a
+         * jar or directory}
+         */
+        String name();
+
+        /**
+         * {@return the bytes of the transformed class, or {@code null} if the
+         * transformation failed}
+         */
+        byte[] bytes();
+
+        /**
+         * {@return the error that prevented parsing or transforming the classfile,
+         * or {@code null} if the transformation succeeded}
+         */
+        Throwable error();
+    }
+
+    /**
+     * Transform a batch of classfiles in parallel with the aid of a
+     * {@link ClassTransform}, using the {@linkplain ForkJoinPool#commonPool()
+     * common pool}.
+     *
+     * @param classes the classfile bytes to transform
+     * @param transform the transform, which must be safe to apply concurrently
+     * @param resultHandler a handler that receives the result of each classfile,
+     *                      in the order of the batch
+     * @see #transformAll(Stream, ClassTransform, Executor, Consumer)
+     */
+    default void transformAll(Stream<byte[]> classes,
+                              ClassTransform transform,
+                              Consumer<? super BatchResult> resultHandler) {
+        transformAll(classes, transform, ForkJoinPool.commonPool(), resultHandler);
+    }
+
+    /**
+     * Transform a batch of classfiles in parallel with the aid of a
+     * {@link ClassTransform}.  Each classfile is parsed, transformed and built
+     * by a task submitted to the {@code executor}.
+     * <p>
+     * The number of classfiles in flight is bounded by twice the parallelism
+     * of the executor, so the batch is consumed lazily and never held in memory
+     * all at once.  The {@code resultHandler} is invoked on the calling thread,
+     * in the order of the batch, regardless of the order the tasks complete in.
+     * A classfile that fails to parse or transform does not abort the batch;
+     * its error is reported in its {@link BatchResult}.  An exception thrown
+     * by the {@code resultHandler} or while reading the batch aborts the batch
+     * and is propagated; the transformations not yet started are cancelled.
+     *
+     * @param classes the classfile bytes to transform
+     * @param transform the transform, which must be safe to apply concurrently
+     * @param executor the executor running the transformations
+     * @param resultHandler a handler that receives the result of each classfile,
+     *                      in the order of the batch
+     */
+    default void transformAll(Stream<byte[]> classes,
+                              ClassTransform transform,
+                              Executor executor,
+                              Consumer<? super BatchResult> resultHandler) {
+        requireNonNull(transform);
+        requireNonNull(executor);
+        requireNonNull(resultHandler);
+        BatchTransformImpl.transformAll((ClassFileImpl) this,
+                classes.map(bytes -> new BatchTransformImpl.Source(null, bytes)).iterator(),
+                transform, executor, resultHandler);
+    }
+
+    /**
+     * Transform all classfiles of a jar file or a directory tree in parallel
+     * with the aid of a {@link ClassTransform}, using the
+     * {@linkplain ForkJoinPool#commonPool() common pool}.
+     * Entries not ending with {@code .class} are skipped.
+     * Jar entries are processed in the order they are stored in the jar,
+     * files of a directory in the lexicographic order of their relative paths.
+     *
+     * @param path the jar file or directory
+     * @param transform the transform, which must be safe to apply concurrently
+     * @param resultHandler a handler that receives the result of each classfile,
+     *                      in the order described above
+     * @throws java.io.IOException if an I/O error occurs
+     * @see #transformAll(Stream, ClassTransform, Executor, Consumer)
+     */
+    default void transformAll(Path path,
+                              ClassTransform transform,
+                              Consumer<? super BatchResult> resultHandler) throws IOException {
+        transformAll(path, transform, ForkJoinPool.commonPool(), resultHandler);
+    }
+
+    /**
+     * Transform all classfiles of a jar file or a directory tree in parallel
+     * with the aid of a {@link ClassTransform}.
+     * Entries not ending with {@code .class} are skipped.
+     * Jar entries are processed in the order they are stored in the jar,
+     * files of a directory in the lexicographic order of their relative paths.
+     *
+     * @param path the jar file or directory
+     * @param transform the transform, which must be safe to apply concurrently
+     * @param executor the executor running the transformations
+     * @param resultHandler a handler that receives the result of each classfile,
+     *                      in the order described above
+     * @throws java.io.IOException if an I/O error occurs
+     * @see #transformAll(Stream, ClassTransform, Executor, Consumer)
+     */
+    default void transformAll(Path path,
+                              ClassTransform transform,
+                              Executor executor,
+                              Consumer<? super BatchResult> resultHandler) throws IOException {
+        requireNonNull(transform);
+        requireNonNull(executor);
+        requireNonNull(resultHandler);
+        BatchTransformImpl.transformAll((ClassFileImpl) this, path, transform, executor, resultHandler);
+    }
+
     /**
      * Verify a classfile.  Any verification errors found will be returned.
      * @param model the class model to verify
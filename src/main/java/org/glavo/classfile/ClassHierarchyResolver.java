@@ -24,11 +24,14 @@
  */
 package org.glavo.classfile;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.constant.ClassDesc;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -36,6 +39,7 @@ import java.util.function.Supplier;
 import org.glavo.classfile.impl.ClassHierarchyImpl;
 import org.glavo.classfile.impl.ClassHierarchyImpl.ClassLoadingClassHierarchyResolver;
 import org.glavo.classfile.impl.ClassHierarchyImpl.StaticClassHierarchyResolver;
+import org.glavo.classfile.impl.PersistentClassHierarchyResolver;
 import org.glavo.classfile.impl.Util;
 
 import static java.lang.constant.ConstantDescs.CD_Object;
@@ -157,6 +161,66 @@ public interface ClassHierarchyResolver {
         return cached(Factory.INSTANCE);
     }
 
+    /**
+     * Returns a thread-safe ClassHierarchyResolver that caches class hierarchy information
+     * from this resolver, suitable to be shared by parallel transformations. The returned
+     * resolver will not update if delegate resolver returns differently. Cached information
+     * is read without locking, and concurrent requests for a class not yet cached are
+     * resolved only once.
+     *
+     * @return the thread-safe ClassHierarchyResolver with caching
+     *
+     * @implSpec The default implementation calls {@link #cachedConcurrent(int)} with
+     *           {@code 0} as {@code maximumSize}.
+     */
+    default ClassHierarchyResolver cachedConcurrent() {
+        return cachedConcurrent(0);
+    }
+
+    /**
+     * Returns a thread-safe ClassHierarchyResolver that caches class hierarchy information
+     * from this resolver, suitable to be shared by parallel transformations. The returned
+     * resolver will not update if delegate resolver returns differently. Cached information
+     * is read without locking, and concurrent requests for a class not yet cached are
+     * resolved only once. When more than {@code maximumSize} classes are cached, the
+     * classes not requested recently are evicted.
+     *
+     * @param maximumSize the maximum number of cached classes, or {@code 0} if unbounded
+     * @return the thread-safe ClassHierarchyResolver with caching
+     * @throws IllegalArgumentException if {@code maximumSize} is negative
+     */
+    default ClassHierarchyResolver cachedConcurrent(int maximumSize) {
+        return new ClassHierarchyImpl.ConcurrentCachedClassHierarchyResolver(this, maximumSize);
+    }
+
+    /**
+     * Returns a ClassHierarchyResolver that answers from a persistent index of the
+     * classes found in the given class path entries, and consults this resolver
+     * for the classes not found there. The index file is memory-mapped; the part
+     * of the index belonging to a jar file or directory is rebuilt when the size
+     * or modification time of the jar file, or of any classfile in the directory,
+     * changed since the index was written. A truncated or corrupted index file is
+     * rebuilt. On platforms which do not allow replacing a memory-mapped file, such
+     * as Windows, an index file still mapped by another resolver is not replaced;
+     * the rebuilt index is then kept in memory. Earlier class path entries take
+     * precedence over later ones. The returned resolver is thread-safe if this
+     * resolver is thread-safe.
+     * <p>
+     * Every call checks the class path against the index: a jar file costs a
+     * single file status read, but a directory is walked and the status of each
+     * of its classfiles is read, so opening an index of large directories is
+     * proportional to the number of their classfiles even when nothing changed.
+     *
+     * @param indexFile the index file, created if it does not exist
+     * @param classPath the jar files and directories to index
+     * @return the ClassHierarchyResolver with persistent caching
+     * @throws IOException if an I/O error occurs while reading the class path
+     *         or writing the index file
+     */
+    default ClassHierarchyResolver persistent(Path indexFile, List<Path> classPath) throws IOException {
+        return PersistentClassHierarchyResolver.open(indexFile, classPath).orElse(this);
+    }
+
     /**
      * Returns a {@linkplain ClassHierarchyResolver} that extracts class hierarchy
      * information from classfiles located by a mapping function. The mapping function
@@ -199,6 +263,51 @@ public interface ClassHierarchyResolver {
         return new StaticClassHierarchyResolver(interfaces, classToSuperClass);
     }
 
+    /**
+     * Returns a {@linkplain ClassHierarchyResolver} that extracts class hierarchy
+     * information from already parsed classes, such as the classes of a batch being
+     * transformed. The information is extracted once, when the resolver is created.
+     *
+     * @param classes the classes
+     * @return the {@linkplain ClassHierarchyResolver}
+     */
+    static ClassHierarchyResolver of(Collection<ClassModel> classes) {
+        return PersistentClassHierarchyResolver.of(classes);
+    }
+
+    /**
+     * Returns a {@linkplain ClassHierarchyResolver} that extracts class hierarchy
+     * information from the classfiles of a jar file or directory. The classfiles are
+     * read once, when the resolver is created, and only their headers are parsed.
+     *
+     * @param path the jar file or directory
+     * @return the {@linkplain ClassHierarchyResolver}
+     * @throws IOException if an I/O error occurs while reading the classfiles
+     */
+    static ClassHierarchyResolver ofClassFiles(Path path) throws IOException {
+        return PersistentClassHierarchyResolver.of(path);
+    }
+
+    /**
+     * Returns a {@linkplain ClassHierarchyResolver} that extracts class hierarchy
+     * information of the classes of the running JDK from a snapshot kept in the
+     * given index file. The snapshot is fingerprinted by the JDK version, {@code
+     * java.home} and {@code lib/modules}; when the file is missing or belongs to
+     * another JDK, the snapshot is built from {@code jrt:/} and written before this
+     * method returns, which reads the header of every classfile of the JDK. The
+     * returned resolver is thread-safe and resolves no class outside of the JDK,
+     * so it is usually combined with another resolver, for example {@code
+     * ofJdkSnapshot(indexFile).orElse(defaultResolver())}.
+     *
+     * @param indexFile the index file, created if it does not exist
+     * @return the {@linkplain ClassHierarchyResolver}
+     * @throws IOException if an I/O error occurs while reading the JDK classes
+     *         or writing the index file
+     */
+    static ClassHierarchyResolver ofJdkSnapshot(Path indexFile) throws IOException {
+        return PersistentClassHierarchyResolver.openJdkSnapshot(indexFile, true);
+    }
+
     /**
      * Returns a ClassHierarchyResolver that extracts class hierarchy information via
      * the Reflection API with a {@linkplain ClassLoader}.
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.impl.ClassSummaryImpl;
+
+/**
+ * A lightweight summary of the header of a classfile, read without building
+ * a {@link ClassModel}.  Class names are in internal form, such as
+ * {@code java/lang/Object}.
+ *
+ * @see ClassFile#parseSummary(java.nio.ByteBuffer, boolean)
+ */
+public sealed interface ClassSummary
+        permits ClassSummaryImpl {
+
+    /** {@return the major classfile version} */
+    int majorVersion();
+
+    /** {@return the minor classfile version} */
+    int minorVersion();
+
+    /** {@return the access flags} */
+    AccessFlags flags();
+
+    /** {@return the internal name of this class} */
+    String thisClass();
+
+    /** {@return the internal name of the superclass of this class, if there is one} */
+    Optional<String> superclass();
+
+    /** {@return the internal names of the interfaces implemented by this class} */
+    List<String> interfaces();
+
+    /** {@return the number of fields of this class} */
+    int fieldCount();
+
+    /** {@return the number of methods of this class} */
+    int methodCount();
+
+    /**
+     * {@return the fields of this class, or an empty list if the summary was
+     * read without members}
+     */
+    List<MemberSummary> fields();
+
+    /**
+     * {@return the methods of this class, or an empty list if the summary was
+     * read without members}
+     */
+    List<MemberSummary> methods();
+
+    /**
+     * A lightweight summary of a field or method.
+     */
+    sealed interface MemberSummary
+            permits ClassSummaryImpl.MemberSummaryImpl {
+
+        /** {@return the access flags} */
+        AccessFlags flags();
+
+        /** {@return the name of the member} */
+        String name();
+
+        /** {@return the descriptor of the member} */
+        String descriptor();
+    }
+}
@@ -103,7 +103,9 @@ public non-sealed interface ClassTransform
      * Create a class transform that transforms {@link MethodModel} elements
      * with the supplied method transform.
      *
-     * @param filter a predicate that determines which methods to transform
+     * @param filter a predicate that determines which methods to transform,
+     *               such as a {@link MethodSelector} ruling out methods without
+     *               parsing them
      * @param xform the method transform
      * @return the class transform
      */
@@ -127,7 +129,9 @@ public non-sealed interface ClassTransform
      * Create a class transform that transforms the {@link CodeAttribute} (method body)
      * of {@link MethodModel} elements with the supplied code transform.
      *
-     * @param filter a predicate that determines which methods to transform
+     * @param filter a predicate that determines which methods to transform,
+     *               such as a {@link MethodSelector} ruling out methods without
+     *               parsing them
      * @param xform the code transform
      * @return the class transform
      */
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.glavo.classfile.constantpool.ClassEntry;
+
+/**
+ * A visitor of the elements of a classfile, called back by
+ * {@link ClassFile#parse(java.nio.ByteBuffer, ClassVisitor)} while the
+ * classfile is read, in the order the elements appear in the classfile:
+ * <ol>
+ * <li>the class header;</li>
+ * <li>each field, followed by its attributes;</li>
+ * <li>each method, followed by its attributes, where the {@linkplain
+ * CodeAttribute code} attribute is followed by its instructions and by
+ * its own attributes;</li>
+ * <li>the attributes of the class.</li>
+ * </ol>
+ * No {@link ClassModel} is built and no list of fields, methods or
+ * attributes is materialized.  The fields and methods are lazily read
+ * models, and the instructions are delivered through an {@link
+ * InstructionCursor}, so no object is created for each instruction.
+ * <p>
+ * Each callback returns a {@link VisitResult} telling whether to continue,
+ * to skip the elements nested in the visited element, or to stop reading
+ * the classfile.  The default implementations continue.
+ */
+public interface ClassVisitor {
+
+    /**
+     * The result of a visit callback.
+     */
+    enum VisitResult {
+
+        /** Continue with the nested elements, then with the following elements */
+        CONTINUE,
+
+        /**
+         * Skip the elements nested in the visited element: the members and
+         * attributes of the class, the attributes of a field or method, the
+         * instructions and attributes of a code attribute, or the remaining
+         * instructions of the code
+         */
+        SKIP,
+
+        /** Stop reading the classfile */
+        STOP
+    }
+
+    /**
+     * Visits the class header.
+     *
+     * @param majorVersion the major classfile version
+     * @param minorVersion the minor classfile version
+     * @param flags the access flags of the class
+     * @param thisClass the class
+     * @param superclass the superclass of the class, if there is one
+     * @param interfaces the interfaces implemented by the class
+     * @return the visit result
+     */
+    default VisitResult visitClass(int majorVersion, int minorVersion, AccessFlags flags,
+                                   ClassEntry thisClass, Optional<ClassEntry> superclass,
+                                   List<ClassEntry> interfaces) {
+        return VisitResult.CONTINUE;
+    }
+
+    /**
+     * Visits a field.  The field has no {@linkplain FieldModel#parent() parent}.
+     *
+     * @param field the field
+     * @return the visit result
+     */
+    default VisitResult visitField(FieldModel field) {
+        return VisitResult.CONTINUE;
+    }
+
+    /**
+     * Visits a method.  The method has no {@linkplain MethodModel#parent() parent}.
+     *
+     * @param method the method
+     * @return the visit result
+     */
+    default VisitResult visitMethod(MethodModel method) {
+        return VisitResult.CONTINUE;
+    }
+
+    /**
+     * Visits an attribute of the class, of the last visited field or method,
+     * or of the last visited code attribute.
+     *
+     * @param attribute the attribute
+     * @return the visit result
+     */
+    default VisitResult visitAttribute(Attribute<?> attribute) {
+        return VisitResult.CONTINUE;
+    }
+
+    /**
+     * Visits an instruction of the last visited code attribute.  The cursor
+     * is only valid during the call, and must not be moved.
+     *
+     * @param instruction the cursor at the instruction
+     * @return the visit result
+     */
+    default VisitResult visitInstruction(InstructionCursor instruction) {
+        return VisitResult.CONTINUE;
+    }
+}
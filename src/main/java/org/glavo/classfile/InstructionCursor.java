@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile;
+
+import java.lang.constant.ConstantDesc;
+
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.glavo.classfile.impl.InstructionCursorImpl;
+
+/**
+ * A cursor over the instructions of a {@link CodeAttribute}, reading the
+ * operands of the current instruction straight from the classfile bytes.
+ * Unlike traversing the elements of the code, moving the cursor does not
+ * create any {@link Instruction}, {@link Label} or pseudo-instruction objects.
+ * <p>
+ * The cursor is positioned before the first instruction when created, and
+ * is advanced with {@link #next()}.  A cursor is not thread-safe.
+ *
+ * @see CodeAttribute#cursor()
+ */
+public sealed interface InstructionCursor
+        permits InstructionCursorImpl {
+
+    /**
+     * Moves the cursor to the next instruction.
+     *
+     * @return {@code true} if the cursor is at an instruction, or
+     *         {@code false} if there are no more instructions
+     * @throws IllegalArgumentException if the next instruction is malformed
+     */
+    boolean next();
+
+    /** {@return the opcode of the current instruction} */
+    Opcode opcode();
+
+    /** {@return the offset of the current instruction in the code array} */
+    int bci();
+
+    /** {@return the size of the current instruction in bytes} */
+    int sizeInBytes();
+
+    /**
+     * {@return the constant pool index referenced by the current instruction,
+     * or -1 if the instruction does not reference the constant pool}
+     */
+    int cpIndex();
+
+    /**
+     * {@return the local variable slot accessed by the current load, store,
+     * increment or {@code ret} instruction, or -1 for other instructions}
+     */
+    int localSlot();
+
+    /**
+     * {@return the offset in the code array targeted by the current branch
+     * or {@code jsr} instruction, or -1 for other instructions}  The targets
+     * of switch instructions are not reported.
+     */
+    int branchTarget();
+
+    /**
+     * {@return the value of the current constant instruction, or {@code null}
+     * for other instructions}
+     */
+    ConstantDesc constantValue();
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile;
+
+import java.lang.constant.MethodTypeDesc;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.glavo.classfile.impl.MethodSelectorImpl;
+
+/**
+ * A predicate on {@link MethodModel} declaring up front which methods a
+ * transform is interested in, by name and descriptor, by the opcodes of the
+ * method body or by the presence of an attribute.  Methods read from a
+ * classfile are tested against the raw bytes, without reading their
+ * attributes or parsing their code, so the methods that do not match are
+ * passed through untouched when used as the filter of
+ * {@link ClassTransform#transformingMethods(Predicate, MethodTransform)} or
+ * {@link ClassTransform#transformingMethodBodies(Predicate, CodeTransform)}.
+ */
+public sealed interface MethodSelector extends Predicate<MethodModel>
+        permits MethodSelectorImpl {
+
+    /**
+     * {@return a selector of the methods with the given name}
+     * @param name the method name
+     */
+    static MethodSelector ofMethod(String name) {
+        return new MethodSelectorImpl.NamedMethod(name, null);
+    }
+
+    /**
+     * {@return a selector of the methods with the given name and type}
+     * @param name the method name
+     * @param type the method type
+     */
+    static MethodSelector ofMethod(String name, MethodTypeDesc type) {
+        return new MethodSelectorImpl.NamedMethod(name, type.descriptorString());
+    }
+
+    /**
+     * {@return a selector of the methods whose body contains any of the given opcodes}
+     * Methods without a body are not selected.  Testing a method whose body
+     * is malformed throws {@link IllegalArgumentException}, as does its
+     * {@linkplain org.glavo.classfile.attribute.CodeAttribute#opcodeSummary()
+     * opcode summary}.
+     * @param opcodes the opcodes
+     */
+    static MethodSelector ofOpcodes(Opcode... opcodes) {
+        return ofOpcodes(List.of(opcodes));
+    }
+
+    /**
+     * {@return a selector of the methods whose body contains any of the given opcodes}
+     * Methods without a body are not selected.  Testing a method whose body
+     * is malformed throws {@link IllegalArgumentException}, as does its
+     * {@linkplain org.glavo.classfile.attribute.CodeAttribute#opcodeSummary()
+     * opcode summary}.
+     * @param opcodes the opcodes
+     */
+    static MethodSelector ofOpcodes(Collection<Opcode> opcodes) {
+        return new MethodSelectorImpl.WithOpcodes(opcodes);
+    }
+
+    /**
+     * {@return a selector of the methods having an attribute of the given kind}
+     * @param attribute the attribute mapper
+     */
+    static MethodSelector ofAttribute(AttributeMapper<?> attribute) {
+        return new MethodSelectorImpl.WithAttribute(attribute.name());
+    }
+
+    /**
+     * {@return a selector of the methods selected by both this and the other selector}
+     * @param other the other selector
+     */
+    default MethodSelector and(MethodSelector other) {
+        return new MethodSelectorImpl.All(this, other);
+    }
+
+    /**
+     * {@return a selector of the methods selected by either this or the other selector}
+     * @param other the other selector
+     */
+    default MethodSelector or(MethodSelector other) {
+        return new MethodSelectorImpl.Any(this, other);
+    }
+}
@@ -27,8 +27,11 @@ package org.glavo.classfile.attribute;
 
 import org.glavo.classfile.Attribute;
 import org.glavo.classfile.CodeModel;
+import org.glavo.classfile.InstructionCursor;
 import org.glavo.classfile.Label;
+import org.glavo.classfile.Opcode;
 import org.glavo.classfile.impl.BoundAttribute;
+import org.glavo.classfile.impl.OpcodeSummaryImpl;
 import org.glavo.classfile.MethodElement;
 import org.glavo.classfile.MethodModel;
 
@@ -63,4 +66,41 @@ public sealed interface CodeAttribute extends Attribute<CodeAttribute>, CodeMode
      * @param label a marker for a position within this {@code CodeAttribute}
      */
     int labelToBci(Label label);
+
+    /**
+     * {@return a new cursor over the instructions of the code array}
+     */
+    InstructionCursor cursor();
+
+    /**
+     * {@return a summary of the opcodes in the code array}  The summary is
+     * computed on first use by a single pass over the code array, without
+     * creating the instructions.
+     * @throws IllegalArgumentException if the code array is malformed
+     */
+    OpcodeSummary opcodeSummary();
+
+    /**
+     * A summary of the opcodes in a code array, allowing to skip the code
+     * not containing the instructions of interest without traversing its
+     * elements.
+     */
+    sealed interface OpcodeSummary
+            permits OpcodeSummaryImpl {
+
+        /**
+         * {@return whether the code array contains an instruction with the opcode}
+         * @param opcode the opcode
+         */
+        boolean contains(Opcode opcode);
+
+        /** {@return the number of method invocation instructions} */
+        int invokeCount();
+
+        /** {@return the number of field access instructions} */
+        int fieldAccessCount();
+
+        /** {@return the number of {@code new} instructions} */
+        int newCount();
+    }
 }
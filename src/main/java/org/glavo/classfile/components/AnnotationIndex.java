@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.components;
+
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.impl.AnnotationIndexImpl;
+
+/**
+ * {@code AnnotationIndex} is a compact index of the classes, fields and methods
+ * annotated with each annotation type.
+ * <p>
+ * The index is built by a streaming pass over the {@code
+ * RuntimeVisibleAnnotations} and {@code RuntimeInvisibleAnnotations} attributes
+ * of the classes, the fields and the methods, reading only the type descriptors
+ * of the annotations: no class model is built and no annotation element is
+ * decoded.  Parameter and type annotations are not indexed.
+ * <p>
+ * The index can be {@linkplain #write(Path) written} to a file and {@linkplain
+ * #open(Path) opened} again as a memory-mapped file, without being read into
+ * memory.
+ */
+public sealed interface AnnotationIndex permits AnnotationIndexImpl {
+
+    /**
+     * An element annotated with an indexed annotation type.
+     */
+    sealed interface Target permits AnnotationIndexImpl.TargetImpl {
+
+        /**
+         * The kind of an annotated element.
+         */
+        enum Kind {
+
+            /** An annotated class */
+            CLASS,
+
+            /** An annotated field */
+            FIELD,
+
+            /** An annotated method */
+            METHOD
+        }
+
+        /**
+         * {@return the kind of the annotated element}
+         */
+        Kind kind();
+
+        /**
+         * {@return the annotated class, or the class declaring the annotated member}
+         */
+        ClassDesc owner();
+
+        /**
+         * {@return the name of the annotated field or method, or empty for a class}
+         */
+        Optional<String> memberName();
+
+        /**
+         * {@return the descriptor of the annotated field or method, or empty for a class}
+         */
+        Optional<String> memberType();
+
+        /**
+         * {@return whether the annotation is runtime visible}
+         */
+        boolean runtimeVisible();
+    }
+
+    /**
+     * Returns the elements annotated with an annotation type, in the order
+     * the classes were indexed and the elements appear in the classfiles.
+     * @param annotationType the annotation type
+     * @return the annotated elements
+     */
+    List<Target> find(ClassDesc annotationType);
+
+    /**
+     * {@return the indexed annotation types}
+     */
+    List<ClassDesc> annotationTypes();
+
+    /**
+     * Writes the index to a file, atomically replacing an existing file.
+     * On platforms which do not allow replacing a memory-mapped file, such as
+     * Windows, a file still mapped by an {@linkplain #open(Path) opened} index
+     * cannot be replaced and is left unchanged.
+     * @param indexFile the index file
+     * @throws IOException if the file cannot be written or replaced
+     */
+    void write(Path indexFile) throws IOException;
+
+    /**
+     * Creates an index of the annotations of classfiles.
+     * Classfiles that cannot be read are not indexed.
+     * @param classfiles the classfile bytes
+     * @return the index
+     */
+    static AnnotationIndex of(Collection<byte[]> classfiles) {
+        return AnnotationIndexImpl.of(classfiles);
+    }
+
+    /**
+     * Creates an index of the annotations of the classes of jar files and
+     * directories.  Classfiles that cannot be read are not indexed.
+     * @param classPath the jar files and directories
+     * @return the index
+     * @throws IOException if a jar file or directory cannot be read
+     */
+    static AnnotationIndex ofClassPath(List<Path> classPath) throws IOException {
+        return AnnotationIndexImpl.ofClassPath(classPath);
+    }
+
+    /**
+     * Opens an index file {@linkplain #write(Path) written} before, mapping it into memory.
+     * @param indexFile the index file
+     * @return the index
+     * @throws IOException if the file cannot be read, or is not an index file or is corrupted
+     */
+    static AnnotationIndex open(Path indexFile) throws IOException {
+        return AnnotationIndexImpl.open(indexFile);
+    }
+}
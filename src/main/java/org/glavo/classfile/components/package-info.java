@@ -105,6 +105,13 @@
  * Sample transformation relabeling all methods:
  * {@snippet lang="java" class="ComponentsPackageSnippets" region="codeRelabeling"}
  *
+ * <h3>{@link AnnotationIndex}</h3>
+ * {@link AnnotationIndex} is a compact index of the classes, fields and methods
+ * annotated with each annotation type, built from classfiles or from jar files
+ * and directories by reading only the type descriptors of the annotations.
+ * The index can be written to a file and memory-mapped again, so scanning a
+ * class path for annotated elements is not repeated on each run.
+ *
  * <h3>Class Instrumentation Sample</h3>
  * Following snippet is sample composition of {@link ClassRemapper}, {@link
  * CodeLocalsShifter} and {@link CodeRelabeler} into fully functional class
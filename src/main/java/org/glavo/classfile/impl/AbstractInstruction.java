@@ -1059,7 +1059,7 @@ public abstract sealed class AbstractInstruction
         @Override
         public int count() {
             return op == Opcode.INVOKEINTERFACE
-                   ? Util.parameterSlots(Util.methodTypeSymbol(methodEntry.nameAndType())) + 1
+                   ? Util.parameterSlots(methodEntry.nameAndType()) + 1
                    : 0;
         }
 
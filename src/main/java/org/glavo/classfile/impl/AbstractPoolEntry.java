@@ -25,7 +25,9 @@
 package org.glavo.classfile.impl;
 
 import java.lang.constant.*;
+import java.lang.invoke.MethodHandles;
 import java.lang.invoke.TypeDescriptor;
+import java.lang.invoke.VarHandle;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
@@ -114,6 +116,11 @@ public abstract sealed class AbstractPoolEntry {
 
     public ConstantPool constantPool() { return constantPool; }
 
+    // the pool sharing the strings and symbols read from the classfile, or null
+    SymbolPool symbolPool() {
+        return constantPool instanceof ClassReaderImpl reader ? reader.symbolPool : null;
+    }
+
     public int index() { return index; }
 
     @Override
@@ -155,6 +162,19 @@ public abstract sealed class AbstractPoolEntry {
         private char[] chars;
         // Only set in STRING state
         private String stringValue;
+        // The symbol parsed from this entry as a descriptor, set once
+        private TypeDescriptor typeSym;
+        // Set when the entry is known to be a class name or descriptor, the strings shared by a symbol pool
+        private boolean symbolic;
+
+        private static final VarHandle TYPE_SYM;
+        static {
+            try {
+                TYPE_SYM = MethodHandles.lookup().findVarHandle(Utf8EntryImpl.class, "typeSym", TypeDescriptor.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
 
         Utf8EntryImpl(ConstantPool cpm, int index,
                           byte[] rawBytes, int offset, int rawLen) {
@@ -190,6 +210,7 @@ public abstract sealed class AbstractPoolEntry {
             this.charLen = u.charLen;
             this.chars = u.chars;
             this.stringValue = u.stringValue;
+            this.typeSym = u.typeSym;
         }
 
         /**
@@ -318,9 +339,10 @@ public abstract sealed class AbstractPoolEntry {
             if (state == State.RAW)
                 inflate();
             if (state != State.STRING) {
-                stringValue = (chars != null)
-                              ? new String(chars, 0, charLen)
-                              : new String(rawBytes, offset, charLen, StandardCharsets.ISO_8859_1);
+                String s = (chars != null)
+                           ? new String(chars, 0, charLen)
+                           : new String(rawBytes, offset, charLen, StandardCharsets.ISO_8859_1);
+                stringValue = symbolic ? symbolPool().intern(s) : s;
                 state = State.STRING;
             }
             return stringValue;
@@ -359,6 +381,81 @@ public abstract sealed class AbstractPoolEntry {
             return toString().subSequence(start, end);
         }
 
+        /**
+         * Marks this entry as a class name or descriptor, interned if the constant pool
+         * belongs to a reader with a symbol pool.
+         */
+        Utf8EntryImpl markSymbolic() {
+            if (!symbolic) {
+                var pool = symbolPool();
+                if (pool != null) {
+                    if (state == State.STRING)
+                        stringValue = pool.intern(stringValue);
+                    symbolic = true;
+                }
+            }
+            return this;
+        }
+
+        public ClassDesc fieldTypeSymbol() {
+            if (typeSym instanceof ClassDesc cd)
+                return cd;
+            var pool = markSymbolic().symbolPool();
+            return (ClassDesc) cacheTypeSymbol(pool == null
+                                               ? ClassDesc.ofDescriptor(stringValue())
+                                               : pool.fieldType(stringValue()));
+        }
+
+        public MethodTypeDesc methodTypeSymbol() {
+            if (typeSym instanceof MethodTypeDesc mtd)
+                return mtd;
+            var pool = markSymbolic().symbolPool();
+            return (MethodTypeDesc) cacheTypeSymbol(pool == null
+                                                    ? MethodTypeDesc.ofDescriptor(stringValue())
+                                                    : pool.methodType(stringValue()));
+        }
+
+        // the first assigned symbol wins, so all the threads share one instance
+        private TypeDescriptor cacheTypeSymbol(TypeDescriptor sym) {
+            var witness = (TypeDescriptor) TYPE_SYM.compareAndExchange(this, null, sym);
+            return witness == null ? sym : witness;
+        }
+
+        /**
+         * {@return the number of slots taken by the parameters of this method
+         * descriptor}  The descriptor is scanned in place, without parsing the
+         * parameter types.
+         */
+        public int parameterSlots() {
+            if (typeSym instanceof MethodTypeDesc mtd)
+                return Util.parameterSlots(mtd);
+            // the structural characters are ASCII, so the raw bytes are scanned alike
+            int len = rawBytes != null ? rawLen : stringValue.length();
+            if (len == 0 || descriptorChar(0) != '(')
+                throw new IllegalArgumentException("Bad method descriptor: " + stringValue());
+            int slots = 0;
+            for (int i = 1; i < len; i++) {
+                int c = descriptorChar(i);
+                if (c == ')')
+                    return slots;
+                if (c == 'J' || c == 'D') {
+                    slots += 2;
+                    continue;
+                }
+                while (c == '[' && i + 1 < len)
+                    c = descriptorChar(++i);
+                if (c == 'L') {
+                    while (i + 1 < len && descriptorChar(++i) != ';') { }
+                }
+                slots++;
+            }
+            throw new IllegalArgumentException("Bad method descriptor: " + stringValue());
+        }
+
+        private int descriptorChar(int i) {
+            return rawBytes != null ? rawBytes[offset + i] : stringValue.charAt(i);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (o == this) return true;
@@ -383,8 +480,29 @@ public abstract sealed class AbstractPoolEntry {
 
         @Override
         public boolean equalsString(String s) {
-            if (state == State.RAW)
+            if (state == State.RAW) {
+                // compare the ASCII prefix without inflating, each char takes at least one byte
+                int len = s.length();
+                if (len > rawLen)
+                    return false;
+                int i = 0;
+                for (; i < len; i++) {
+                    byte b = rawBytes[offset + i];
+                    if (b < 0)
+                        break;
+                    if (b != s.charAt(i))
+                        return false;
+                }
+                if (i == len) {
+                    if (len != rawLen)
+                        return false;
+                    charLen = len;
+                    hash = hashString(s.hashCode());
+                    adopt(s);
+                    return true;
+                }
                 inflate();
+            }
             switch (state) {
                 case STRING:
                     return stringValue.equals(s);
@@ -394,8 +512,7 @@ public abstract sealed class AbstractPoolEntry {
                     for (int i=0; i<charLen; i++)
                         if (chars[i] != s.charAt(i))
                             return false;
-                    stringValue = s;
-                    state = State.STRING;
+                    adopt(s);
                     return true;
                 case BYTE:
                     if (rawLen != s.length() || hash != hashString(s.hashCode()))
@@ -403,13 +520,18 @@ public abstract sealed class AbstractPoolEntry {
                     for (int i=0; i<rawLen; i++)
                         if (rawBytes[offset+i] != s.charAt(i))
                             return false;
-                    stringValue = s;
-                    state = State.STRING;
+                    adopt(s);
                     return true;
             }
             throw new IllegalStateException("cannot reach here");
         }
 
+        // an equal string is adopted through the symbol pool, as when inflated
+        private void adopt(String s) {
+            stringValue = symbolic ? symbolPool().intern(s) : s;
+            state = State.STRING;
+        }
+
         @Override
         public void writeTo(BufWriter pool) {
             if (rawBytes != null) {
@@ -552,8 +674,17 @@ public abstract sealed class AbstractPoolEntry {
 
         public ClassDesc sym = null;
 
+        private static final VarHandle SYM;
+        static {
+            try {
+                SYM = MethodHandles.lookup().findVarHandle(ClassEntryImpl.class, "sym", ClassDesc.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
         ClassEntryImpl(ConstantPool cpm, int index, Utf8EntryImpl name) {
-            super(cpm, ClassFile.TAG_CLASS, index, name);
+            super(cpm, ClassFile.TAG_CLASS, index, name.markSymbolic());
         }
 
         @Override
@@ -573,7 +704,11 @@ public abstract sealed class AbstractPoolEntry {
             if (sym != null) {
                 return sym;
             }
-            return this.sym = Util.toClassDesc(asInternalName());
+            var pool = symbolPool();
+            sym = pool == null ? Util.toClassDesc(asInternalName()) : pool.classDesc(asInternalName());
+            // the first assigned symbol wins, so all the threads share one instance
+            var witness = (ClassDesc) SYM.compareAndExchange(this, null, sym);
+            return witness == null ? sym : witness;
         }
 
         @Override
@@ -646,7 +781,7 @@ public abstract sealed class AbstractPoolEntry {
         public TypeDescriptor typeSym = null;
 
         NameAndTypeEntryImpl(ConstantPool cpm, int index, Utf8EntryImpl name, Utf8EntryImpl type) {
-            super(cpm, ClassFile.TAG_NAMEANDTYPE, index, name, type);
+            super(cpm, ClassFile.TAG_NAMEANDTYPE, index, name, type.markSymbolic());
         }
 
         @Override
@@ -663,7 +798,7 @@ public abstract sealed class AbstractPoolEntry {
             if (typeSym instanceof ClassDesc cd) {
                 return cd;
             } else {
-                return (ClassDesc)(typeSym = ClassDesc.ofDescriptor(ref2.stringValue()));
+                return (ClassDesc)(typeSym = ref2.fieldTypeSymbol());
             }
         }
 
@@ -671,7 +806,7 @@ public abstract sealed class AbstractPoolEntry {
             if (typeSym instanceof MethodTypeDesc mtd) {
                 return mtd;
             } else {
-                return (MethodTypeDesc)(typeSym = MethodTypeDesc.ofDescriptor(ref2.stringValue()));
+                return (MethodTypeDesc)(typeSym = ref2.methodTypeSymbol());
             }
         }
 
@@ -958,7 +1093,7 @@ public abstract sealed class AbstractPoolEntry {
         public MethodTypeDesc sym = null;
 
         MethodTypeEntryImpl(ConstantPool cpm, int index, Utf8EntryImpl descriptor) {
-            super(cpm, ClassFile.TAG_METHODTYPE, index, descriptor);
+            super(cpm, ClassFile.TAG_METHODTYPE, index, descriptor.markSymbolic());
         }
 
         @Override
@@ -983,7 +1118,7 @@ public abstract sealed class AbstractPoolEntry {
             if (sym != null) {
                 return sym;
             }
-            return this.sym = MethodTypeDesc.ofDescriptor(descriptor().stringValue());
+            return this.sym = ref1.methodTypeSymbol();
         }
 
         @Override
@@ -26,20 +26,36 @@ package org.glavo.classfile.impl;
 
 import org.glavo.classfile.*;
 import org.glavo.classfile.constantpool.*;
+import org.glavo.classfile.jdk.CollectionUtils;
 
 import java.lang.constant.ConstantDesc;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
 
 import static org.glavo.classfile.ClassFile.*;
 
 public final class AnnotationImpl implements Annotation {
     private final Utf8Entry className;
-    private final List<AnnotationElement> elements;
+    // a bound annotation is read at the position of the classfile,
+    // its elements being decoded on demand
+    private final ClassReader reader;
+    private final int pos;
+    private List<AnnotationElement> elements;
 
     public AnnotationImpl(Utf8Entry className,
                           List<AnnotationElement> elems) {
         this.className = className;
         this.elements = List.copyOf(elems);
+        this.reader = null;
+        this.pos = -1;
+    }
+
+    AnnotationImpl(ClassReader reader, int pos) {
+        this.className = reader.readUtf8Entry(pos);
+        this.reader = reader;
+        this.pos = pos;
     }
 
     @Override
@@ -49,13 +65,29 @@ public final class AnnotationImpl implements Annotation {
 
     @Override
     public List<AnnotationElement> elements() {
+        if (elements == null) {
+            elements = AnnotationReader.readAnnotationElementValuePairs(reader, pos + 2);
+        }
         return elements;
     }
 
+    @Override
+    public Optional<AnnotationValue> elementValue(String name) {
+        if (elements == null) {
+            return Optional.ofNullable(AnnotationReader.readElementValue(reader, pos + 2, name));
+        }
+        return Annotation.super.elementValue(name);
+    }
+
     @Override
     public void writeTo(BufWriter buf) {
-        buf.writeIndex(className());
-        buf.writeList(elements());
+        if (reader != null && buf.canWriteDirect(reader)) {
+            reader.copyBytesTo(buf, pos, AnnotationReader.skipAnnotation(reader, pos) - pos);
+        }
+        else {
+            buf.writeIndex(className());
+            buf.writeList(elements());
+        }
     }
 
     @Override
@@ -240,7 +272,7 @@ public final class AnnotationImpl implements Annotation {
             implements AnnotationValue.OfArray {
 
         public OfArrayImpl(List<AnnotationValue> values) {
-            this.values = List.copyOf(values);
+            this.values = values instanceof BoundValues ? values : List.copyOf(values);
         }
 
         @Override
@@ -251,11 +283,61 @@ public final class AnnotationImpl implements Annotation {
         @Override
         public void writeTo(BufWriter buf) {
             buf.writeU1(tag());
-            buf.writeList(values);
+            if (values instanceof BoundValues bv && buf.canWriteDirect(bv.reader)) {
+                bv.reader.copyBytesTo(buf, bv.pos, bv.endPos() - bv.pos);
+            }
+            else {
+                buf.writeList(values);
+            }
         }
 
     }
 
+    /**
+     * The values of a bound array, read at the position of their count
+     * in the classfile and decoded on first access.
+     */
+    static final class BoundValues extends AbstractList<AnnotationValue>
+            implements RandomAccess {
+        private final ClassReader reader;
+        private final int pos;
+        private final int size;
+        private List<AnnotationValue> values;
+
+        BoundValues(ClassReader reader, int pos) {
+            this.reader = reader;
+            this.pos = pos;
+            this.size = reader.readU2(pos);
+        }
+
+        private int endPos() {
+            int p = pos + 2;
+            for (int i = 0; i < size; ++i) {
+                p = AnnotationReader.skipElementValue(reader, p);
+            }
+            return p;
+        }
+
+        @Override
+        public AnnotationValue get(int index) {
+            if (values == null) {
+                var arr = new Object[size];
+                int p = pos + 2;
+                for (int i = 0; i < size; ++i) {
+                    arr[i] = AnnotationReader.readElementValue(reader, p);
+                    p = AnnotationReader.skipElementValue(reader, p);
+                }
+                values = CollectionUtils.listFromTrustedArray(arr);
+            }
+            return values.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
     public record OfEnumImpl(Utf8Entry className, Utf8Entry constantName)
             implements AnnotationValue.OfEnum {
         @Override
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.Attributes;
+import org.glavo.classfile.components.AnnotationIndex;
+import org.glavo.classfile.constantpool.Utf8Entry;
+import org.glavo.classfile.jdk.ClassDescUtils;
+
+/**
+ * The index is a single big-endian table, shared by the built and the
+ * memory-mapped indexes:
+ * <pre>
+ * u4 magic, u4 version
+ * u4 string count, u4 string offsets[string count]
+ * u4 type count, { u4 type string, u4 first target, u4 target count }[type count]
+ * u4 target count, { u4 owner string, u4 name string, u4 descriptor string, u1 flags }[target count]
+ * { u2 length, u1 bytes[length] }[string count]
+ * </pre>
+ * The types are sorted by the unsigned bytes of their descriptors, and the
+ * targets of a type are contiguous, in the order the classes were indexed.
+ * All the offsets and indexes are checked when the table is opened, the
+ * lookups do not check them again.
+ */
+public final class AnnotationIndexImpl implements AnnotationIndex {
+
+    private static final int MAGIC = 0x414E4958; // ANIX
+    private static final int VERSION = 1;
+
+    private static final int TYPE_SIZE = 12;
+    private static final int TARGET_SIZE = 13;
+    private static final int NO_STRING = -1;
+
+    private static final int KIND_MASK = 3;
+    private static final int FLAG_VISIBLE = 4;
+    private static final Target.Kind[] KINDS = Target.Kind.values();
+
+    private final ByteBuffer table;
+    private final int typesPos;
+    private final int targetsPos;
+
+    private AnnotationIndexImpl(ByteBuffer table) {
+        this.table = table;
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION)
+            throw new IllegalArgumentException("Not an annotation index");
+        int limit = table.limit();
+        int stringCount = count(table, 8, 4);
+        this.typesPos = 12 + stringCount * 4;
+        int typeCount = count(table, typesPos, TYPE_SIZE);
+        this.targetsPos = typesPos + 4 + typeCount * TYPE_SIZE;
+        int targetCount = count(table, targetsPos, TARGET_SIZE);
+        int stringsPos = targetsPos + 4 + targetCount * TARGET_SIZE;
+        for (int i = 0; i < stringCount; i++) {
+            int p = table.getInt(12 + i * 4);
+            if (p < stringsPos || p > limit - 2 || p + 2 + (table.getShort(p) & 0xFFFF) > limit)
+                throw new IllegalArgumentException("Bad string offset in annotation index");
+        }
+        for (int i = 0; i < typeCount; i++) {
+            int p = typesPos + 4 + i * TYPE_SIZE;
+            int first = table.getInt(p + 4);
+            int count = table.getInt(p + 8);
+            if (!isString(table.getInt(p), stringCount) || first < 0 || count < 0 || first > targetCount - count)
+                throw new IllegalArgumentException("Bad annotation type in annotation index");
+        }
+        for (int i = 0; i < targetCount; i++) {
+            int p = targetsPos + 4 + i * TARGET_SIZE;
+            int name = table.getInt(p + 4);
+            int descriptor = table.getInt(p + 8);
+            if (!isString(table.getInt(p), stringCount)
+                    || name != NO_STRING && !isString(name, stringCount)
+                    || descriptor != NO_STRING && !isString(descriptor, stringCount)
+                    || (table.get(p + 12) & KIND_MASK) >= KINDS.length)
+                throw new IllegalArgumentException("Bad target in annotation index");
+        }
+    }
+
+    // the count at pos, of items of the given size fitting in the rest of the table
+    private static int count(ByteBuffer table, int pos, int size) {
+        int count = table.getInt(pos);
+        if (count < 0 || count > (table.limit() - pos - 4) / size)
+            throw new IllegalArgumentException("Bad count in annotation index");
+        return count;
+    }
+
+    private static boolean isString(int index, int stringCount) {
+        return index >= 0 && index < stringCount;
+    }
+
+    public record TargetImpl(Kind kind, ClassDesc owner, Optional<String> memberName,
+                             Optional<String> memberType, boolean runtimeVisible) implements Target {
+    }
+
+    private record Entry(String type, String owner, String name, String descriptor, int flags) {
+    }
+
+    public static AnnotationIndex of(Collection<byte[]> classfiles) {
+        var entries = new ArrayList<Entry>();
+        for (var bytes : classfiles)
+            addClass(entries, bytes);
+        return new AnnotationIndexImpl(ByteBuffer.wrap(buildTable(entries)));
+    }
+
+    public static AnnotationIndex ofClassPath(List<Path> classPath) throws IOException {
+        var entries = new ArrayList<Entry>();
+        for (var entry : classPath)
+            PersistentClassHierarchyResolver.forEachClassfile(entry, bytes -> addClass(entries, bytes));
+        return new AnnotationIndexImpl(ByteBuffer.wrap(buildTable(entries)));
+    }
+
+    public static AnnotationIndex open(Path indexFile) throws IOException {
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return new AnnotationIndexImpl(buffer);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Not an annotation index: " + indexFile, e);
+        }
+    }
+
+    @Override
+    public List<Target> find(ClassDesc annotationType) {
+        byte[] type = annotationType.descriptorString().getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = table.getInt(typesPos) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int p = typesPos + 4 + mid * TYPE_SIZE;
+            int cmp = compare(table.getInt(p), type);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int first = table.getInt(p + 4);
+                int count = table.getInt(p + 8);
+                var targets = new Target[count];
+                for (int i = 0; i < count; i++)
+                    targets[i] = target(targetsPos + 4 + (first + i) * TARGET_SIZE);
+                return List.of(targets);
+            }
+        }
+        return List.of();
+    }
+
+    @Override
+    public List<ClassDesc> annotationTypes() {
+        var types = new ClassDesc[table.getInt(typesPos)];
+        for (int i = 0; i < types.length; i++)
+            types[i] = ClassDesc.ofDescriptor(string(table.getInt(typesPos + 4 + i * TYPE_SIZE)));
+        return List.of(types);
+    }
+
+    @Override
+    public void write(Path indexFile) throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (var channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                var bytes = table.duplicate().clear();
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            }
+            try {
+                Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileSystemException e) {
+                // on Windows a file mapped by an opened index cannot be replaced, it is left unchanged
+                throw new IOException("Cannot replace " + indexFile + ", it may still be mapped by an opened index", e);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AnnotationIndex[types=%d, targets=%d]",
+                             table.getInt(typesPos), table.getInt(targetsPos));
+    }
+
+    private Target target(int p) {
+        int name = table.getInt(p + 4);
+        int descriptor = table.getInt(p + 8);
+        int flags = table.get(p + 12);
+        return new TargetImpl(KINDS[flags & KIND_MASK],
+                              ClassDescUtils.ofInternalName(string(table.getInt(p))),
+                              name == NO_STRING ? Optional.empty() : Optional.of(string(name)),
+                              descriptor == NO_STRING ? Optional.empty() : Optional.of(string(descriptor)),
+                              (flags & FLAG_VISIBLE) != 0);
+    }
+
+    private String string(int index) {
+        int p = table.getInt(12 + index * 4);
+        byte[] bytes = new byte[table.getShort(p) & 0xFFFF];
+        table.get(p + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int compare(int index, byte[] s) {
+        int p = table.getInt(12 + index * 4);
+        int len = table.getShort(p) & 0xFFFF;
+        p += 2;
+        int n = Math.min(len, s.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.compareUnsigned(table.get(p + i), s[i]);
+            if (cmp != 0)
+                return cmp;
+        }
+        return len - s.length;
+    }
+
+    //------ Streaming pass
+
+    static void addClass(List<Entry> entries, byte[] classfile) {
+        int mark = entries.size();
+        // only the attribute names and the annotation types are read from the constant pool
+        try {
+            var reader = new ClassReaderImpl(ByteBuffer.wrap(classfile), ClassFileImpl.DEFAULT_CONTEXT, false);
+            String owner = reader.thisClassEntry().asInternalName();
+            int p = reader.interfacesPos();
+            p += 2 + reader.readU2(p) * 2;
+            for (var kind : List.of(Target.Kind.FIELD, Target.Kind.METHOD)) {
+                int cnt = reader.readU2(p);
+                p += 2;
+                for (int i = 0; i < cnt; ++i) {
+                    addAnnotations(entries, reader, p + 6, owner, kind, p);
+                    p = reader.skipAttributeHolder(p + 6);
+                }
+            }
+            addAnnotations(entries, reader, p, owner, Target.Kind.CLASS, -1);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // malformed classfile, not indexed
+            entries.subList(mark, entries.size()).clear();
+        }
+    }
+
+    private static void addAnnotations(List<Entry> entries, ClassReaderImpl reader, int pos,
+                                       String owner, Target.Kind kind, int memberPos) {
+        int cnt = reader.readU2(pos);
+        int p = pos + 2;
+        for (int i = 0; i < cnt; ++i) {
+            Utf8Entry attrName = reader.readUtf8Entry(p);
+            int flags;
+            if (attrName.equalsString(Attributes.NAME_RUNTIME_VISIBLE_ANNOTATIONS))
+                flags = kind.ordinal() | FLAG_VISIBLE;
+            else if (attrName.equalsString(Attributes.NAME_RUNTIME_INVISIBLE_ANNOTATIONS))
+                flags = kind.ordinal();
+            else
+                flags = -1;
+            if (flags != -1) {
+                String name = memberPos < 0 ? null : reader.readUtf8Entry(memberPos + 2).stringValue();
+                String descriptor = memberPos < 0 ? null : reader.readUtf8Entry(memberPos + 4).stringValue();
+                int acnt = reader.readU2(p + 6);
+                int q = p + 8;
+                for (int j = 0; j < acnt; ++j) {
+                    entries.add(new Entry(reader.readUtf8Entry(q).stringValue(), owner, name, descriptor, flags));
+                    q = AnnotationReader.skipAnnotation(reader, q);
+                }
+            }
+            p += 6 + reader.readInt(p + 2);
+        }
+    }
+
+    static byte[] buildTable(List<Entry> entries) {
+        var strings = new HashMap<String, Integer>();
+        var stringList = new ArrayList<byte[]>();
+        // stable sort keeps the indexing order of the targets of a type
+        var sorted = new ArrayList<Entry>(entries);
+        var typeBytes = new HashMap<String, byte[]>();
+        for (var e : sorted)
+            typeBytes.computeIfAbsent(e.type(), t -> t.getBytes(StandardCharsets.UTF_8));
+        sorted.sort((e1, e2) -> Arrays.compareUnsigned(typeBytes.get(e1.type()), typeBytes.get(e2.type())));
+
+        var types = new ArrayList<int[]>();
+        var targets = new int[sorted.size() * 4];
+        for (int i = 0; i < sorted.size(); i++) {
+            var e = sorted.get(i);
+            int type = intern(strings, stringList, e.type());
+            if (types.isEmpty() || types.get(types.size() - 1)[0] != type)
+                types.add(new int[] {type, i, 0});
+            types.get(types.size() - 1)[2]++;
+            targets[i * 4] = intern(strings, stringList, e.owner());
+            targets[i * 4 + 1] = e.name() == null ? NO_STRING : intern(strings, stringList, e.name());
+            targets[i * 4 + 2] = e.descriptor() == null ? NO_STRING : intern(strings, stringList, e.descriptor());
+            targets[i * 4 + 3] = e.flags();
+        }
+
+        int stringCount = stringList.size();
+        var out = new ByteArrayOutputStream(64 + stringCount * 32 + sorted.size() * TARGET_SIZE);
+        var data = new DataOutputStream(out);
+        try {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(stringCount);
+            int p = 12 + stringCount * 4 + 4 + types.size() * TYPE_SIZE + 4 + sorted.size() * TARGET_SIZE;
+            for (var s : stringList) {
+                data.writeInt(p);
+                p += 2 + s.length;
+            }
+            data.writeInt(types.size());
+            for (var t : types) {
+                data.writeInt(t[0]);
+                data.writeInt(t[1]);
+                data.writeInt(t[2]);
+            }
+            data.writeInt(sorted.size());
+            for (int i = 0; i < sorted.size(); i++) {
+                data.writeInt(targets[i * 4]);
+                data.writeInt(targets[i * 4 + 1]);
+                data.writeInt(targets[i * 4 + 2]);
+                data.writeByte(targets[i * 4 + 3]);
+            }
+            for (var s : stringList) {
+                data.writeShort(s.length);
+                data.write(s);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int intern(HashMap<String, Integer> strings, List<byte[]> stringList, String s) {
+        Integer index = strings.get(s);
+        if (index == null) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            // the UTF-8 of a constant pool string is never longer than its modified UTF-8, this is a safeguard
+            if (bytes.length > 0xFFFF)
+                throw new IllegalArgumentException("String too long for the annotation index: " + bytes.length + " bytes");
+            index = stringList.size();
+            strings.put(s, index);
+            stringList.add(bytes);
+        }
+        return index;
+    }
+}
@@ -70,16 +70,7 @@ class AnnotationReader {
             case AEV_ENUM -> new AnnotationImpl.OfEnumImpl(classReader.readUtf8Entry(p), classReader.readUtf8Entry(p + 2));
             case AEV_CLASS -> new AnnotationImpl.OfClassImpl(classReader.readUtf8Entry(p));
             case AEV_ANNOTATION -> new AnnotationImpl.OfAnnotationImpl(readAnnotation(classReader, p));
-            case AEV_ARRAY -> {
-                int numValues = classReader.readU2(p);
-                p += 2;
-                var values = new Object[numValues];
-                for (int i = 0; i < numValues; ++i) {
-                    values[i] = readElementValue(classReader, p);
-                    p = skipElementValue(classReader, p);
-                }
-                yield new AnnotationImpl.OfArrayImpl(CollectionUtils.listFromTrustedArray(values));
-            }
+            case AEV_ARRAY -> new AnnotationImpl.OfArrayImpl(new AnnotationImpl.BoundValues(classReader, p));
             default -> throw new IllegalArgumentException(
                     "Unexpected tag '%s' in AnnotationValue, pos = %d".formatted(tag, p - 1));
         };
@@ -106,7 +97,7 @@ class AnnotationReader {
         return CollectionUtils.listFromTrustedArray(pas);
     }
 
-    private static int skipElementValue(ClassReader classReader, int p) {
+    static int skipElementValue(ClassReader classReader, int p) {
         char tag = (char) classReader.readU1(p);
         ++p;
         return switch (tag) {
@@ -127,10 +118,7 @@ class AnnotationReader {
     }
 
     private static Annotation readAnnotation(ClassReader classReader, int p) {
-        Utf8Entry annotationClass = classReader.utf8EntryByIndex(classReader.readU2(p));
-        p += 2;
-        List<AnnotationElement> elems = readAnnotationElementValuePairs(classReader, p);
-        return new AnnotationImpl(annotationClass, elems);
+        return new AnnotationImpl(classReader, p);
     }
 
     private static int skipAnnotations(ClassReader classReader, int p) {
@@ -141,11 +129,11 @@ class AnnotationReader {
         return p;
     }
 
-    private static int skipAnnotation(ClassReader classReader, int p) {
+    static int skipAnnotation(ClassReader classReader, int p) {
         return skipElementValuePairs(classReader, p + 2);
     }
 
-    private static List<AnnotationElement> readAnnotationElementValuePairs(ClassReader classReader, int p) {
+    static List<AnnotationElement> readAnnotationElementValuePairs(ClassReader classReader, int p) {
         int numElementValuePairs = classReader.readU2(p);
         p += 2;
         var annotationElements = new Object[numElementValuePairs];
@@ -159,6 +147,21 @@ class AnnotationReader {
         return CollectionUtils.listFromTrustedArray(annotationElements);
     }
 
+    /**
+     * {@return the value of the named element among the element value pairs
+     * at the position, or null if there is none}  The other values are skipped.
+     */
+    static AnnotationValue readElementValue(ClassReader classReader, int p, String name) {
+        int numElementValuePairs = classReader.readU2(p);
+        p += 2;
+        for (int i = 0; i < numElementValuePairs; ++i) {
+            if (classReader.readUtf8Entry(p).equalsString(name))
+                return readElementValue(classReader, p + 2);
+            p = skipElementValue(classReader, p + 2);
+        }
+        return null;
+    }
+
     private static int skipElementValuePairs(ClassReader classReader, int p) {
         int numElementValuePairs = classReader.readU2(p);
         p += 2;
@@ -50,6 +50,10 @@ public class AttributeHolder {
         return attributes.size();
     }
 
+    Attribute<?> get(int index) {
+        return attributes.get(index);
+    }
+
     public void writeTo(BufWriter buf) {
         buf.writeU2(attributes.size());
         for (Attribute<?> a : attributes)
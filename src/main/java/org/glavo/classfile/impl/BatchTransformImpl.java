@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassTransform;
+
+public final class BatchTransformImpl {
+
+    public record Source(String name, byte[] bytes) {
+    }
+
+    public record BatchResultImpl(int index, String name, byte[] bytes, Throwable error)
+            implements ClassFile.BatchResult {
+    }
+
+    public static void transformAll(ClassFileImpl context,
+                                    Path path,
+                                    ClassTransform transform,
+                                    Executor executor,
+                                    Consumer<? super ClassFile.BatchResult> resultHandler) throws IOException {
+        if (Files.isDirectory(path)) {
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(path)) {
+                files = stream.filter(p -> p.getFileName().toString().endsWith(".class") && Files.isRegularFile(p))
+                              .map(path::relativize)
+                              .sorted()
+                              .collect(Collectors.toList());
+            }
+            try {
+                transformAll(context, files.stream().map(file -> {
+                    String name = file.toString().replace(file.getFileSystem().getSeparator(), "/");
+                    try {
+                        return new Source(name, Files.readAllBytes(path.resolve(file)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }).iterator(), transform, executor, resultHandler);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(path.toFile())) {
+                var entries = zip.entries();
+                Iterator<Source> sources = new Iterator<>() {
+                    private ZipEntry next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && entries.hasMoreElements()) {
+                            ZipEntry entry = entries.nextElement();
+                            if (!entry.isDirectory() && entry.getName().endsWith(".class")) {
+                                next = entry;
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Source next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        ZipEntry entry = next;
+                        next = null;
+                        try (var in = zip.getInputStream(entry)) {
+                            return new Source(entry.getName(), in.readAllBytes());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+                transformAll(context, sources, transform, executor, resultHandler);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    public static void transformAll(ClassFileImpl context,
+                                    Iterator<Source> sources,
+                                    ClassTransform transform,
+                                    Executor executor,
+                                    Consumer<? super ClassFile.BatchResult> resultHandler) {
+        int maxInFlight = 2 * (executor instanceof ForkJoinPool pool
+                               ? pool.getParallelism()
+                               : Runtime.getRuntime().availableProcessors());
+        var inFlight = new ArrayDeque<CompletableFuture<BatchResultImpl>>(maxInFlight);
+        int index = 0;
+        try {
+            while (sources.hasNext()) {
+                if (inFlight.size() == maxInFlight) {
+                    resultHandler.accept(inFlight.removeFirst().join());
+                }
+                Source source = sources.next();
+                int i = index++;
+                inFlight.addLast(CompletableFuture.supplyAsync(() -> transform(context, i, source, transform), executor));
+            }
+            while (!inFlight.isEmpty()) {
+                resultHandler.accept(inFlight.removeFirst().join());
+            }
+        } finally {
+            // a throwing source or result handler aborts the batch, the queued tasks are not run
+            for (var future : inFlight) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private static BatchResultImpl transform(ClassFileImpl context, int index, Source source, ClassTransform transform) {
+        try {
+            byte[] bytes = context.transform(context.parse(source.bytes()), transform);
+            return new BatchResultImpl(index, source.name(), bytes, null);
+        } catch (RuntimeException | LinkageError e) {
+            return new BatchResultImpl(index, source.name(), null, e);
+        }
+    }
+
+    private BatchTransformImpl() {
+    }
+}
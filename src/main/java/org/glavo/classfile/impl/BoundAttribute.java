@@ -130,58 +130,63 @@ public abstract sealed class BoundAttribute<T extends Attribute<T>>
         int size = reader.readU2(pos);
         var filled = new ArrayList<Attribute<?>>(size);
         int p = pos + 2;
-        int cfLen = reader.classfileLength();
-        var apo = ((ClassReaderImpl)reader).context().attributesProcessingOption();
         for (int i = 0; i < size; ++i) {
-            Utf8Entry name = reader.readUtf8Entry(p);
-            int len = reader.readInt(p + 2);
-            p += 6;
-            if (len < 0 || len > cfLen - p) {
-                throw new IllegalArgumentException("attribute " + name.stringValue() + " too big to handle");
+            filled.add(readAttribute(enclosing, reader, p, customAttributes));
+            p += 6 + reader.readInt(p + 2);
+        }
+        return Collections.unmodifiableList(filled);
+    }
+
+    /**
+     * Reads the attribute whose name index is at the given position.
+     */
+    public static Attribute<?> readAttribute(AttributedElement enclosing, ClassReader reader, int p,
+                                             Function<Utf8Entry, AttributeMapper<?>> customAttributes) {
+        Utf8Entry name = reader.readUtf8Entry(p);
+        int len = reader.readInt(p + 2);
+        p += 6;
+        if (len < 0 || len > reader.classfileLength() - p) {
+            throw new IllegalArgumentException("attribute " + name.stringValue() + " too big to handle");
+        }
+
+        var mapper = Attributes.standardAttribute(name);
+        if (mapper == null) {
+            mapper = customAttributes.apply(name);
+        }
+        if (mapper != null) {
+            return (Attribute<?>) mapper.readAttribute(enclosing, reader, p);
+        }
+        AttributeMapper<UnknownAttribute> fakeMapper = new AttributeMapper<>() {
+            @Override
+            public String name() {
+                return name.stringValue();
             }
 
-            var mapper = Attributes.standardAttribute(name);
-            if (mapper == null) {
-                mapper = customAttributes.apply(name);
+            @Override
+            public UnknownAttribute readAttribute(AttributedElement enclosing, ClassReader cf, int pos) {
+                // Will never get called
+                throw new UnsupportedOperationException();
             }
-            if (mapper != null) {
-                filled.add((Attribute)mapper.readAttribute(enclosing, reader, p));
-            } else {
-                AttributeMapper<UnknownAttribute> fakeMapper = new AttributeMapper<>() {
-                    @Override
-                    public String name() {
-                        return name.stringValue();
-                    }
-
-                    @Override
-                    public UnknownAttribute readAttribute(AttributedElement enclosing, ClassReader cf, int pos) {
-                        // Will never get called
-                        throw new UnsupportedOperationException();
-                    }
-
-                    @Override
-                    public void writeAttribute(BufWriter buf, UnknownAttribute attr) {
-                        buf.writeIndex(name);
-                        var cont = attr.contents();
-                        buf.writeInt(cont.length);
-                        buf.writeBytes(cont);
-                    }
-
-                    @Override
-                    public boolean allowMultiple() {
-                        return true;
-                    }
-
-                    @Override
-                    public AttributeMapper.AttributeStability stability() {
-                        return AttributeStability.UNKNOWN;
-                    }
-                };
-                filled.add(new BoundUnknownAttribute(reader, fakeMapper, p));
+
+            @Override
+            public void writeAttribute(BufWriter buf, UnknownAttribute attr) {
+                buf.writeIndex(name);
+                var cont = attr.contents();
+                buf.writeInt(cont.length);
+                buf.writeBytes(cont);
             }
-            p += len;
-        }
-        return Collections.unmodifiableList(filled);
+
+            @Override
+            public boolean allowMultiple() {
+                return true;
+            }
+
+            @Override
+            public AttributeMapper.AttributeStability stability() {
+                return AttributeStability.UNKNOWN;
+            }
+        };
+        return new BoundUnknownAttribute(reader, fakeMapper, p);
     }
 
     public static final class BoundUnknownAttribute extends BoundAttribute<UnknownAttribute>
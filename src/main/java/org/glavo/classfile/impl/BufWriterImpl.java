@@ -139,6 +139,12 @@ public final class BufWriterImpl implements BufWriter {
         offset += length;
     }
 
+    public void writeBytes(ByteBuffer buffer, int start, int length) {
+        reserveSpace(length);
+        buffer.get(start, elems, offset, length);
+        offset += length;
+    }
+
     @Override
     public void patchInt(int offset, int size, int value) {
         int prevOffset = this.offset;
@@ -25,6 +25,7 @@
 
 package org.glavo.classfile.impl;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
@@ -36,7 +37,9 @@ import org.glavo.classfile.ClassFile.*;
 import org.glavo.classfile.ClassBuilder;
 import org.glavo.classfile.ClassHierarchyResolver;
 import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.ClassSummary;
 import org.glavo.classfile.ClassTransform;
+import org.glavo.classfile.ClassVisitor;
 import org.glavo.classfile.constantpool.ClassEntry;
 import org.glavo.classfile.constantpool.ConstantPoolBuilder;
 import org.glavo.classfile.constantpool.Utf8Entry;
@@ -51,7 +54,8 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
                             DeadCodeOption deadCodeOption,
                             DeadLabelsOption deadLabelsOption,
                             ClassHierarchyResolverOption classHierarchyResolverOption,
-                            AttributeMapperOption attributeMapperOption) implements ClassFile {
+                            AttributeMapperOption attributeMapperOption,
+                            InterningOption interningOption) implements ClassFile {
 
     public static final ClassFileImpl DEFAULT_CONTEXT = new ClassFileImpl(
             StackMapsOption.STACK_MAPS_WHEN_REQUIRED,
@@ -68,7 +72,8 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
                 public AttributeMapper<?> apply(Utf8Entry k) {
                     return null;
                 }
-            }));
+            }),
+            InterningOptionImpl.NONE);
 
     @SuppressWarnings("unchecked")
     @Override
@@ -83,6 +88,7 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
         var dlo = deadLabelsOption;
         var chro = classHierarchyResolverOption;
         var amo = attributeMapperOption;
+        var io = interningOption;
         for (var o : options) {
             Objects.requireNonNull(o);
             if (o instanceof StackMapsOption oo) {
@@ -105,9 +111,11 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
                 chro = oo;
             } else if (o instanceof AttributeMapperOption oo) {
                 amo = oo;
+            } else if (o instanceof InterningOption oo) {
+                io = oo;
             }
         }
-        return new ClassFileImpl(smo, deo, lno, apo, cpso, sjo, dco, dlo, chro, amo);
+        return new ClassFileImpl(smo, deo, lno, apo, cpso, sjo, dco, dlo, chro, amo, io);
     }
 
     @Override
@@ -115,6 +123,21 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
         return new ClassImpl(bytes, this);
     }
 
+    @Override
+    public ClassModel parse(ByteBuffer bytes) {
+        return new ClassImpl(bytes, this);
+    }
+
+    @Override
+    public void parse(ByteBuffer bytes, ClassVisitor visitor) {
+        ClassVisitorReader.read(bytes, this, visitor);
+    }
+
+    @Override
+    public ClassSummary parseSummary(ByteBuffer bytes, boolean withMembers) {
+        return ClassSummaryImpl.read(bytes, this, withMembers);
+    }
+
     @Override
     public byte[] build(ClassEntry thisClassEntry,
                          ConstantPoolBuilder constantPool,
@@ -143,7 +166,7 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
 
     @Override
     public List<VerifyError> verify(ClassModel model) {
-        return VerifierImpl.verify(model, classHierarchyResolverOption().classHierarchyResolver(), null);
+        return VerifierImpl.verify(model, ((ClassHierarchyResolverOptionImpl) classHierarchyResolverOption()).classHierarchy(), null);
     }
 
     @Override
@@ -159,7 +182,21 @@ public record ClassFileImpl(StackMapsOption stackMapsOption,
             implements AttributeMapperOption {
     }
 
-    public record ClassHierarchyResolverOptionImpl(ClassHierarchyResolver classHierarchyResolver)
+    public record ClassHierarchyResolverOptionImpl(ClassHierarchyResolver classHierarchyResolver,
+                                                   ClassHierarchyImpl.SharedCache sharedCache)
             implements ClassHierarchyResolverOption {
+
+        public ClassHierarchyResolverOptionImpl(ClassHierarchyResolver classHierarchyResolver) {
+            this(classHierarchyResolver, new ClassHierarchyImpl.SharedCache());
+        }
+
+        public ClassHierarchyImpl classHierarchy() {
+            return new ClassHierarchyImpl(classHierarchyResolver, sharedCache);
+        }
+    }
+
+    public record InterningOptionImpl(SymbolPool symbolPool) implements InterningOption {
+
+        public static final InterningOptionImpl NONE = new InterningOptionImpl(null);
     }
 }
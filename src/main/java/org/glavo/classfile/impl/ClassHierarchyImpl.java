@@ -25,15 +25,19 @@
  */
 package org.glavo.classfile.impl;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 import org.glavo.classfile.ClassHierarchyResolver;
@@ -58,25 +62,66 @@ public final class ClassHierarchyImpl {
     public static final ClassHierarchyResolver DEFAULT_RESOLVER =
             new ClassLoadingClassHierarchyResolver(ClassLoadingClassHierarchyResolver.SYSTEM_CLASS_PROVIDER);
 
+    /**
+     * Results shared by the <code>ClassHierarchyImpl</code> instances of a class hierarchy resolver option,
+     * so that the stack maps of all the methods built with the option reuse them. Only resolved classes,
+     * complete super chains and identified common ancestors are kept, as a class which cannot be resolved
+     * may become available later. Each map is cleared when it reaches its maximum size.
+     */
+    public static final class SharedCache {
+        private static final int MAX_SIZE = 8192;
+
+        private final ConcurrentHashMap<ClassDesc, ClassHierarchyInfoImpl> infos = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<ClassDesc, SuperChain> chains = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<ClassPair, ClassDesc> ancestors = new ConcurrentHashMap<>();
+
+        private static <K, V> void put(ConcurrentHashMap<K, V> map, K key, V value) {
+            if (map.size() >= MAX_SIZE)
+                map.clear();
+            map.put(key, value);
+        }
+    }
+
     private final ClassHierarchyResolver resolver;
+    private final SharedCache shared;
 
     /**
      * Public constructor of <code>ClassHierarchyImpl</code> accepting instances of <code>ClassHierarchyInfoResolver</code> to resolve individual class streams.
      * @param classHierarchyResolver <code>ClassHierarchyInfoResolver</code> instance
      */
     public ClassHierarchyImpl(ClassHierarchyResolver classHierarchyResolver) {
+        this(classHierarchyResolver, new SharedCache());
+    }
+
+    /**
+     * Constructor of <code>ClassHierarchyImpl</code> reusing the results of other instances for the same resolver.
+     * @param classHierarchyResolver <code>ClassHierarchyInfoResolver</code> instance
+     * @param shared results shared by the instances using <code>classHierarchyResolver</code>
+     */
+    public ClassHierarchyImpl(ClassHierarchyResolver classHierarchyResolver, SharedCache shared) {
         requireNonNull(classHierarchyResolver);
         this.resolver = classHierarchyResolver instanceof CachedClassHierarchyResolver
+                        || classHierarchyResolver instanceof ConcurrentCachedClassHierarchyResolver
                 ? classHierarchyResolver
                 : classHierarchyResolver.cached();
+        this.shared = requireNonNull(shared);
     }
 
     private ClassHierarchyInfoImpl resolve(ClassDesc classDesc) {
-        var res = resolver.getClassInfo(classDesc);
-        if (res != null) return (ClassHierarchyInfoImpl) res;
+        var res = info(classDesc);
+        if (res != null) return res;
         throw new IllegalArgumentException("Could not resolve class " + classDesc.displayName());
     }
 
+    private ClassHierarchyInfoImpl info(ClassDesc classDesc) {
+        var res = shared.infos.get(classDesc);
+        if (res == null) {
+            res = (ClassHierarchyInfoImpl) resolver.getClassInfo(classDesc);
+            if (res != null) SharedCache.put(shared.infos, classDesc, res);
+        }
+        return res;
+    }
+
     /**
      * Method answering question whether given class is an interface,
      * responding without the class stream resolution and parsing is preferred in case the interface status is known from previous activities.
@@ -97,15 +142,60 @@ public final class ClassHierarchyImpl {
         //calculation of common ancestor is a robust (yet fast) way to decide about assignability in incompletely resolved class hierarchy
         //exact order of symbol loops is critical for performance of the above isAssignableFrom method, so standard situations are resolved in linear time
         //this method returns null if common ancestor could not be identified
+        //results are memoized per class pair, failed resolutions are not and throw again on the next request
+        var key = new ClassPair(symbol1, symbol2);
+        var res = shared.ancestors.get(key);
+        if (res == null) {
+            res = computeCommonAncestor(symbol1, symbol2);
+            if (res != null) SharedCache.put(shared.ancestors, key, res);
+        }
+        return res;
+    }
+
+    private ClassDesc computeCommonAncestor(ClassDesc symbol1, ClassDesc symbol2) {
         if (isInterface(symbol1) || isInterface(symbol2)) return CD_Object;
-        for (var s1 = symbol1; s1 != null; s1 = resolve(s1).superClass()) {
-            for (var s2 = symbol2; s2 != null; s2 = resolve(s2).superClass()) {
+        //walks the cached super chains in the same order as resolving super classes one by one would,
+        //so a class which cannot be resolved fails the request at the same point
+        var chain1 = superChain(symbol1);
+        var chain2 = superChain(symbol2);
+        for (var s1 : chain1.classes()) {
+            for (var s2 : chain2.classes()) {
                 if (s1.equals(s2)) return s1;
             }
+            if (!chain2.complete()) resolve(chain2.classes()[chain2.classes().length - 1]);
         }
+        if (!chain1.complete()) resolve(chain1.classes()[chain1.classes().length - 1]);
         return null;
     }
 
+    private record ClassPair(ClassDesc symbol1, ClassDesc symbol2) {
+    }
+
+    // the class itself followed by its super classes, complete if the chain ends at a class without super class,
+    // otherwise the last class could not be resolved
+    private record SuperChain(ClassDesc[] classes, boolean complete) {
+    }
+
+    private SuperChain superChain(ClassDesc symbol) {
+        var chain = shared.chains.get(symbol);
+        if (chain == null) {
+            var classes = new ArrayList<ClassDesc>();
+            boolean complete = true;
+            for (var s = symbol; s != null; ) {
+                classes.add(s);
+                var info = info(s);
+                if (info == null) {
+                    complete = false;
+                    break;
+                }
+                s = info.superClass();
+            }
+            chain = new SuperChain(classes.toArray(new ClassDesc[0]), complete);
+            if (complete) SharedCache.put(shared.chains, symbol, chain);
+        }
+        return chain;
+    }
+
     public boolean isAssignableFrom(ClassDesc thisClass, ClassDesc fromClass) {
         //extra check if fromClass is an interface is necessary to handle situation when thisClass might not been fully resolved and so it is potentially an unidentified interface
         //this special corner-case handling has been added based on better success rate of constructing stack maps with simulated broken resolution of classes and interfaces
@@ -145,6 +235,119 @@ public final class ClassHierarchyImpl {
         }
     }
 
+    /**
+     * Thread-safe caching resolver. Resolved classes are read from a {@link ConcurrentHashMap}
+     * without locking; a class missing in the cache is resolved by a single thread, outside
+     * of any map lock, while other threads asking for the same class wait for its result.
+     * When the cache is bounded, an entry survives one eviction sweep after it is created
+     * and two after it is read, so the entries read since they were created are evicted last.
+     */
+    public static final class ConcurrentCachedClassHierarchyResolver implements ClassHierarchyResolver {
+
+        private static final class Entry {
+            final ClassHierarchyInfo info;
+            // number of eviction sweeps the entry survives without being read again
+            volatile int chances;
+
+            Entry(ClassHierarchyInfo info) {
+                this.info = info;
+                this.chances = 1;
+            }
+
+            ClassHierarchyInfo hit() {
+                if (chances < 2)
+                    chances = 2;
+                return info;
+            }
+        }
+
+        private static final class Pending extends CompletableFuture<Entry> {
+            final Thread owner = Thread.currentThread();
+        }
+
+        private final ClassHierarchyResolver delegate;
+        private final int maximumSize;
+        private final ConcurrentHashMap<ClassDesc, Object> cache = new ConcurrentHashMap<>();
+        private final ReentrantLock evictionLock = new ReentrantLock();
+
+        /**
+         * @param maximumSize the maximum number of cached classes, or {@code 0} if unbounded
+         */
+        public ConcurrentCachedClassHierarchyResolver(ClassHierarchyResolver delegate, int maximumSize) {
+            if (maximumSize < 0)
+                throw new IllegalArgumentException("Negative maximum size: " + maximumSize);
+            this.delegate = requireNonNull(delegate);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        public ClassHierarchyInfo getClassInfo(ClassDesc classDesc) {
+            Object value = cache.get(classDesc);
+            if (value instanceof Entry e)
+                return e.hit();
+            if (value == null) {
+                var pending = new Pending();
+                value = cache.putIfAbsent(classDesc, pending);
+                if (value == null)
+                    return resolve(classDesc, pending);
+                if (value instanceof Entry e)
+                    return e.hit();
+            }
+            var pending = (Pending) value;
+            if (pending.owner == Thread.currentThread()) {
+                // recursive lookup of the class being resolved by this thread
+                return delegate.getClassInfo(classDesc);
+            }
+            try {
+                return pending.join().hit();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException re)
+                    throw re;
+                if (e.getCause() instanceof Error err)
+                    throw err;
+                throw e;
+            }
+        }
+
+        private ClassHierarchyInfo resolve(ClassDesc classDesc, Pending pending) {
+            Entry entry;
+            try {
+                entry = new Entry(delegate.getClassInfo(classDesc));
+            } catch (RuntimeException | Error e) {
+                cache.remove(classDesc, pending);
+                pending.completeExceptionally(e);
+                throw e;
+            }
+            cache.replace(classDesc, pending, entry);
+            pending.complete(entry);
+            if (maximumSize > 0 && cache.size() > maximumSize)
+                evict();
+            return entry.info;
+        }
+
+        private void evict() {
+            if (!evictionLock.tryLock())
+                return;
+            try {
+                // clock sweeps, an entry is evicted once it has run out of chances
+                for (int pass = 0; pass < 3 && cache.size() > maximumSize; pass++) {
+                    var it = cache.values().iterator();
+                    while (it.hasNext() && cache.size() > maximumSize) {
+                        if (it.next() instanceof Entry e) {
+                            if (e.chances > 0) {
+                                e.chances--;
+                            } else {
+                                it.remove();
+                            }
+                        }
+                    }
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
     public static final class ResourceParsingClassHierarchyResolver implements ClassHierarchyResolver {
         public static final Function<ClassDesc, InputStream> SYSTEM_STREAM_PROVIDER = new Function<>() {
             @Override
@@ -159,37 +362,17 @@ public final class ClassHierarchyImpl {
         }
 
         // resolve method looks for the class file using <code>ClassStreamResolver</code> instance and tries to briefly scan it just for minimal information necessary
-        // minimal information includes: identification of the class as interface, obtaining its superclass name and identification of all potential interfaces (to avoid unnecessary future resolutions of them)
-        // empty ClInfo is stored in case of an exception to avoid repeated scanning failures
+        // minimal information includes: identification of the class as interface and obtaining its superclass name
+        // only the class header is read, the constant pool is indexed up to the header and only the superclass name is inflated
         @Override
         public ClassHierarchyResolver.ClassHierarchyInfo getClassInfo(ClassDesc classDesc) {
             var ci = streamProvider.apply(classDesc);
             if (ci == null) return null;
-            try (var in = new DataInputStream(new BufferedInputStream(ci))) {
-                in.skipBytes(8);
-                int cpLength = in.readUnsignedShort();
-                String[] cpStrings = new String[cpLength];
-                int[] cpClasses = new int[cpLength];
-                for (int i = 1; i < cpLength; i++) {
-                    int tag;
-                    switch (tag = in.readUnsignedByte()) {
-                        case TAG_UTF8 -> cpStrings[i] = in.readUTF();
-                        case TAG_CLASS -> cpClasses[i] = in.readUnsignedShort();
-                        case TAG_STRING, TAG_METHODTYPE, TAG_MODULE, TAG_PACKAGE -> in.skipBytes(2);
-                        case TAG_METHODHANDLE -> in.skipBytes(3);
-                        case TAG_INTEGER, TAG_FLOAT, TAG_FIELDREF, TAG_METHODREF, TAG_INTERFACEMETHODREF,
-                                TAG_NAMEANDTYPE, TAG_CONSTANTDYNAMIC, TAG_INVOKEDYNAMIC -> in.skipBytes(4);
-                        case TAG_LONG, TAG_DOUBLE -> {
-                            in.skipBytes(8);
-                            i++;
-                        }
-                        default -> throw new IllegalStateException("Bad tag (" + tag + ") at index (" + i + ")");
-                    }
-                }
-                boolean isInterface = (in.readUnsignedShort() & ACC_INTERFACE) != 0;
-                in.skipBytes(2);
-                int superIndex = in.readUnsignedShort();
-                var superClass = superIndex > 0 ? ClassDescUtils.ofInternalName(cpStrings[cpClasses[superIndex]]) : null;
+            try (ci) {
+                var reader = new ClassReaderImpl(ByteBuffer.wrap(ci.readAllBytes()), ClassFileImpl.DEFAULT_CONTEXT, false);
+                boolean isInterface = (reader.flags() & ACC_INTERFACE) != 0;
+                int superIndex = reader.readU2(reader.thisClassPos() + 2);
+                var superClass = superIndex > 0 ? ClassDescUtils.ofInternalName(reader.readClassEntry(reader.thisClassPos() + 2).asInternalName()) : null;
                 return new ClassHierarchyInfoImpl(superClass, isInterface);
             } catch (IOException ioe) {
                 throw new UncheckedIOException(ioe);
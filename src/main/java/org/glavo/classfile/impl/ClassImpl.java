@@ -24,6 +24,7 @@
  */
 package org.glavo.classfile.impl;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -33,23 +34,30 @@ import java.util.stream.Collectors;
 import org.glavo.classfile.*;
 import org.glavo.classfile.constantpool.ClassEntry;
 import org.glavo.classfile.constantpool.ConstantPool;
-import org.glavo.classfile.jdk.CollectionUtils;
 
 public final class ClassImpl
         extends AbstractElement
         implements ClassModel {
 
     final ClassReader reader;
-    private final int attributesPos;
+    final int attributesPos;
     private final List<MethodModel> methods;
     private final List<FieldModel> fields;
     private List<Attribute<?>> attributes;
     private List<ClassEntry> interfaces;
 
     public ClassImpl(byte[] cfbytes, ClassFileImpl context) {
-        this.reader = new ClassReaderImpl(cfbytes, context);
-        ClassReaderImpl reader = (ClassReaderImpl) this.reader;
-        int p = reader.interfacesPos;
+        this(new ClassReaderImpl(cfbytes, context));
+    }
+
+    public ClassImpl(ByteBuffer cfbytes, ClassFileImpl context) {
+        this(new ClassReaderImpl(cfbytes, context));
+    }
+
+    private ClassImpl(ClassReaderImpl reader) {
+        this.reader = reader;
+        reader.indexConstantPool();
+        int p = reader.interfacesPos();
         int icnt = reader.readU2(p);
         p += 2 + icnt * 2;
         int fcnt = reader.readU2(p);
@@ -113,15 +121,7 @@ public final class ClassImpl
     @Override
     public List<ClassEntry> interfaces() {
         if (interfaces == null) {
-            int pos = reader.thisClassPos() + 4;
-            int cnt = reader.readU2(pos);
-            pos += 2;
-            var arr = new Object[cnt];
-            for (int i = 0; i < cnt; ++i) {
-                arr[i] = reader.readClassEntry(pos);
-                pos += 2;
-            }
-            this.interfaces = CollectionUtils.listFromTrustedArray(arr);
+            this.interfaces = ((ClassReaderImpl) reader).interfaceEntries();
         }
         return interfaces;
     }
@@ -25,6 +25,8 @@
 
 package org.glavo.classfile.impl;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -34,6 +36,7 @@ import java.util.function.Function;
 import org.glavo.classfile.*;
 import org.glavo.classfile.attribute.BootstrapMethodsAttribute;
 import org.glavo.classfile.constantpool.*;
+import org.glavo.classfile.jdk.CollectionUtils;
 
 import static org.glavo.classfile.ClassFile.TAG_CLASS;
 import static org.glavo.classfile.ClassFile.TAG_CONSTANTDYNAMIC;
@@ -57,19 +60,27 @@ public final class ClassReaderImpl
         implements ClassReader {
     static final int CP_ITEM_START = 10;
 
-    private final byte[] buffer;
-    private final int metadataStart;
+    private final ByteBuffer buffer;
+    private final byte[] array; // backing array of a heap buffer, null otherwise
+    private final int arrayOffset;
     private final int classfileLength;
     private final Function<Utf8Entry, AttributeMapper<?>> attributeMapper;
-    private final int flags;
-    private final int thisClassPos;
     private ClassEntry thisClass;
     private Optional<ClassEntry> superclass;
     private final int constantPoolCount;
-    private final int[] cpOffset;
+
+    // The constant pool is indexed lazily, only as far as the highest entry
+    // requested so far; the header following the pool is located by skipping
+    // the rest of the pool without recording the offsets. ClassImpl indexes
+    // the whole pool before the model is published, so the lazy state is only
+    // ever mutated by header-only and visiting readers confined to a thread
+    private int[] cpOffset;
+    private int cpIndexed = 1;
+    private int cpIndexedEnd = CP_ITEM_START;
+    private int metadataStart = -1;
 
     final ClassFileImpl context;
-    final int interfacesPos;
+    final SymbolPool symbolPool;
     final PoolEntry[] cp;
 
     private ClassModel containedClass;
@@ -78,21 +89,68 @@ public final class ClassReaderImpl
 
     ClassReaderImpl(byte[] classfileBytes,
                     ClassFileImpl context) {
-        this.buffer = classfileBytes;
-        this.classfileLength = classfileBytes.length;
+        this(ByteBuffer.wrap(classfileBytes), context);
+    }
+
+    ClassReaderImpl(ByteBuffer classfileBytes,
+                    ClassFileImpl context) {
+        this(classfileBytes, context, true);
+    }
+
+    ClassReaderImpl(ByteBuffer classfileBytes,
+                    ClassFileImpl context,
+                    boolean checkVersion) {
+        this.buffer = classfileBytes.slice().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.hasArray()) {
+            this.array = buffer.array();
+            this.arrayOffset = buffer.arrayOffset();
+        } else {
+            this.array = null;
+            this.arrayOffset = 0;
+        }
+        this.classfileLength = buffer.limit();
         this.context = context;
         this.attributeMapper = this.context.attributeMapperOption().attributeMapper();
+        this.symbolPool = ((ClassFileImpl.InterningOptionImpl) context.interningOption()).symbolPool();
         if (classfileLength < 4 || readInt(0) != 0xCAFEBABE) {
             throw new IllegalArgumentException("Bad magic number");
         }
-        if (readU2(6) > ClassFile.latestMajorVersion()) {
+        if (checkVersion && readU2(6) > ClassFile.latestMajorVersion()) {
             throw new IllegalArgumentException("Unsupported class file version: " + readU2(6));
         }
-        int constantPoolCount = readU2(8);
-        int[] cpOffset = new int[constantPoolCount];
-        int p = CP_ITEM_START;
-        for (int i = 1; i < cpOffset.length; ++i) {
-            cpOffset[i] = p;
+        this.constantPoolCount = readU2(8);
+        this.cp = new PoolEntry[constantPoolCount];
+    }
+
+    /**
+     * Indexes the constant pool entries up to, but excluding, the given index.
+     */
+    private void indexConstantPool(int end) {
+        if (cpOffset == null) {
+            cpOffset = new int[constantPoolCount];
+        }
+        cpIndexedEnd = scanConstantPool(cpIndexed, cpIndexedEnd, end, true);
+    }
+
+    /**
+     * Indexes the whole constant pool, so that it is not mutated by later reads.
+     */
+    void indexConstantPool() {
+        if (cpIndexed < constantPoolCount) {
+            indexConstantPool(constantPoolCount);
+        }
+    }
+
+    /**
+     * Scans the constant pool entries from the given index and position up to,
+     * but excluding, the given end index.
+     * @return the position following the scanned entries
+     */
+    private int scanConstantPool(int i, int p, int end, boolean record) {
+        for (; i < end; ++i) {
+            if (record) {
+                cpOffset[i] = p;
+            }
             int tag = readU1(p);
             ++p;
             switch (tag) {
@@ -117,15 +175,35 @@ public final class ClassReaderImpl
                         "Bad tag (" + tag + ") at index (" + i + ") position (" + p + ")");
             }
         }
-        this.metadataStart = p;
-        this.cpOffset = cpOffset;
-        this.constantPoolCount = constantPoolCount;
-        this.cp = new PoolEntry[constantPoolCount];
+        if (record) {
+            cpIndexed = i;
+        }
+        if (i >= constantPoolCount) {
+            metadataStart = p;
+        }
+        return p;
+    }
+
+    private int cpOffset(int index) {
+        if (index >= cpIndexed) {
+            indexConstantPool(index + 1);
+        }
+        return cpOffset[index];
+    }
+
+    /**
+     * {@return the position of the access flags, following the constant pool}
+     */
+    int metadataStart() {
+        int p = metadataStart;
+        if (p < 0) {
+            p = scanConstantPool(cpIndexed, cpIndexedEnd, constantPoolCount, false);
+        }
+        return p;
+    }
 
-        this.flags = readU2(p);
-        this.thisClassPos = p + 2;
-        p += 6;
-        this.interfacesPos = p;
+    int interfacesPos() {
+        return metadataStart() + 6;
     }
 
     public ClassFileImpl context() {
@@ -144,13 +222,13 @@ public final class ClassReaderImpl
 
     @Override
     public int flags() {
-        return flags;
+        return readU2(metadataStart());
     }
 
     @Override
     public ClassEntry thisClassEntry() {
         if (thisClass == null) {
-            thisClass = readEntry(thisClassPos, ClassEntry.class);
+            thisClass = readEntry(thisClassPos(), ClassEntry.class);
         }
         return thisClass;
     }
@@ -158,15 +236,31 @@ public final class ClassReaderImpl
     @Override
     public Optional<ClassEntry> superclassEntry() {
         if (superclass == null) {
-            int scIndex = readU2(thisClassPos + 2);
+            int scIndex = readU2(thisClassPos() + 2);
             superclass = Optional.ofNullable(scIndex == 0 ? null : (ClassEntry) entryByIndex(scIndex));
         }
         return superclass;
     }
 
+    /**
+     * {@return the interfaces of the class}
+     * Reads the header only, without indexing the members of the class.
+     */
+    List<ClassEntry> interfaceEntries() {
+        int pos = interfacesPos();
+        int cnt = readU2(pos);
+        pos += 2;
+        var arr = new Object[cnt];
+        for (int i = 0; i < cnt; ++i) {
+            arr[i] = readClassEntry(pos);
+            pos += 2;
+        }
+        return CollectionUtils.listFromTrustedArray(arr);
+    }
+
     @Override
     public int thisClassPos() {
-        return thisClassPos;
+        return metadataStart() + 2;
     }
 
     @Override
@@ -196,7 +290,7 @@ public final class ClassReaderImpl
     @Override
     public int readU1(int p) {
         try {
-            return buffer[p] & 0xFF;
+            return buffer.get(p) & 0xFF;
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -205,9 +299,7 @@ public final class ClassReaderImpl
     @Override
     public int readU2(int p) {
         try {
-            int b1 = buffer[p] & 0xFF;
-            int b2 = buffer[p + 1] & 0xFF;
-            return (b1 << 8) + b2;
+            return buffer.getShort(p) & 0xFFFF;
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -216,7 +308,7 @@ public final class ClassReaderImpl
     @Override
     public int readS1(int p) {
         try {
-            return buffer[p];
+            return buffer.get(p);
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -225,9 +317,7 @@ public final class ClassReaderImpl
     @Override
     public int readS2(int p) {
         try {
-            int b1 = buffer[p];
-            int b2 = buffer[p + 1] & 0xFF;
-            return (b1 << 8) + b2;
+            return buffer.getShort(p);
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -236,11 +326,7 @@ public final class ClassReaderImpl
     @Override
     public int readInt(int p) {
         try {
-            int ch1 = buffer[p] & 0xFF;
-            int ch2 = buffer[p + 1] & 0xFF;
-            int ch3 = buffer[p + 2] & 0xFF;
-            int ch4 = buffer[p + 3] & 0xFF;
-            return (ch1 << 24) + (ch2 << 16) + (ch3 << 8) + ch4;
+            return buffer.getInt(p);
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -249,10 +335,7 @@ public final class ClassReaderImpl
     @Override
     public long readLong(int p) {
         try {
-            return ((long) buffer[p + 0] << 56) + ((long) (buffer[p + 1] & 255) << 48) +
-                   ((long) (buffer[p + 2] & 255) << 40) + ((long) (buffer[p + 3] & 255) << 32) +
-                   ((long) (buffer[p + 4] & 255) << 24) + ((buffer[p + 5] & 255) << 16) + ((buffer[p + 6] & 255) << 8) +
-                   (buffer[p + 7] & 255);
+            return buffer.getLong(p);
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -271,7 +354,9 @@ public final class ClassReaderImpl
     @Override
     public byte[] readBytes(int p, int len) {
         try {
-            return Arrays.copyOfRange(buffer, p, p + len);
+            byte[] bytes = new byte[len];
+            buffer.get(p, bytes);
+            return bytes;
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -280,23 +365,70 @@ public final class ClassReaderImpl
     @Override
     public void copyBytesTo(BufWriter buf, int p, int len) {
         try {
-            buf.writeBytes(buffer, p, len);
+            if (array != null) {
+                buf.writeBytes(array, arrayOffset + p, len);
+            } else {
+                ((BufWriterImpl) buf).writeBytes(buffer, p, len);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw outOfBoundsError(e);
+        }
+    }
+
+    ByteBuffer slice(int p, int len) {
+        try {
+            return buffer.slice(p, len);
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
     }
 
+    /**
+     * {@return the payload position of the first attribute with the given name
+     * in the attribute holder at the offset, or -1 if there is none}
+     */
+    int findAttribute(int offset, String name) {
+        int p = offset;
+        int cnt = readU2(p);
+        p += 2;
+        for (int i = 0; i < cnt; ++i) {
+            if (readUtf8Entry(p).equalsString(name))
+                return p + 6;
+            p += 6 + readInt(p + 2);
+        }
+        return -1;
+    }
+
     BootstrapMethodsAttribute bootstrapMethodsAttribute() {
 
         if (bootstrapMethodsAttribute == null) {
             bootstrapMethodsAttribute
-                    = containedClass.findAttribute(Attributes.BOOTSTRAP_METHODS)
-                                    .orElse(new UnboundAttribute.EmptyBootstrapAttribute());
+                    = containedClass != null
+                      ? containedClass.findAttribute(Attributes.BOOTSTRAP_METHODS)
+                                      .orElse(new UnboundAttribute.EmptyBootstrapAttribute())
+                      : readBootstrapMethodsAttribute();
         }
 
         return bootstrapMethodsAttribute;
     }
 
+    // Readers visiting the classfile have no contained class,
+    // so the attribute is located past the members
+    private BootstrapMethodsAttribute readBootstrapMethodsAttribute() {
+        int p = interfacesPos();
+        p += 2 + readU2(p) * 2;
+        for (int members = 0; members < 2; members++) {
+            int cnt = readU2(p);
+            p += 2;
+            for (int i = 0; i < cnt; ++i) {
+                p = skipAttributeHolder(p + 6);
+            }
+        }
+        p = findAttribute(p, Attributes.BOOTSTRAP_METHODS.name());
+        return p < 0 ? new UnboundAttribute.EmptyBootstrapAttribute()
+                     : Attributes.BOOTSTRAP_METHODS.readAttribute(null, this, p);
+    }
+
     List<BootstrapMethodEntryImpl> bsmEntries() {
         if (bsmEntries == null) {
             bsmEntries = new ArrayList<>();
@@ -333,7 +465,7 @@ public final class ClassReaderImpl
 
     void writeConstantPoolEntries(BufWriter buf) {
         copyBytesTo(buf, ClassReaderImpl.CP_ITEM_START,
-                    metadataStart - ClassReaderImpl.CP_ITEM_START);
+                    metadataStart() - ClassReaderImpl.CP_ITEM_START);
     }
 
     // Constantpool
@@ -344,14 +476,14 @@ public final class ClassReaderImpl
         }
         PoolEntry info = cp[index];
         if (info == null) {
-            int offset = cpOffset[index];
+            int offset = cpOffset(index);
             if (offset == 0) {
                 throw new ConstantPoolException("Unusable CP index: " + index);
             }
             int tag = readU1(offset);
             final int q = offset + 1;
             info = switch (tag) {
-                case TAG_UTF8 -> new AbstractPoolEntry.Utf8EntryImpl(this, index, buffer, q + 2, readU2(q));
+                case TAG_UTF8 -> newUtf8Entry(index, q);
                 case TAG_INTEGER -> new AbstractPoolEntry.IntegerEntryImpl(this, index, readInt(q));
                 case TAG_FLOAT -> new AbstractPoolEntry.FloatEntryImpl(this, index, readFloat(q));
                 case TAG_LONG -> new AbstractPoolEntry.LongEntryImpl(this, index, readLong(q));
@@ -388,18 +520,29 @@ public final class ClassReaderImpl
         }
         PoolEntry info = cp[index];
         if (info == null) {
-            int offset = cpOffset[index];
+            int offset = cpOffset(index);
             int tag = readU1(offset);
             final int q = offset + 1;
             if (tag != TAG_UTF8) throw new ConstantPoolException("Not a UTF8 - index: " + index);
-            AbstractPoolEntry.Utf8EntryImpl uinfo
-                    = new AbstractPoolEntry.Utf8EntryImpl(this, index, buffer, q + 2, readU2(q));
+            AbstractPoolEntry.Utf8EntryImpl uinfo = newUtf8Entry(index, q);
             cp[index] = uinfo;
             return uinfo;
         }
         return (AbstractPoolEntry.Utf8EntryImpl) info;
     }
 
+    private AbstractPoolEntry.Utf8EntryImpl newUtf8Entry(int index, int p) {
+        int len = readU2(p);
+        if (array != null) {
+            if (len > classfileLength - p - 2) {
+                throw outOfBoundsError(new IndexOutOfBoundsException(p + 2 + len));
+            }
+            return new AbstractPoolEntry.Utf8EntryImpl(this, index, array, arrayOffset + p + 2, len);
+        }
+        // copy only the entry out of a direct buffer
+        return new AbstractPoolEntry.Utf8EntryImpl(this, index, readBytes(p + 2, len), 0, len);
+    }
+
     @Override
     public int skipAttributeHolder(int offset) {
         int p = offset;
@@ -483,9 +626,32 @@ public final class ClassReaderImpl
                            int classReaderOffset,
                            int length) {
         try {
-            return Arrays.equals(((BufWriterImpl) bufWriter).elems,
-                                 bufWriterOffset, bufWriterOffset + length,
-                                 buffer, classReaderOffset, classReaderOffset + length);
+            byte[] elems = ((BufWriterImpl) bufWriter).elems;
+            if (array != null) {
+                if (length > classfileLength - classReaderOffset) {
+                    throw new IndexOutOfBoundsException(classReaderOffset + length);
+                }
+                return Arrays.equals(elems, bufWriterOffset, bufWriterOffset + length,
+                                     array, arrayOffset + classReaderOffset, arrayOffset + classReaderOffset + length);
+            }
+            return buffer.slice(classReaderOffset, length)
+                         .equals(ByteBuffer.wrap(elems, bufWriterOffset, length));
+        } catch (IndexOutOfBoundsException e) {
+            throw outOfBoundsError(e);
+        }
+    }
+
+    public boolean compare(ByteBuffer buf,
+                           int bufOffset,
+                           int classReaderOffset,
+                           int length) {
+        try {
+            if (length > classfileLength - classReaderOffset) {
+                throw new IndexOutOfBoundsException(classReaderOffset + length);
+            }
+            var content = array != null ? ByteBuffer.wrap(array, arrayOffset + classReaderOffset, length)
+                                        : buffer.slice(classReaderOffset, length);
+            return content.equals(buf.slice(bufOffset, length));
         } catch (IndexOutOfBoundsException e) {
             throw outOfBoundsError(e);
         }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.AccessFlags;
+import org.glavo.classfile.ClassSummary;
+import org.glavo.classfile.jdk.CollectionUtils;
+
+public record ClassSummaryImpl(int majorVersion,
+                               int minorVersion,
+                               int flagsMask,
+                               String thisClass,
+                               String superclassName,
+                               List<String> interfaces,
+                               int fieldCount,
+                               int methodCount,
+                               List<MemberSummary> fields,
+                               List<MemberSummary> methods) implements ClassSummary {
+
+    public record MemberSummaryImpl(AccessFlags flags, String name, String descriptor) implements MemberSummary {
+    }
+
+    /**
+     * Reads the summary of a classfile without building the class model.
+     * The version of the classfile is not checked, the header layout being
+     * the same in every version.
+     */
+    public static ClassSummaryImpl read(ByteBuffer bytes, ClassFileImpl context, boolean withMembers) {
+        var reader = new ClassReaderImpl(bytes, context, false);
+        int p = reader.thisClassPos();
+        String thisClass = reader.readClassEntry(p).asInternalName();
+        String superclassName = reader.readU2(p + 2) == 0 ? null : reader.readClassEntry(p + 2).asInternalName();
+        p += 4;
+        int icnt = reader.readU2(p);
+        p += 2;
+        var interfaces = new Object[icnt];
+        for (int i = 0; i < icnt; i++) {
+            interfaces[i] = reader.readClassEntry(p).asInternalName();
+            p += 2;
+        }
+        int fcnt = reader.readU2(p);
+        p += 2;
+        Object[] fields = withMembers ? new Object[fcnt] : null;
+        for (int i = 0; i < fcnt; i++) {
+            if (fields != null) {
+                fields[i] = readMember(reader, p, true);
+            }
+            p = reader.skipAttributeHolder(p + 6);
+        }
+        int mcnt = reader.readU2(p);
+        p += 2;
+        Object[] methods = withMembers ? new Object[mcnt] : null;
+        if (methods != null) {
+            for (int i = 0; i < mcnt; i++) {
+                methods[i] = readMember(reader, p, false);
+                p = reader.skipAttributeHolder(p + 6);
+            }
+        }
+        return new ClassSummaryImpl(reader.readU2(6), reader.readU2(4), reader.flags(),
+                                    thisClass, superclassName,
+                                    CollectionUtils.listFromTrustedArray(interfaces),
+                                    fcnt, mcnt,
+                                    fields == null ? List.of() : CollectionUtils.listFromTrustedArray(fields),
+                                    methods == null ? List.of() : CollectionUtils.listFromTrustedArray(methods));
+    }
+
+    private static MemberSummaryImpl readMember(ClassReaderImpl reader, int p, boolean field) {
+        int flags = reader.readU2(p);
+        return new MemberSummaryImpl(field ? AccessFlags.ofField(flags) : AccessFlags.ofMethod(flags),
+                                     reader.readUtf8Entry(p + 2).stringValue(),
+                                     reader.readUtf8Entry(p + 4).stringValue());
+    }
+
+    @Override
+    public AccessFlags flags() {
+        return AccessFlags.ofClass(flagsMask);
+    }
+
+    @Override
+    public Optional<String> superclass() {
+        return Optional.ofNullable(superclassName);
+    }
+}
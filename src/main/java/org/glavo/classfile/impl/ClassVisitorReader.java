@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.nio.ByteBuffer;
+
+import org.glavo.classfile.AccessFlags;
+import org.glavo.classfile.AttributedElement;
+import org.glavo.classfile.ClassVisitor;
+import org.glavo.classfile.ClassVisitor.VisitResult;
+
+public final class ClassVisitorReader {
+
+    private final ClassReaderImpl reader;
+    private final ClassVisitor visitor;
+    private boolean stopped;
+
+    private ClassVisitorReader(ClassReaderImpl reader, ClassVisitor visitor) {
+        this.reader = reader;
+        this.visitor = visitor;
+    }
+
+    /**
+     * Reads the classfile, calling back the visitor for each element
+     * without building the class model.
+     */
+    public static void read(ByteBuffer bytes, ClassFileImpl context, ClassVisitor visitor) {
+        new ClassVisitorReader(new ClassReaderImpl(bytes, context), visitor).readClass();
+    }
+
+    // returns whether to visit the elements nested in the visited element
+    private boolean enter(VisitResult result) {
+        if (result == VisitResult.STOP)
+            stopped = true;
+        return result == VisitResult.CONTINUE;
+    }
+
+    private void readClass() {
+        if (!enter(visitor.visitClass(reader.readU2(6), reader.readU2(4),
+                                      AccessFlags.ofClass(reader.flags()),
+                                      reader.thisClassEntry(), reader.superclassEntry(),
+                                      reader.interfaceEntries())))
+            return;
+        int p = reader.interfacesPos();
+        p += 2 + reader.readU2(p) * 2;
+        int fcnt = reader.readU2(p);
+        p += 2;
+        for (int i = 0; i < fcnt; ++i) {
+            int startPos = p;
+            int attrStart = p + 6;
+            p = reader.skipAttributeHolder(attrStart);
+            var field = new FieldImpl(reader, startPos, p, attrStart);
+            if (enter(visitor.visitField(field)))
+                readAttributes(field, attrStart);
+            if (stopped)
+                return;
+        }
+        int mcnt = reader.readU2(p);
+        p += 2;
+        for (int i = 0; i < mcnt; ++i) {
+            int startPos = p;
+            int attrStart = p + 6;
+            p = reader.skipAttributeHolder(attrStart);
+            var method = new MethodImpl(reader, startPos, p, attrStart);
+            if (enter(visitor.visitMethod(method)))
+                readAttributes(method, attrStart);
+            if (stopped)
+                return;
+        }
+        readAttributes(null, p);
+    }
+
+    private void readAttributes(AttributedElement enclosing, int pos) {
+        int cnt = reader.readU2(pos);
+        int p = pos + 2;
+        for (int i = 0; i < cnt && !stopped; ++i) {
+            var attr = BoundAttribute.readAttribute(enclosing, reader, p, reader.customAttributes());
+            if (enter(visitor.visitAttribute(attr)) && attr instanceof CodeImpl code)
+                readCode(code);
+            p += 6 + reader.readInt(p + 2);
+        }
+    }
+
+    private void readCode(CodeImpl code) {
+        var cursor = code.cursor();
+        while (cursor.next()) {
+            var result = visitor.visitInstruction(cursor);
+            if (result == VisitResult.STOP) {
+                stopped = true;
+                return;
+            }
+            if (result == VisitResult.SKIP)
+                break;
+        }
+        readAttributes(code, code.attributePos);
+    }
+}
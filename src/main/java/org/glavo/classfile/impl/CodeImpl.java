@@ -24,6 +24,7 @@
  */
 package org.glavo.classfile.impl;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -72,6 +73,8 @@ public final class CodeImpl
     LabelImpl[] labels;
     int[] lineNumbers;
     boolean inflated;
+    // the model may be shared by threads, the summary is immutable
+    volatile OpcodeSummaryImpl opcodeSummary;
 
     public CodeImpl(AttributedElement enclosing,
                     ClassReader reader,
@@ -136,6 +139,20 @@ public final class CodeImpl
         return attributes;
     }
 
+    @Override
+    public InstructionCursor cursor() {
+        return new InstructionCursorImpl((ClassReaderImpl)classReader, codeStart, codeLength);
+    }
+
+    @Override
+    public OpcodeSummaryImpl opcodeSummary() {
+        var summary = opcodeSummary;
+        if (summary == null) {
+            opcodeSummary = summary = OpcodeSummaryImpl.of(((ClassReaderImpl)classReader).slice(codeStart, codeLength));
+        }
+        return summary;
+    }
+
     @Override
     public void writeTo(BufWriter buf) {
         if (buf.canWriteDirect(classReader)) {
@@ -210,6 +227,11 @@ public final class CodeImpl
                && classReader.compare(buf, offset, codeStart, codeLength);
     }
 
+    public boolean compareCodeBytes(ByteBuffer buf, int offset, int bci, int len) {
+        return bci + len <= codeLength
+               && ((ClassReaderImpl)classReader).compare(buf, offset, codeStart + bci, len);
+    }
+
     private int adjustForObjectOrUninitialized(int bci) {
         int vt = classReader.readU1(bci);
         //inflate newTarget labels from Uninitialized VTIs
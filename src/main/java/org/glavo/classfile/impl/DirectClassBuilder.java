@@ -36,6 +36,7 @@ import org.glavo.classfile.ClassBuilder;
 import org.glavo.classfile.ClassElement;
 import org.glavo.classfile.ClassModel;
 import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassReader;
 import org.glavo.classfile.CustomAttribute;
 import org.glavo.classfile.constantpool.ClassEntry;
 import org.glavo.classfile.FieldBuilder;
@@ -45,6 +46,7 @@ import org.glavo.classfile.MethodBuilder;
 import org.glavo.classfile.MethodModel;
 import org.glavo.classfile.MethodTransform;
 import org.glavo.classfile.WritableElement;
+import org.glavo.classfile.attribute.BootstrapMethodsAttribute;
 import org.glavo.classfile.constantpool.Utf8Entry;
 
 public final class DirectClassBuilder
@@ -154,6 +156,11 @@ public final class DirectClassBuilder
 
     public byte[] build() {
 
+        // Unchanged class is not rebuilt, the original bytes are returned instead
+        if (original instanceof ClassImpl cm && isUnchanged(cm)) {
+            return cm.reader.readBytes(0, cm.classfileLength());
+        }
+
         // The logic of this is very carefully ordered.  We want to avoid
         // repeated buffer copyings, so we accumulate lists of writers which
         // all get written later into the same buffer.  But, writing can often
@@ -177,8 +184,8 @@ public final class DirectClassBuilder
 
         // The tail consists of fields and methods, and attributes
         // This should trigger all the CP/BSM mutation
-        tail.writeList(fields);
-        tail.writeList(methods);
+        writeMembers(tail, fields);
+        writeMembers(tail, methods);
         int attributesOffset = tail.size();
         attributes.writeTo(tail);
 
@@ -205,4 +212,95 @@ public final class DirectClassBuilder
         tail.copyTo(result, head.size());
         return result;
     }
+
+    /**
+     * Checks whether all the elements of the original class passed through untouched,
+     * so the class would be rebuilt into the identical bytes
+     */
+    private boolean isUnchanged(ClassImpl cm) {
+        var reader = (ClassReaderImpl) cm.reader;
+        if (!constantPool.canWriteDirect(reader)
+                || constantPool.size() != reader.size()
+                || constantPool.bootstrapMethodCount() != reader.bootstrapMethodCount()
+                || reader.skipAttributeHolder(cm.attributesPos) != reader.classfileLength()
+                || flags != reader.flags()
+                || majorVersion != cm.majorVersion()
+                || minorVersion != cm.minorVersion()
+                || thisClassEntry != cm.thisClass()
+                || superclassEntry != cm.superclass().orElse(null)
+                || superclassEntry == null && (flags & ClassFile.ACC_MODULE) == 0
+                                           && !"java/lang/Object".equals(thisClassEntry.asInternalName())
+                || !sameElements(interfaceEntries, cm.interfaces())
+                || !sameElements(fields, cm.fields())
+                || !sameElements(methods, cm.methods())) {
+            return false;
+        }
+        //bootstrap methods are always written as the last attribute
+        var originalAttributes = cm.attributes();
+        int count = originalAttributes.size();
+        if (count > 0 && originalAttributes.get(count - 1) instanceof BootstrapMethodsAttribute) {
+            count--;
+        }
+        if (attributes.size() != count) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            if (attributes.get(i) != originalAttributes.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameElements(List<?> elements, List<?> originalElements) {
+        if (elements.size() != originalElements.size()) {
+            return false;
+        }
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i) != originalElements.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeMembers(BufWriterImpl buf, List<? extends WritableElement<?>> members) {
+        buf.writeU2(members.size());
+        //runs of adjacent members of the same class are copied at once
+        ClassReader runReader = null;
+        int runStart = 0, runEnd = 0;
+        for (var m : members) {
+            ClassReader reader;
+            int start, end;
+            if (m instanceof FieldImpl f && buf.canWriteDirect(f.reader)) {
+                reader = f.reader;
+                start = f.startPos;
+                end = f.endPos;
+            } else if (m instanceof MethodImpl mi && buf.canWriteDirect(mi.reader)) {
+                reader = mi.reader;
+                start = mi.startPos;
+                end = mi.endPos;
+            } else {
+                if (runReader != null) {
+                    runReader.copyBytesTo(buf, runStart, runEnd - runStart);
+                    runReader = null;
+                }
+                m.writeTo(buf);
+                continue;
+            }
+            if (reader == runReader && start == runEnd) {
+                runEnd = end;
+            } else {
+                if (runReader != null) {
+                    runReader.copyBytesTo(buf, runStart, runEnd - runStart);
+                }
+                runReader = reader;
+                runStart = start;
+                runEnd = end;
+            }
+        }
+        if (runReader != null) {
+            runReader.copyBytesTo(buf, runStart, runEnd - runStart);
+        }
+    }
 }
@@ -25,6 +25,7 @@
 package org.glavo.classfile.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -91,6 +92,12 @@ public final class DirectCodeBuilder
 
     List<DeferredLabel> deferredLabels;
 
+    //control flow recorded while writing the instructions, so the stack maps generation does not detect it from the bytecode
+    final boolean recordControlFlow;
+    int[] jumpSources, flowBreaks;
+    Label[] jumpTargets;
+    int jumpsCount, flowBreaksCount;
+
     /* Locals management
        lazily computed maxLocal = -1
        first time: derive count from methodType descriptor (for new methods) & ACC_STATIC,
@@ -129,6 +136,7 @@ public final class DirectCodeBuilder
         this.methodInfo = methodInfo;
         this.transformFwdJumps = transformFwdJumps;
         this.transformBackJumps = context.shortJumpsOption() == ClassFile.ShortJumpsOption.FIX_SHORT_JUMPS;
+        this.recordControlFlow = context.stackMapsOption() != ClassFile.StackMapsOption.DROP_STACK_MAPS;
         bytecodesBufWriter = (original instanceof CodeImpl cai) ? new BufWriterImpl(constantPool, context, cai.codeLength())
                                                                : new BufWriterImpl(constantPool, context);
         this.startLabel = new LabelImpl(this, 0);
@@ -142,6 +150,13 @@ public final class DirectCodeBuilder
     public CodeBuilder with(CodeElement element) {
         if (element instanceof AbstractElement ae) {
             ae.writeTo(this);
+            if (recordControlFlow && element instanceof Instruction i) {
+                switch (i.opcode()) {
+                    case GOTO, GOTO_W, TABLESWITCH, LOOKUPSWITCH, IRETURN, LRETURN, FRETURN, DRETURN, ARETURN, RETURN, ATHROW ->
+                        addFlowBreak(curPc());
+                    default -> {}
+                }
+            }
         } else {
             writeAttribute((CustomAttribute)element);
         }
@@ -324,10 +339,13 @@ public final class DirectCodeBuilder
                 }
             }
 
-            private void generateStackMaps(BufWriterImpl buf) throws IllegalArgumentException {
+            private void generateStackMaps(BufWriterImpl buf, boolean reuseFrames) throws IllegalArgumentException {
                 //new instance of generator immediately calculates maxStack, maxLocals, all frames,
                 // patches dead bytecode blocks and removes them from exception table
-                StackMapGenerator gen = StackMapGenerator.of(DirectCodeBuilder.this, buf);
+                //frames of the unchanged code blocks are reused from the original stack map when required only
+                StackMapGenerator gen = reuseFrames && original instanceof CodeImpl cai && canWriteDirect(cai.constantPool())
+                        ? StackMapGenerator.of(DirectCodeBuilder.this, buf, cai)
+                        : StackMapGenerator.of(DirectCodeBuilder.this, buf);
                 attributes.withAttribute(gen.stackMapTableAttribute());
                 buf.writeU2(gen.maxStack());
                 buf.writeU2(gen.maxLocals());
@@ -336,7 +354,7 @@ public final class DirectCodeBuilder
             private void tryGenerateStackMaps(boolean codeMatch, BufWriterImpl buf) {
                 if (buf.getMajorVersion() >= ClassFile.JAVA_6_VERSION) {
                     try {
-                        generateStackMaps(buf);
+                        generateStackMaps(buf, true);
                     } catch (IllegalArgumentException e) {
                         //failover following JVMS-4.10
                         if (buf.getMajorVersion() == ClassFile.JAVA_6_VERSION) {
@@ -371,7 +389,7 @@ public final class DirectCodeBuilder
                             writeCounters(true, buf);
                         }
                         case GENERATE_STACK_MAPS ->
-                            generateStackMaps(buf);
+                            generateStackMaps(buf, false);
                         case DROP_STACK_MAPS ->
                             writeCounters(true, buf);
                     }
@@ -380,7 +398,7 @@ public final class DirectCodeBuilder
                         case STACK_MAPS_WHEN_REQUIRED ->
                             tryGenerateStackMaps(false, buf);
                         case GENERATE_STACK_MAPS ->
-                            generateStackMaps(buf);
+                            generateStackMaps(buf, false);
                         case DROP_STACK_MAPS ->
                             writeCounters(false, buf);
                     }
@@ -476,6 +494,30 @@ public final class DirectCodeBuilder
         }
     }
 
+    private void writeJumpOffset(int nBytes, int instructionPc, Label target) {
+        if (recordControlFlow) {
+            if (jumpSources == null) {
+                jumpSources = new int[16];
+                jumpTargets = new Label[16];
+            } else if (jumpsCount == jumpSources.length) {
+                jumpSources = Arrays.copyOf(jumpSources, jumpsCount * 2);
+                jumpTargets = Arrays.copyOf(jumpTargets, jumpsCount * 2);
+            }
+            jumpSources[jumpsCount] = instructionPc;
+            jumpTargets[jumpsCount++] = target;
+        }
+        writeLabelOffset(nBytes, instructionPc, target);
+    }
+
+    private void addFlowBreak(int pc) {
+        if (flowBreaks == null) {
+            flowBreaks = new int[16];
+        } else if (flowBreaksCount == flowBreaks.length) {
+            flowBreaks = Arrays.copyOf(flowBreaks, flowBreaksCount * 2);
+        }
+        flowBreaks[flowBreaksCount++] = pc;
+    }
+
     private void processDeferredLabels() {
         if (deferredLabels != null) {
             for (DeferredLabel dl : deferredLabels) {
@@ -528,21 +570,26 @@ public final class DirectCodeBuilder
                                          && targetBci - instructionPc < Short.MIN_VALUE))) {
             if (op == GOTO) {
                 writeBytecode(GOTO_W);
-                writeLabelOffset(4, instructionPc, target);
+                writeJumpOffset(4, instructionPc, target);
             } else if (op == JSR) {
                 writeBytecode(JSR_W);
                 writeLabelOffset(4, instructionPc, target);
             } else {
                 writeBytecode(BytecodeHelpers.reverseBranchOpcode(op));
                 Label bypassJump = newLabel();
-                writeLabelOffset(2, instructionPc, bypassJump);
+                writeJumpOffset(2, instructionPc, bypassJump);
                 writeBytecode(GOTO_W);
-                writeLabelOffset(4, instructionPc + 3, target);
+                writeJumpOffset(4, instructionPc + 3, target);
+                if (recordControlFlow) addFlowBreak(curPc());
                 labelBinding(bypassJump);
             }
         } else {
             writeBytecode(op);
-            writeLabelOffset(op.sizeIfFixed() == 3 ? 2 : 4, instructionPc, target);
+            if (op == JSR || op == JSR_W) {
+                writeLabelOffset(op.sizeIfFixed() == 3 ? 2 : 4, instructionPc, target);
+            } else {
+                writeJumpOffset(op.sizeIfFixed() == 3 ? 2 : 4, instructionPc, target);
+            }
         }
     }
 
@@ -552,7 +599,7 @@ public final class DirectCodeBuilder
         int pad = 4 - (curPc() % 4);
         if (pad != 4)
             bytecodesBufWriter.writeIntBytes(pad, 0);
-        writeLabelOffset(4, instructionPc, defaultTarget);
+        writeJumpOffset(4, instructionPc, defaultTarget);
         bytecodesBufWriter.writeInt(cases.size());
         cases = new ArrayList<>(cases);
         cases.sort(new Comparator<SwitchCase>() {
@@ -563,7 +610,7 @@ public final class DirectCodeBuilder
         });
         for (var c : cases) {
             bytecodesBufWriter.writeInt(c.caseValue());
-            writeLabelOffset(4, instructionPc, c.target());
+            writeJumpOffset(4, instructionPc, c.target());
         }
     }
 
@@ -573,7 +620,7 @@ public final class DirectCodeBuilder
         int pad = 4 - (curPc() % 4);
         if (pad != 4)
             bytecodesBufWriter.writeIntBytes(pad, 0);
-        writeLabelOffset(4, instructionPc, defaultTarget);
+        writeJumpOffset(4, instructionPc, defaultTarget);
         bytecodesBufWriter.writeInt(low);
         bytecodesBufWriter.writeInt(high);
         var caseMap = new HashMap<Integer, Label>(cases.size());
@@ -581,7 +628,7 @@ public final class DirectCodeBuilder
             caseMap.put(c.caseValue(), c.target());
         }
         for (long l = low; l<=high; l++) {
-            writeLabelOffset(4, instructionPc, caseMap.getOrDefault((int)l, defaultTarget));
+            writeJumpOffset(4, instructionPc, caseMap.getOrDefault((int)l, defaultTarget));
         }
     }
 
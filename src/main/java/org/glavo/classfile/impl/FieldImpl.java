@@ -24,6 +24,7 @@
  */
 package org.glavo.classfile.impl;
 
+import java.lang.constant.ClassDesc;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -35,8 +36,8 @@ public final class FieldImpl
         extends AbstractElement
         implements FieldModel {
 
-    private final ClassReader reader;
-    private final int startPos, endPos, attributesPos;
+    final ClassReader reader;
+    final int startPos, endPos, attributesPos;
     private List<Attribute<?>> attributes;
 
     public FieldImpl(ClassReader reader, int startPos, int endPos, int attributesPos) {
@@ -54,7 +55,7 @@ public final class FieldImpl
     @Override
     public Optional<ClassModel> parent() {
         if (reader instanceof ClassReaderImpl cri)
-            return Optional.of(cri.getContainedClass());
+            return Optional.ofNullable(cri.getContainedClass());
         else
             return Optional.empty();
     }
@@ -66,7 +67,12 @@ public final class FieldImpl
 
     @Override
     public Utf8Entry fieldType() {
-        return reader.readUtf8Entry(startPos + 4);
+        return ((AbstractPoolEntry.Utf8EntryImpl) reader.readUtf8Entry(startPos + 4)).markSymbolic();
+    }
+
+    @Override
+    public ClassDesc fieldTypeSymbol() {
+        return Util.fieldTypeSymbol(fieldType());
     }
 
     @Override
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.lang.constant.ConstantDesc;
+
+import org.glavo.classfile.ClassReader;
+import org.glavo.classfile.InstructionCursor;
+import org.glavo.classfile.Opcode;
+import org.glavo.classfile.constantpool.LoadableConstantEntry;
+
+import static org.glavo.classfile.ClassFile.*;
+
+public final class InstructionCursorImpl implements InstructionCursor {
+
+    // indexed as the opcodes of OpcodeSummaryImpl
+    private static final Opcode[] OPCODES = new Opcode[512];
+
+    static {
+        for (Opcode op : Opcode.values()) {
+            OPCODES[OpcodeSummaryImpl.opcodeIndex(op)] = op;
+        }
+    }
+
+    private final ClassReader reader;
+    private final RawBytecodeHelper bcs;
+    private Opcode opcode;
+
+    InstructionCursorImpl(ClassReaderImpl reader, int codeStart, int codeLength) {
+        this.reader = reader;
+        this.bcs = new RawBytecodeHelper(reader.slice(codeStart, codeLength));
+    }
+
+    @Override
+    public boolean next() {
+        if (bcs.isLastBytecode()) {
+            opcode = null;
+            return false;
+        }
+        int bc = bcs.rawNext();
+        Opcode op = bc == RawBytecodeHelper.ILLEGAL ? null : OPCODES[OpcodeSummaryImpl.opcodeIndex(bc, bcs.isWide)];
+        if (op == null)
+            throw new IllegalArgumentException(String.format("Bad bytecode at bci: %d", bcs.bci));
+        opcode = op;
+        return true;
+    }
+
+    private Opcode current() {
+        if (opcode == null)
+            throw new IllegalStateException("No current instruction");
+        return opcode;
+    }
+
+    @Override
+    public Opcode opcode() {
+        return current();
+    }
+
+    @Override
+    public int bci() {
+        current();
+        return bcs.bci;
+    }
+
+    @Override
+    public int sizeInBytes() {
+        current();
+        return bcs.nextBci - bcs.bci;
+    }
+
+    @Override
+    public int cpIndex() {
+        return switch (current().bytecode()) {
+            case LDC -> bcs.getIndexU1();
+            case LDC_W, LDC2_W, GETSTATIC, PUTSTATIC, GETFIELD, PUTFIELD,
+                 INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, INVOKEINTERFACE, INVOKEDYNAMIC,
+                 NEW, ANEWARRAY, CHECKCAST, INSTANCEOF, MULTIANEWARRAY -> bcs.getIndexU2();
+            default -> -1;
+        };
+    }
+
+    @Override
+    public int localSlot() {
+        Opcode op = current();
+        return switch (op.kind()) {
+            case LOAD, STORE, INCREMENT, DISCONTINUED_RET ->
+                    op.sizeIfFixed() == 1 ? op.slot() : bcs.getIndex();
+            default -> -1;
+        };
+    }
+
+    @Override
+    public int branchTarget() {
+        Opcode op = current();
+        return switch (op.kind()) {
+            case BRANCH, DISCONTINUED_JSR -> op == Opcode.GOTO_W || op == Opcode.JSR_W ? bcs.destW() : bcs.dest();
+            default -> -1;
+        };
+    }
+
+    @Override
+    public ConstantDesc constantValue() {
+        Opcode op = current();
+        return switch (op) {
+            case BIPUSH -> (int) (byte) bcs.getIndexU1();
+            case SIPUSH -> bcs.getShort(bcs.bci + 1);
+            case LDC, LDC_W, LDC2_W -> ((LoadableConstantEntry) reader.entryByIndex(cpIndex())).constantValue();
+            default -> op.kind() == Opcode.Kind.CONSTANT ? op.constantValue() : null;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return opcode == null
+               ? "InstructionCursor[]"
+               : String.format("InstructionCursor[bci=%d, opcode=%s]", bcs.bci, opcode);
+    }
+}
@@ -36,8 +36,8 @@ public final class MethodImpl
         extends AbstractElement
         implements MethodModel, MethodInfo {
 
-    private final ClassReader reader;
-    private final int startPos, endPos, attributesPos;
+    final ClassReader reader;
+    final int startPos, endPos, attributesPos;
     private List<Attribute<?>> attributes;
     private int[] parameterSlots;
     private MethodTypeDesc mDesc;
@@ -57,7 +57,7 @@ public final class MethodImpl
     @Override
     public Optional<ClassModel> parent() {
         if (reader instanceof ClassReaderImpl cri)
-            return Optional.of(cri.getContainedClass());
+            return Optional.ofNullable(cri.getContainedClass());
         else
             return Optional.empty();
     }
@@ -69,13 +69,13 @@ public final class MethodImpl
 
     @Override
     public Utf8Entry methodType() {
-        return reader.readUtf8Entry(startPos + 4);
+        return ((AbstractPoolEntry.Utf8EntryImpl) reader.readUtf8Entry(startPos + 4)).markSymbolic();
     }
 
     @Override
     public MethodTypeDesc methodTypeSymbol() {
         if (mDesc == null) {
-            mDesc = MethodTypeDesc.ofDescriptor(methodType().stringValue());
+            mDesc = Util.methodTypeSymbol(methodType());
         }
         return mDesc;
     }
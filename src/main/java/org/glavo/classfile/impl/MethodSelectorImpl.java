@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.glavo.classfile.Attribute;
+import org.glavo.classfile.CodeModel;
+import org.glavo.classfile.Instruction;
+import org.glavo.classfile.MethodModel;
+import org.glavo.classfile.MethodSelector;
+import org.glavo.classfile.Opcode;
+
+public sealed interface MethodSelectorImpl extends MethodSelector {
+
+    record NamedMethod(String name, String descriptor) implements MethodSelectorImpl {
+        @Override
+        public boolean test(MethodModel mm) {
+            return mm.methodName().equalsString(name)
+                   && (descriptor == null || mm.methodType().equalsString(descriptor));
+        }
+    }
+
+    record WithAttribute(String name) implements MethodSelectorImpl {
+        @Override
+        public boolean test(MethodModel mm) {
+            if (mm instanceof MethodImpl mi && mi.reader instanceof ClassReaderImpl reader) {
+                return reader.findAttribute(mi.attributesPos, name) >= 0;
+            }
+            for (Attribute<?> a : mm.attributes()) {
+                if (a.attributeName().equals(name))
+                    return true;
+            }
+            return false;
+        }
+    }
+
+    final class WithOpcodes implements MethodSelectorImpl {
+        private final long[] opcodes;
+
+        public WithOpcodes(Collection<Opcode> opcodes) {
+            this.opcodes = OpcodeSummaryImpl.opcodeSet(opcodes);
+        }
+
+        @Override
+        public boolean test(MethodModel mm) {
+            if (mm instanceof MethodImpl mi && mi.reader instanceof ClassReaderImpl reader) {
+                int p = reader.findAttribute(mi.attributesPos, "Code");
+                if (p < 0)
+                    return false;
+                var bcs = new RawBytecodeHelper(reader.slice(p + 8, reader.readInt(p + 4)));
+                // the whole code is scanned, so malformed code is rejected as by the opcode summary
+                boolean found = false;
+                while (!bcs.isLastBytecode()) {
+                    int bc = bcs.rawNext();
+                    if (bc == RawBytecodeHelper.ILLEGAL)
+                        throw new IllegalArgumentException("Bad bytecode at bci: " + bcs.bci);
+                    found = found || OpcodeSummaryImpl.contains(opcodes, OpcodeSummaryImpl.opcodeIndex(bc, bcs.isWide));
+                }
+                return found;
+            }
+            Optional<CodeModel> code = mm.code();
+            if (code.isEmpty())
+                return false;
+            if (code.get() instanceof CodeImpl ci)
+                return ci.opcodeSummary().containsAny(opcodes);
+            return code.get().elementStream().anyMatch(e -> e instanceof Instruction i
+                                                            && OpcodeSummaryImpl.contains(opcodes, OpcodeSummaryImpl.opcodeIndex(i.opcode())));
+        }
+    }
+
+    record All(MethodSelector first, MethodSelector second) implements MethodSelectorImpl {
+        @Override
+        public boolean test(MethodModel mm) {
+            return first.test(mm) && second.test(mm);
+        }
+    }
+
+    record Any(MethodSelector first, MethodSelector second) implements MethodSelectorImpl {
+        @Override
+        public boolean test(MethodModel mm) {
+            return first.test(mm) || second.test(mm);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import org.glavo.classfile.Opcode;
+import org.glavo.classfile.attribute.CodeAttribute;
+
+import static org.glavo.classfile.ClassFile.*;
+
+public final class OpcodeSummaryImpl implements CodeAttribute.OpcodeSummary {
+
+    // wide opcodes are indexed after the 256 single byte opcodes
+    private final long[] opcodes;
+    private final int invokeCount, fieldAccessCount, newCount;
+
+    private OpcodeSummaryImpl(long[] opcodes, int invokeCount, int fieldAccessCount, int newCount) {
+        this.opcodes = opcodes;
+        this.invokeCount = invokeCount;
+        this.fieldAccessCount = fieldAccessCount;
+        this.newCount = newCount;
+    }
+
+    public static OpcodeSummaryImpl of(ByteBuffer code) {
+        long[] opcodes = new long[8];
+        int invokeCount = 0, fieldAccessCount = 0, newCount = 0;
+        var bcs = new RawBytecodeHelper(code);
+        while (!bcs.isLastBytecode()) {
+            int bc = bcs.rawNext();
+            if (bc == RawBytecodeHelper.ILLEGAL)
+                throw new IllegalArgumentException("Bad bytecode at bci: " + bcs.bci);
+            int index = opcodeIndex(bc, bcs.isWide);
+            opcodes[index >>> 6] |= 1L << index;
+            switch (bc) {
+                case INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, INVOKEINTERFACE, INVOKEDYNAMIC -> invokeCount++;
+                case GETFIELD, PUTFIELD, GETSTATIC, PUTSTATIC -> fieldAccessCount++;
+                case NEW -> newCount++;
+            }
+        }
+        return new OpcodeSummaryImpl(opcodes, invokeCount, fieldAccessCount, newCount);
+    }
+
+    static long[] opcodeSet(Collection<Opcode> opcodes) {
+        long[] set = new long[8];
+        for (Opcode op : opcodes) {
+            int index = opcodeIndex(op);
+            set[index >>> 6] |= 1L << index;
+        }
+        return set;
+    }
+
+    static int opcodeIndex(int bc, boolean wide) {
+        return wide ? 256 + bc : bc;
+    }
+
+    static int opcodeIndex(Opcode op) {
+        return opcodeIndex(op.bytecode() & 0xFF, op.isWide());
+    }
+
+    static boolean contains(long[] set, int index) {
+        return (set[index >>> 6] & (1L << index)) != 0;
+    }
+
+    boolean containsAny(long[] set) {
+        for (int i = 0; i < opcodes.length; i++) {
+            if ((opcodes[i] & set[i]) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Opcode opcode) {
+        return contains(opcodes, opcodeIndex(opcode));
+    }
+
+    @Override
+    public int invokeCount() {
+        return invokeCount;
+    }
+
+    @Override
+    public int fieldAccessCount() {
+        return fieldAccessCount;
+    }
+
+    @Override
+    public int newCount() {
+        return newCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OpcodeSummary[invokeCount=%d, fieldAccessCount=%d, newCount=%d]",
+                             invokeCount, fieldAccessCount, newCount);
+    }
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.constant.ClassDesc;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.constantpool.ClassEntry;
+import org.glavo.classfile.jdk.ClassDescUtils;
+
+import static org.glavo.classfile.ClassFile.ACC_INTERFACE;
+import static org.glavo.classfile.ClassFile.ACC_MODULE;
+
+/**
+ * Class hierarchy resolver answering from a memory-mapped index file.
+ * <p>
+ * The index file holds one section per class path entry (jar file or directory),
+ * keyed by the absolute path of the entry and tagged with its fingerprint.
+ * A section is rebuilt from the classfiles of its entry when the fingerprint
+ * no longer matches, other sections are reused as they are. The snapshot of
+ * the running JDK uses the same layout, with a single section keyed
+ * {@code jrt:/modules}. Resolvers built from class models or from a jar file
+ * or directory hold a single section on the heap, without an index file.
+ * <p>
+ * The tables of an index file are checked when the file is opened, so that
+ * lookups stay within the mapped file; a truncated or corrupted file is rebuilt.
+ * A rebuilt index replaces the file atomically. Platforms which do not allow
+ * replacing a file mapped into memory, such as Windows, keep the old file while
+ * any resolver still maps it: the rebuilt tables are then used from the heap,
+ * and the file is rebuilt again when next opened.
+ * <p>
+ * Index file layout, all numbers big-endian:
+ * <pre>
+ * u4 magic, u4 version, u4 section count
+ * per section: u2 key length, key (UTF-8), u8 fingerprint, u4 table length, table
+ * table: u4 class count, u4 record offsets sorted by class name, records
+ * record: u2 name length, name (UTF-8, internal form), u1 flags,
+ *         [u2 super length, super name] unless FLAG_NO_SUPER
+ * </pre>
+ */
+public final class PersistentClassHierarchyResolver implements ClassHierarchyResolver {
+
+    private static final int MAGIC = 0x43484958; // CHIX
+    private static final int VERSION = 1;
+    private static final boolean IS_WINDOWS = File.separatorChar == '\\';
+
+    private static final int FLAG_INTERFACE = 0x01;
+    private static final int FLAG_NO_SUPER = 0x02;
+
+    private static final String JDK_KEY = "jrt:/modules";
+
+    record Section(String key, long fingerprint, ByteBuffer table) {
+    }
+
+    private final Section[] sections;
+    // decoded records, filled on first lookup; races only decode a record twice
+    private final ClassHierarchyInfo[][] infos;
+
+    private PersistentClassHierarchyResolver(Section[] sections) {
+        this.sections = sections;
+        this.infos = new ClassHierarchyInfo[sections.length][];
+        for (int i = 0; i < sections.length; i++) {
+            infos[i] = new ClassHierarchyInfo[sections[i].table().getInt(0)];
+        }
+    }
+
+    /**
+     * Opens the index file for the given class path, rebuilding the sections
+     * of the entries which changed since the index was written.
+     */
+    public static PersistentClassHierarchyResolver open(Path indexFile, List<Path> classPath) throws IOException {
+        var existing = new HashMap<String, Section>();
+        for (var s : readIndex(indexFile)) {
+            existing.putIfAbsent(s.key(), s);
+        }
+        var sections = new Section[classPath.size()];
+        boolean upToDate = existing.size() == sections.length;
+        for (int i = 0; i < sections.length; i++) {
+            Path entry = classPath.get(i).toAbsolutePath().normalize();
+            String key = entry.toString();
+            long fingerprint = fingerprint(entry);
+            var s = existing.get(key);
+            if (s == null || s.fingerprint() != fingerprint) {
+                s = new Section(key, fingerprint, ByteBuffer.wrap(buildTable(entry)));
+                upToDate = false;
+            }
+            sections[i] = s;
+        }
+        if (!upToDate && writeIndex(indexFile, sections)) {
+            // map the fresh index instead of keeping the rebuilt tables on the heap
+            var mapped = readIndex(indexFile);
+            if (mapped.size() == sections.length) {
+                sections = mapped.toArray(new Section[0]);
+            }
+        }
+        return new PersistentClassHierarchyResolver(sections);
+    }
+
+    /**
+     * Indexes the given classes in memory.
+     */
+    public static PersistentClassHierarchyResolver of(Collection<ClassModel> classes) {
+        var records = new ArrayList<ClassRecord>(classes.size());
+        for (var cm : classes) {
+            addRecord(records, cm.flags().flagsMask(), cm.thisClass().asInternalName(),
+                      cm.superclass().map(ClassEntry::asInternalName).orElse(null));
+        }
+        return new PersistentClassHierarchyResolver(new Section[] {
+                new Section("", 0, ByteBuffer.wrap(buildTable(records)))});
+    }
+
+    /**
+     * Indexes the classes of the given jar file or directory in memory.
+     */
+    public static PersistentClassHierarchyResolver of(Path path) throws IOException {
+        return new PersistentClassHierarchyResolver(new Section[] {
+                new Section(path.toString(), 0, ByteBuffer.wrap(buildTable(path)))});
+    }
+
+    /**
+     * Opens the snapshot of the classes of the running JDK kept in the given file,
+     * building it from {@code jrt:/} if requested when the file is missing or
+     * belongs to another JDK.
+     *
+     * @return the snapshot resolver, or {@code null} if there is no snapshot
+     *         and {@code build} is false
+     */
+    public static PersistentClassHierarchyResolver openJdkSnapshot(Path indexFile, boolean build) throws IOException {
+        long fingerprint = jdkFingerprint();
+        for (var s : readIndex(indexFile)) {
+            if (s.key().equals(JDK_KEY) && s.fingerprint() == fingerprint)
+                return new PersistentClassHierarchyResolver(new Section[] {s});
+        }
+        if (!build)
+            return null;
+        var jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+        var sections = new Section[] {new Section(JDK_KEY, fingerprint, ByteBuffer.wrap(buildTable(jrt.getPath("/modules"))))};
+        writeIndex(indexFile, sections);
+        return new PersistentClassHierarchyResolver(sections);
+    }
+
+    /**
+     * {@return the fingerprint of the running JDK}
+     */
+    public static long jdkFingerprint() throws IOException {
+        String javaHome = System.getProperty("java.home");
+        long h = Runtime.version().toString().hashCode();
+        h = h * 1_000_003 + javaHome.hashCode();
+        Path modules = Path.of(javaHome, "lib", "modules");
+        if (Files.isRegularFile(modules)) {
+            h = h * 1_000_003 + fingerprint(modules);
+        }
+        return h;
+    }
+
+    @Override
+    public ClassHierarchyInfo getClassInfo(ClassDesc classDesc) {
+        if (!classDesc.isClassOrInterface())
+            return null;
+        // the name is compared in place with the descriptor, a lookup of a decoded record does not allocate
+        String desc = classDesc.descriptorString();
+        for (int i = 0; i < sections.length; i++) {
+            var table = sections[i].table();
+            int index = find(table, desc);
+            if (index >= 0) {
+                var info = infos[i][index];
+                if (info == null)
+                    infos[i][index] = info = decode(table, table.getInt(4 + index * 4));
+                return info;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@return the index of the record of the class with the given descriptor, or -1 if missing}
+     */
+    static int find(ByteBuffer table, String desc) {
+        int low = 0;
+        int high = table.getInt(0) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int p = table.getInt(4 + mid * 4);
+            int cmp = compare(table, p + 2, table.getShort(p) & 0xFFFF, desc);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private static ClassHierarchyInfo decode(ByteBuffer table, int p) {
+        p += 2 + (table.getShort(p) & 0xFFFF);
+        int flags = table.get(p);
+        if ((flags & FLAG_INTERFACE) != 0)
+            return ClassHierarchyInfo.ofInterface();
+        if ((flags & FLAG_NO_SUPER) != 0)
+            return ClassHierarchyInfo.ofClass(null);
+        byte[] superName = new byte[table.getShort(p + 1) & 0xFFFF];
+        table.get(p + 3, superName);
+        return ClassHierarchyInfo.ofClass(ClassDescUtils.ofInternalName(new String(superName, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Compares the UTF-8 name at the given position of the table with the internal
+     * name of a class descriptor, in the unsigned byte order the table is sorted by,
+     * which is the order of the code points.
+     */
+    private static int compare(ByteBuffer table, int p, int len, String desc) {
+        int end = desc.length() - 1;
+        int i = 0;
+        int j = 1;
+        while (i < len && j < end) {
+            int b = table.get(p + i++) & 0xFF;
+            int c1;
+            if (b < 0x80) {
+                c1 = b;
+            } else {
+                int n = b >= 0xF0 ? 3 : b >= 0xE0 ? 2 : 1;
+                c1 = b & (0x3F >> n);
+                for (int k = 0; k < n && i < len; k++) {
+                    c1 = c1 << 6 | table.get(p + i++) & 0x3F;
+                }
+            }
+            int c2 = desc.codePointAt(j);
+            j += Character.charCount(c2);
+            if (c2 >= Character.MIN_SURROGATE && c2 <= Character.MAX_SURROGATE) {
+                // encoded as '?' in the table, as String.getBytes replaces unpaired surrogates
+                c2 = '?';
+            }
+            if (c1 != c2)
+                return c1 < c2 ? -1 : 1;
+        }
+        return (i < len ? 1 : 0) - (j < end ? 1 : 0);
+    }
+
+    //------ Fingerprints and tables
+
+    static long fingerprint(Path entry) throws IOException {
+        if (Files.isDirectory(entry)) {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(entry)) {
+                files = s.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            long h = 1;
+            for (var f : files) {
+                var attrs = Files.readAttributes(f, BasicFileAttributes.class);
+                h = h * 1_000_003 + entry.relativize(f).toString().hashCode();
+                h = h * 1_000_003 + attrs.size();
+                h = h * 1_000_003 + attrs.lastModifiedTime().toMillis();
+            }
+            return h;
+        } else if (Files.isRegularFile(entry)) {
+            var attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+            return attrs.size() * 1_000_003 + attrs.lastModifiedTime().toMillis();
+        } else {
+            return 0;
+        }
+    }
+
+    private record ClassRecord(byte[] name, int flags, byte[] superName) {
+    }
+
+    static byte[] buildTable(Path entry) throws IOException {
+        var records = new ArrayList<ClassRecord>();
+        forEachClassfile(entry, bytes -> addRecord(records, bytes));
+        return buildTable(records);
+    }
+
+    /**
+     * Passes the bytes of each classfile of the jar file or directory to the action.
+     */
+    static void forEachClassfile(Path entry, Consumer<byte[]> action) throws IOException {
+        if (Files.isDirectory(entry)) {
+            List<Path> files;
+            try (Stream<Path> s = Files.walk(entry)) {
+                files = s.filter(p -> p.toString().endsWith(".class") && Files.isRegularFile(p))
+                         .sorted()
+                         .collect(Collectors.toList());
+            }
+            for (var f : files) {
+                action.accept(Files.readAllBytes(f));
+            }
+        } else if (Files.isRegularFile(entry)) {
+            try (var zip = new ZipFile(entry.toFile())) {
+                var entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    var ze = entries.nextElement();
+                    String name = ze.getName();
+                    if (!ze.isDirectory() && name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                        try (var in = zip.getInputStream(ze)) {
+                            action.accept(in.readAllBytes());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static void addRecord(List<ClassRecord> records, byte[] classfile) {
+        // only the class header is read, the constant pool is indexed up to the header
+        try {
+            var reader = new ClassReaderImpl(ByteBuffer.wrap(classfile), ClassFileImpl.DEFAULT_CONTEXT, false);
+            int p = reader.thisClassPos();
+            addRecord(records, reader.flags(), reader.readClassEntry(p).asInternalName(),
+                      reader.readU2(p + 2) == 0 ? null : reader.readClassEntry(p + 2).asInternalName());
+        } catch (IllegalArgumentException e) {
+            // not resolvable from the index, left to the delegate resolver
+        }
+    }
+
+    static void addRecord(List<ClassRecord> records, int flags, String name, String superName) {
+        if ((flags & ACC_MODULE) != 0)
+            return;
+        records.add(new ClassRecord(name.getBytes(StandardCharsets.UTF_8),
+                                    ((flags & ACC_INTERFACE) != 0 ? FLAG_INTERFACE : 0)
+                                    | (superName == null ? FLAG_NO_SUPER : 0),
+                                    superName == null ? null : superName.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static byte[] buildTable(List<ClassRecord> records) {
+        // stable sort keeps the first of duplicated names
+        records.sort((r1, r2) -> Arrays.compareUnsigned(r1.name(), r2.name()));
+        var unique = new ArrayList<ClassRecord>(records.size());
+        for (var r : records) {
+            if (unique.isEmpty() || !Arrays.equals(unique.get(unique.size() - 1).name(), r.name()))
+                unique.add(r);
+        }
+        int count = unique.size();
+        var out = new ByteArrayOutputStream(16 + count * 64);
+        var data = new DataOutputStream(out);
+        try {
+            data.writeInt(count);
+            int p = 4 + count * 4;
+            for (var r : unique) {
+                data.writeInt(p);
+                p += 3 + r.name().length + (r.superName() == null ? 0 : 2 + r.superName().length);
+            }
+            for (var r : unique) {
+                data.writeShort(r.name().length);
+                data.write(r.name());
+                data.writeByte(r.flags());
+                if (r.superName() != null) {
+                    data.writeShort(r.superName().length);
+                    data.write(r.superName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    //------ Index file
+
+    static List<Section> readIndex(Path indexFile) throws IOException {
+        if (!Files.isRegularFile(indexFile))
+            return List.of();
+        ByteBuffer buffer;
+        try (var channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return List.of();
+            int count = buffer.getInt();
+            var sections = new ArrayList<Section>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(key);
+                long fingerprint = buffer.getLong();
+                int length = buffer.getInt();
+                var table = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                if (!isValidTable(table))
+                    return List.of();
+                sections.add(new Section(new String(key, StandardCharsets.UTF_8), fingerprint, table));
+            }
+            return sections;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // truncated or corrupted index, rebuilt from scratch
+            return List.of();
+        }
+    }
+
+    // every record must lie within the table, as lookups do not check the offsets
+    static boolean isValidTable(ByteBuffer table) {
+        int limit = table.limit();
+        if (limit < 4)
+            return false;
+        int count = table.getInt(0);
+        if (count < 0 || count > (limit - 4) / 4)
+            return false;
+        int records = 4 + count * 4;
+        for (int i = 0; i < count; i++) {
+            int p = table.getInt(4 + i * 4);
+            if (p < records || p > limit - 3)
+                return false;
+            p += 2 + (table.getShort(p) & 0xFFFF);
+            if (p >= limit)
+                return false;
+            if ((table.get(p) & FLAG_NO_SUPER) == 0
+                    && (p > limit - 3 || p + 3 + (table.getShort(p + 1) & 0xFFFF) > limit))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the index file, replacing an existing file. The file is replaced
+     * atomically, or in place where the file system cannot move atomically.
+     *
+     * @return whether the file was replaced, false if the existing file is
+     *         kept because it cannot be replaced while mapped into memory
+     */
+    static boolean writeIndex(Path indexFile, Section[] sections) throws IOException {
+        Path parent = indexFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try {
+            try (var data = new DataOutputStream(Files.newOutputStream(tmp))) {
+                data.writeInt(MAGIC);
+                data.writeInt(VERSION);
+                data.writeInt(sections.length);
+                for (var s : sections) {
+                    byte[] key = s.key().getBytes(StandardCharsets.UTF_8);
+                    data.writeShort(key.length);
+                    data.write(key);
+                    data.writeLong(s.fingerprint());
+                    var table = s.table();
+                    byte[] bytes = new byte[table.limit()];
+                    table.get(0, bytes);
+                    data.writeInt(bytes.length);
+                    data.write(bytes);
+                }
+            }
+            try {
+                try {
+                    Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    // a partially replaced file is rebuilt when next opened, its tables being checked
+                    Files.move(tmp, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (FileSystemException e) {
+                // on Windows a file mapped by a live resolver cannot be replaced
+                if (e instanceof AtomicMoveNotSupportedException || !IS_WINDOWS || !Files.exists(indexFile)) {
+                    throw e;
+                }
+                return false;
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+}
@@ -31,16 +31,41 @@ import org.glavo.classfile.constantpool.DynamicConstantPoolEntry;
 import org.glavo.classfile.constantpool.MemberRefEntry;
 import java.lang.constant.MethodTypeDesc;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
-import java.util.Queue;
 
 import static org.glavo.classfile.ClassFile.*;
 
 public final class StackCounter {
 
-    private record Target(int bci, int stack) {}
+    /**
+     * Reusable working buffers, one instance per thread.
+     * Nested counting on the same thread, for example from a class hierarchy resolver, uses a fresh instance.
+     * Buffers grown beyond {@code MAX_RETAINED_LENGTH} by a large method are dropped on release.
+     */
+    private static final class Scratch {
+        private static final ThreadLocal<Scratch> CURRENT = ThreadLocal.withInitial(Scratch::new);
+        private static final int MAX_RETAINED_LENGTH = 4096;
+
+        //queue of jump targets, pairs of target bci and stack size
+        int[] targets = new int[16];
+        BitSet visited = new BitSet();
+        boolean inUse;
+
+        static Scratch acquire() {
+            var s = CURRENT.get();
+            if (s.inUse) return new Scratch();
+            s.inUse = true;
+            return s;
+        }
+
+        void release() {
+            if (targets.length > MAX_RETAINED_LENGTH) targets = new int[16];
+            if (visited.size() > MAX_RETAINED_LENGTH) visited = new BitSet(); else visited.clear();
+            inUse = false;
+        }
+    }
 
     static StackCounter of(DirectCodeBuilder dcb, BufWriterImpl buf) {
         return new StackCounter(
@@ -59,13 +84,23 @@ public final class StackCounter {
     private final String methodName;
     private final MethodTypeDesc methodDesc;
     private final SplitConstantPool cp;
-    private final Queue<Target> targets;
+    private final Scratch scratch;
     private final BitSet visited;
+    private int[] targets;
+    private int targetsHead, targetsTail;
 
     private void jump(int targetBci) {
         if (!visited.get(targetBci)) {
-            targets.add(new Target(targetBci, stack));
+            addTarget(targetBci, stack);
+        }
+    }
+
+    private void addTarget(int bci, int stack) {
+        if (targetsTail == targets.length) {
+            targets = scratch.targets = Arrays.copyOf(targets, targetsTail * 2);
         }
+        targets[targetsTail++] = bci;
+        targets[targetsTail++] = stack;
     }
 
     private void addStackSlot(int delta) {
@@ -78,11 +113,12 @@ public final class StackCounter {
     }
 
     private boolean next() {
-        Target en;
-        while ((en = targets.poll()) != null) {
-            if (!visited.get(en.bci)) {
-                bcs.nextBci = en.bci;
-                stack = en.stack;
+        while (targetsHead < targetsTail) {
+            int bci = targets[targetsHead++];
+            int stack = targets[targetsHead++];
+            if (!visited.get(bci)) {
+                bcs.nextBci = bci;
+                this.stack = stack;
                 return true;
             }
         }
@@ -100,14 +136,23 @@ public final class StackCounter {
         this.methodName = methodName;
         this.methodDesc = methodDesc;
         this.cp = cp;
-        targets = new ArrayDeque<>();
-        maxStack = stack = rets = 0;
-        for (var h : handlers) targets.add(new Target(labelContext.labelToBci(h.handler), 1));
-        maxLocals = isStatic ? 0 : 1;
-        maxLocals += Util.parameterSlots(methodDesc);
-        bcs = new RawBytecodeHelper(bytecode);
-        visited = new BitSet(bcs.endBci);
-        targets.add(new Target(0, 0));
+        scratch = Scratch.acquire();
+        try {
+            targets = scratch.targets;
+            visited = scratch.visited;
+            maxStack = stack = rets = 0;
+            for (var h : handlers) addTarget(labelContext.labelToBci(h.handler), 1);
+            maxLocals = isStatic ? 0 : 1;
+            maxLocals += Util.parameterSlots(methodDesc);
+            bcs = new RawBytecodeHelper(bytecode);
+            addTarget(0, 0);
+            count();
+        } finally {
+            scratch.release();
+        }
+    }
+
+    private void count() {
         while (next()) {
             while (!bcs.isLastBytecode()) {
                 bcs.rawNext();
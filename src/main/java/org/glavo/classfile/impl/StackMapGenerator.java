@@ -38,13 +38,15 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.glavo.classfile.Attribute;
 
 import static org.glavo.classfile.ClassFile.*;
 import org.glavo.classfile.BufWriter;
+import org.glavo.classfile.ClassReader;
 import org.glavo.classfile.Label;
 import org.glavo.classfile.attribute.StackMapTableAttribute;
 import org.glavo.classfile.Attributes;
@@ -64,20 +66,20 @@ import org.glavo.classfile.attribute.CodeAttribute;
  *          and all exception table handlers.
  *      <li>Detection is performed in a single fast pass through the bytecode,
  *          with no auxiliary structures construction nor further instructions processing.
+ *      <li>Code built by {@link DirectCodeBuilder} is not traversed, the control flow recorded while writing the instructions is used instead.
  * </ul>
+ * <li>{@linkplain #computeBlockOrder() Ordering} of the code blocks starting at the method entry and at the mandatory frames
+ *     in reverse postorder of the control flow graph, from the jumps, fall-throughs and exception handlers recorded in the step #1.
  * <li>Generator loop {@linkplain #processMethod() processing bytecode instructions}:<ul>
  *      <li>Generator loop simulates sequence instructions {@linkplain #processBlock(RawBytecodeHelper) processing effect on the actual stack and locals}.
  *      <li>All mandatory {@linkplain Frame frames} detected in the step #1 are {@linkplain Frame#checkAssignableTo(Frame) retro-filled}
- *          (or {@linkplain Frame#merge(Type, Type[], int, Frame) reverse-merged} in subsequent processing)
+ *          (or {@linkplain Frame#merge(int, int[], int, Frame) reverse-merged} in subsequent processing)
  *          with the actual stack and locals for all matching jump, switch and exception handler targets.
- *      <li>All frames modified by reverse merges are marked as {@linkplain Frame#dirty dirty} for further processing.
- *      <li>Code blocks with not yet known entry frame content are skipped and related frames are also marked as dirty.
- *      <li>Generator loop process is repeated until all mandatory frames are cleared or until an error state is reached.
- *      <li>Generator loop always passes all instructions at least once to calculate {@linkplain #maxStack max stack}
- *          and {@linkplain #maxLocals max locals} code attributes.
- *      <li>More than one pass is usually not necessary, except for more complex bytecode sequences.<br>
- *          <i>(Note: experimental measurements showed that more than 99% of the cases required only single pass to clear all frames,
- *          less than 1% of the cases required second pass and remaining 0,01% of the cases required third pass to clear all frames.)</i>.
+ *      <li>All frames modified by reverse merges are marked as {@linkplain Frame#dirty dirty} and their code blocks are added to the worklist.
+ *      <li>Worklist is processed in reverse postorder, so code blocks are usually processed after all their forward predecessors
+ *          and only the code blocks with changed entry frames are processed again.
+ *      <li>Code blocks never reached from the method entry are not processed.
+ *      <li>Generator loop finishes when the worklist is empty or when an error state is reached.
  * </ul>
  * <li>Dead code patching to pass class loading verification:<ul>
  *      <li>Dead code blocks are indicated by frames remaining without content after leaving the Generator loop.
@@ -87,10 +89,21 @@ import org.glavo.classfile.attribute.CodeAttribute;
  * </ul>
  * </ol>
  * <p>
- * {@linkplain Frame#merge(Type, Type[], int, Frame) Reverse-merge} of the stack map frames
+ * When the method code is a transformation of an original code with stack map table,
+ * the frames can be {@linkplain #processIncrementally() computed incrementally}:<ul>
+ *      <li>Original frames are mapped through their labels and seed the matching mandatory frames.
+ *      <li>Seeded frames of code blocks with bytecode identical to the original blocks are not dirty,
+ *          so the blocks are only processed when a reverse-merge changes their frames.
+ *      <li>The other code blocks, like a prologue injected at the method entry, are processed as usual.
+ *      <li>Code storing into locals beyond the original maximum falls back to the full frames computation,
+ *          as the original frames of the skipped blocks do not declare the new locals.
+ *      <li>Any failure or unreachable frame falls back to the full frames computation.
+ * </ul>
+ * <p>
+ * {@linkplain Frame#merge(int, int[], int, Frame) Reverse-merge} of the stack map frames
  * may in some situations require to determine {@linkplain ClassHierarchyImpl class hierarchy} relations.
  * <p>
- * Reverse-merge of individual {@linkplain Type types} is performed when a target frame has already been retro-filled
+ * Reverse-merge of individual {@linkplain #mergeFrom(int, int) types} is performed when a target frame has already been retro-filled
  * and it is necessary to adjust its existing stack entries and locals to also match actual stack map frame conditions.
  * Following tables describe how new target stack entry or local type is calculated, based on the actual frame stack entry or local ("from")
  * and actual value of the target stack entry or local ("to").
@@ -156,7 +169,24 @@ public final class StackMapGenerator {
                 dcb.bytecodesBufWriter.asByteBuffer().slice(0, dcb.bytecodesBufWriter.size()),
                 dcb.constantPool,
                 dcb.context,
-                dcb.handlers);
+                dcb.handlers,
+                null,
+                dcb.recordControlFlow ? dcb : null);
+    }
+
+    static StackMapGenerator of(DirectCodeBuilder dcb, BufWriterImpl buf, CodeImpl original) {
+        return new StackMapGenerator(
+                dcb,
+                buf.thisClass().asSymbol(),
+                dcb.methodInfo.methodName().stringValue(),
+                dcb.methodInfo.methodTypeSymbol(),
+                (dcb.methodInfo.methodFlags() & ACC_STATIC) != 0,
+                dcb.bytecodesBufWriter.asByteBuffer().slice(0, dcb.bytecodesBufWriter.size()),
+                dcb.constantPool,
+                dcb.context,
+                dcb.handlers,
+                original,
+                dcb.recordControlFlow ? dcb : null);
     }
 
     private static final String OBJECT_INITIALIZER_NAME = "<init>";
@@ -180,13 +210,154 @@ public final class StackMapGenerator {
             ITEM_LONG_2ND = 13,
             ITEM_DOUBLE_2ND = 14;
 
-    private static final Type[] ARRAY_FROM_BASIC_TYPE = {null, null, null, null,
-        Type.BOOLEAN_ARRAY_TYPE, Type.CHAR_ARRAY_TYPE, Type.FLOAT_ARRAY_TYPE, Type.DOUBLE_ARRAY_TYPE,
-        Type.BYTE_ARRAY_TYPE, Type.SHORT_ARRAY_TYPE, Type.INT_ARRAY_TYPE, Type.LONG_ARRAY_TYPE};
+    /*
+     * Types are coded as int values, with the verification type item in the low TYPE_TAG_BITS bits
+     * and a payload in the remaining bits: the index in the symbol table for object types
+     * and the offset of the NEW instruction for uninitialized types.
+     * Object types are interned in the symbol table, so equal types are always equal int values
+     * and zero stands for TOP_TYPE.
+     */
+    private static final int TYPE_TAG_BITS = 4, TYPE_TAG_MASK = (1 << TYPE_TAG_BITS) - 1;
+
+    //simple types
+    private static final int TOP_TYPE = ITEM_TOP,
+            NULL_TYPE = ITEM_NULL,
+            INTEGER_TYPE = ITEM_INTEGER,
+            FLOAT_TYPE = ITEM_FLOAT,
+            LONG_TYPE = ITEM_LONG,
+            LONG2_TYPE = ITEM_LONG_2ND,
+            DOUBLE_TYPE = ITEM_DOUBLE,
+            BOOLEAN_TYPE = ITEM_BOOLEAN,
+            BYTE_TYPE = ITEM_BYTE,
+            CHAR_TYPE = ITEM_CHAR,
+            SHORT_TYPE = ITEM_SHORT,
+            DOUBLE2_TYPE = ITEM_DOUBLE_2ND,
+            UNITIALIZED_THIS_TYPE = ITEM_UNINITIALIZED_THIS;
+
+    //no value, returned by void methods
+    private static final int VOID_TYPE = -1;
+
+    //frequently used class symbols, present in every symbol table at fixed indexes
+    private static final ClassDesc CD_Cloneable = ClassDesc.of("java.lang.Cloneable");
+    private static final ClassDesc CD_Serializable = ClassDesc.of("java.io.Serializable");
+    private static final ClassDesc[] PREDEFINED_SYMBOLS = {
+        CD_Object, CD_Throwable, CD_int.arrayType(), CD_boolean.arrayType(),
+        CD_byte.arrayType(), CD_char.arrayType(), CD_short.arrayType(), CD_long.arrayType(),
+        CD_double.arrayType(), CD_float.arrayType(), CD_String, CD_Class,
+        CD_MethodHandle, CD_MethodType, CD_Cloneable, CD_Serializable};
+    private static final Map<ClassDesc, Integer> PREDEFINED_SYMBOL_INDEXES;
+    static {
+        var indexes = new HashMap<ClassDesc, Integer>();
+        for (int i = 0; i < PREDEFINED_SYMBOLS.length; i++) {
+            indexes.put(PREDEFINED_SYMBOLS[i], i);
+        }
+        PREDEFINED_SYMBOL_INDEXES = indexes;
+    }
 
-    static record RawExceptionCatch(int start, int end, int handler, Type catchType) {}
+    private static final int OBJECT_TYPE = predefinedType(0),
+            THROWABLE_TYPE = predefinedType(1),
+            INT_ARRAY_TYPE = predefinedType(2),
+            BOOLEAN_ARRAY_TYPE = predefinedType(3),
+            BYTE_ARRAY_TYPE = predefinedType(4),
+            CHAR_ARRAY_TYPE = predefinedType(5),
+            SHORT_ARRAY_TYPE = predefinedType(6),
+            LONG_ARRAY_TYPE = predefinedType(7),
+            DOUBLE_ARRAY_TYPE = predefinedType(8),
+            FLOAT_ARRAY_TYPE = predefinedType(9),
+            STRING_TYPE = predefinedType(10),
+            CLASS_TYPE = predefinedType(11),
+            METHOD_HANDLE_TYPE = predefinedType(12),
+            METHOD_TYPE = predefinedType(13),
+            CLONEABLE_TYPE = predefinedType(14),
+            SERIALIZABLE_TYPE = predefinedType(15);
+
+    private static final int[] ARRAY_FROM_BASIC_TYPE = {0, 0, 0, 0,
+        BOOLEAN_ARRAY_TYPE, CHAR_ARRAY_TYPE, FLOAT_ARRAY_TYPE, DOUBLE_ARRAY_TYPE,
+        BYTE_ARRAY_TYPE, SHORT_ARRAY_TYPE, INT_ARRAY_TYPE, LONG_ARRAY_TYPE};
+
+    static record RawExceptionCatch(int start, int end, int handler, int catchType) {}
+
+    /**
+     * Reusable working buffers of the generator, one instance per thread.
+     * Only the working state is pooled, the generated frames and the symbol table belong to the generator instance.
+     * Nested generation on the same thread, for example from a class hierarchy resolver, uses a fresh instance.
+     * Buffers grown beyond {@code MAX_RETAINED_LENGTH} by a large method are dropped on release,
+     * so a thread does not keep them after the method is done.
+     */
+    private static final class Scratch {
+        private static final ThreadLocal<Scratch> CURRENT = ThreadLocal.withInitial(Scratch::new);
+        private static final int MAX_RETAINED_LENGTH = 4096;
+
+        List<RawExceptionCatch> rawHandlers = new ArrayList<>();
+        BitSet frameOffsets = new BitSet(), flowBreaks = new BitSet(), worklist = new BitSet();
+        int[] jumps = new int[16];
+        int[] edgeSources = new int[16], edgeTargets = new int[16], successorsStart = new int[16], successors = new int[16];
+        int[] blockOrder = new int[16], blockRanks = new int[16], dfsStack = new int[16], dfsNext = new int[16];
+        int[] seedOffsets = new int[16], seedOriginalOffsets = new int[16], seedFrames = new int[16];
+        int[] cpTypes = new int[0];
+        MemberInfo[] cpMembers = new MemberInfo[0];
+        //locals and stack of the current frame
+        int[] locals = new int[FRAME_DEFAULT_CAPACITY], stack = new int[FRAME_DEFAULT_CAPACITY];
+        boolean inUse;
+
+        static Scratch acquire() {
+            var s = CURRENT.get();
+            if (s.inUse) return new Scratch();
+            s.inUse = true;
+            return s;
+        }
+
+        void release(StackMapGenerator gen) {
+            if (rawHandlers.size() > MAX_RETAINED_LENGTH) rawHandlers = new ArrayList<>(); else rawHandlers.clear();
+            frameOffsets = cleared(frameOffsets);
+            flowBreaks = cleared(flowBreaks);
+            worklist = cleared(worklist);
+            jumps = retained(gen.jumps);
+            edgeSources = retained(edgeSources);
+            edgeTargets = retained(edgeTargets);
+            successorsStart = retained(successorsStart);
+            successors = retained(successors);
+            blockOrder = retained(blockOrder);
+            blockRanks = retained(blockRanks);
+            dfsStack = retained(dfsStack);
+            dfsNext = retained(dfsNext);
+            seedOffsets = retained(seedOffsets);
+            seedOriginalOffsets = retained(seedOriginalOffsets);
+            seedFrames = retained(seedFrames);
+            //interned types refer to the symbol table of the generator, so only the used part is cleared
+            cpTypes = gen.cpTypes;
+            cpMembers = gen.cpMembers;
+            if (cpTypes.length > MAX_RETAINED_LENGTH || cpMembers.length > MAX_RETAINED_LENGTH) {
+                cpTypes = new int[0];
+                cpMembers = new MemberInfo[0];
+            } else {
+                Arrays.fill(cpTypes, 0, Math.min(gen.cpLimit, cpTypes.length), TOP_TYPE);
+                Arrays.fill(cpMembers, 0, Math.min(gen.cpLimit, cpMembers.length), null);
+            }
+            locals = gen.currentFrame.locals;
+            stack = gen.currentFrame.stack;
+            if (locals.length > MAX_RETAINED_LENGTH) locals = new int[FRAME_DEFAULT_CAPACITY]; else Arrays.fill(locals, TOP_TYPE);
+            if (stack.length > MAX_RETAINED_LENGTH) stack = new int[FRAME_DEFAULT_CAPACITY]; else Arrays.fill(stack, TOP_TYPE);
+            inUse = false;
+        }
+
+        static int[] ints(int[] a, int size) {
+            return a.length >= size ? a : new int[Math.max(size, a.length * 2)];
+        }
+
+        private static int[] retained(int[] a) {
+            return a.length > MAX_RETAINED_LENGTH ? new int[16] : a;
+        }
+
+        private static BitSet cleared(BitSet bits) {
+            if (bits.size() > MAX_RETAINED_LENGTH) return new BitSet();
+            bits.clear();
+            return bits;
+        }
+    }
 
-    private final Type thisType;
+    private final ClassDesc thisClass;
+    private final int thisType;
     private final String methodName;
     private final MethodTypeDesc methodDesc;
     private final ByteBuffer bytecode;
@@ -198,9 +369,30 @@ public final class StackMapGenerator {
     private final ClassHierarchyImpl classHierarchy;
     private final boolean patchDeadCode;
     private final boolean filterDeadLabels;
+    private final CodeImpl original;
+    private final DirectCodeBuilder recordedFlow;
     private List<Frame> frames;
     private final Frame currentFrame;
+    private Frame handlerFrame;
+    //per-method symbol table of object types, following the predefined symbols
+    private ClassDesc[] symbols = new ClassDesc[16];
+    private int symbolsCount;
+    private final Map<ClassDesc, Integer> symbolIndexes = new HashMap<>();
+    //lazily computed component and array types of the symbols, zero if not computed yet
+    private int[] componentTypes = new int[16], arrayTypes = new int[16];
+    //lazily interned types of class entries and member references, by constant pool index
+    private int[] cpTypes;
+    private MemberInfo[] cpMembers;
+    private int cpLimit;
     private int maxStack, maxLocals;
+    //control flow recorded during frame offsets detection: jump source and target pairs and offsets following no control flow
+    private int[] jumps;
+    private int jumpsCount;
+    private final BitSet flowBreaks;
+    //code blocks in reverse postorder, rank of each code block in the order and worklist of the ranks to process
+    private int[] blockOrder, blockRanks;
+    private final BitSet worklist;
+    private final Scratch scratch;
 
     /**
      * Primary constructor of the <code>Generator</code> class.
@@ -227,7 +419,22 @@ public final class StackMapGenerator {
                      SplitConstantPool cp,
                      ClassFileImpl context,
                      List<AbstractPseudoInstruction.ExceptionCatchImpl> handlers) {
-        this.thisType = Type.referenceType(thisClass);
+        this(labelContext, thisClass, methodName, methodDesc, isStatic, bytecode, cp, context, handlers, null, null);
+    }
+
+    private StackMapGenerator(LabelContext labelContext,
+                     ClassDesc thisClass,
+                     String methodName,
+                     MethodTypeDesc methodDesc,
+                     boolean isStatic,
+                     ByteBuffer bytecode,
+                     SplitConstantPool cp,
+                     ClassFileImpl context,
+                     List<AbstractPseudoInstruction.ExceptionCatchImpl> handlers,
+                     CodeImpl original,
+                     DirectCodeBuilder recordedFlow) {
+        this.thisClass = thisClass;
+        this.thisType = referenceType(thisClass);
         this.methodName = methodName;
         this.methodDesc = methodDesc;
         this.isStatic = isStatic;
@@ -235,12 +442,24 @@ public final class StackMapGenerator {
         this.cp = cp;
         this.labelContext = labelContext;
         this.handlers = handlers;
-        this.rawHandlers = new ArrayList<>(handlers.size());
-        this.classHierarchy = new ClassHierarchyImpl(context.classHierarchyResolverOption().classHierarchyResolver());
+        this.classHierarchy = ((ClassFileImpl.ClassHierarchyResolverOptionImpl) context.classHierarchyResolverOption()).classHierarchy();
         this.patchDeadCode = context.deadCodeOption() == ClassFile.DeadCodeOption.PATCH_DEAD_CODE;
         this.filterDeadLabels = context.deadLabelsOption() == ClassFile.DeadLabelsOption.DROP_DEAD_LABELS;
-        this.currentFrame = new Frame(classHierarchy);
-        generate();
+        this.original = original;
+        this.recordedFlow = recordedFlow;
+        this.scratch = Scratch.acquire();
+        this.rawHandlers = scratch.rawHandlers;
+        this.flowBreaks = scratch.flowBreaks;
+        this.worklist = scratch.worklist;
+        this.jumps = scratch.jumps;
+        this.cpTypes = scratch.cpTypes;
+        this.cpMembers = scratch.cpMembers;
+        this.currentFrame = new Frame(-1, 0, 0, 0, scratch.locals, scratch.stack);
+        try {
+            generate();
+        } finally {
+            scratch.release(this);
+        }
     }
 
     /**
@@ -259,36 +478,52 @@ public final class StackMapGenerator {
         return maxStack;
     }
 
-    private Frame getFrame(int offset) {
+    private int frameIndex(int offset) {
         //binary search over frames ordered by offset
         int low = 0;
         int high = frames.size() - 1;
         while (low <= high) {
             int mid = (low + high) >>> 1;
-            var f = frames.get(mid);
-            if (f.offset < offset)
+            int midOffset = frames.get(mid).offset;
+            if (midOffset < offset)
                 low = mid + 1;
-            else if (f.offset > offset)
+            else if (midOffset > offset)
                 high = mid - 1;
             else
-                return f;
+                return mid;
         }
-        return null;
+        return -1;
     }
 
-    private void checkJumpTarget(Frame frame, int target) {
-        frame.checkAssignableTo(getFrame(target));
+    private int blockIndex(int bci) {
+        //block 0 starts at the method entry and each frame starts the next block
+        int low = 0;
+        int high = frames.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (frames.get(mid).offset <= bci)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return low;
     }
 
-    private int exMin, exMax;
+    private void checkJumpTarget(Frame frame, int target) {
+        int index = frameIndex(target);
+        checkAssignableTo(frame, index);
+    }
 
-    private boolean isAnyFrameDirty() {
-        for (var f : frames) {
-            if (f.dirty) return true;
+    private void checkAssignableTo(Frame frame, int index) {
+        var target = index < 0 ? null : frames.get(index);
+        frame.checkAssignableTo(target);
+        if (target.dirty) {
+            worklist.set(blockRanks[index + 1]);
         }
-        return false;
     }
 
+    private int exMin, exMax;
+
     private void generate() {
         exMin = bytecode.capacity();
         exMax = -1;
@@ -301,8 +536,8 @@ public final class StackMapGenerator {
                 if (end_pc > exMax) exMax = end_pc;
                 var catchType = exhandler.catchType();
                 rawHandlers.add(new RawExceptionCatch(start_pc, end_pc, handler_pc,
-                        catchType.isPresent() ? cpIndexToType(catchType.get().index(), cp)
-                                              : Type.THROWABLE_TYPE));
+                        catchType.isPresent() ? cpIndexToType(catchType.get().index())
+                                              : THROWABLE_TYPE));
             }
         }
         BitSet frameOffsets = detectFrameOffsets();
@@ -311,13 +546,14 @@ public final class StackMapGenerator {
         int offset = -1;
         for (int i = 0; i < framesCount; i++) {
             offset = frameOffsets.nextSetBit(offset + 1);
-            frames.add(new Frame(offset, classHierarchy));
+            frames.add(new Frame(offset));
         }
-        do {
+        computeBlockOrder();
+        if (original == null || !processIncrementally()) {
             processMethod();
-        } while (isAnyFrameDirty());
-        maxLocals = currentFrame.frameMaxLocals;
-        maxStack = currentFrame.frameMaxStack;
+            maxLocals = currentFrame.frameMaxLocals;
+            maxStack = currentFrame.frameMaxStack;
+        }
 
         //dead code patching
         for (int i = 0; i < framesCount; i++) {
@@ -325,7 +561,7 @@ public final class StackMapGenerator {
             if (frame.flags == -1) {
                 if (!patchDeadCode) throw generatorError("Unable to generate stack map frame for dead code", frame.offset);
                 //patch frame
-                frame.pushStack(Type.THROWABLE_TYPE);
+                frame.pushStack(THROWABLE_TYPE);
                 if (maxStack < 1) maxStack = 1;
                 int blockSize = (i < framesCount - 1 ? frames.get(i + 1).offset : bytecode.limit()) - frame.offset;
                 //patch bytecode
@@ -340,6 +576,220 @@ public final class StackMapGenerator {
         }
     }
 
+    /**
+     * Computes the frames from the frames of the original stack map.
+     * Only the code blocks not matching the original code and the blocks with frames changed by reverse-merges are processed.
+     * @return false if the original frames are not applicable, the frames are then reset for the full computation
+     */
+    private boolean processIncrementally() {
+        boolean done = false;
+        try {
+            //new locals are not declared by the original frames, so the frames of the skipped blocks would drop them
+            if (!storesBeyondLocals(original.maxLocals()) && seedFrames()) {
+                processMethod();
+                done = currentFrame.frameMaxLocals <= original.maxLocals();
+                for (var f : frames) {
+                    if (f.flags == -1) {
+                        //dead code is left to the full computation
+                        done = false;
+                        break;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException iae) {
+            //the full computation reports the errors
+        }
+        if (done) {
+            //skipped blocks are identical to the original blocks, entered with the original frames
+            maxLocals = Math.max(currentFrame.frameMaxLocals, original.maxLocals());
+            maxStack = Math.max(currentFrame.frameMaxStack, original.maxStack());
+        } else {
+            for (int i = 0; i < frames.size(); i++) {
+                frames.set(i, new Frame(frames.get(i).offset));
+            }
+            currentFrame.frameMaxLocals = 0;
+            currentFrame.frameMaxStack = 0;
+        }
+        return done;
+    }
+
+    /**
+     * {@return whether the code stores into a local at or beyond the given limit}
+     */
+    private boolean storesBeyondLocals(int limit) {
+        var bcs = new RawBytecodeHelper(bytecode);
+        while (!bcs.isLastBytecode()) {
+            int opcode = bcs.rawNext();
+            int slot;
+            switch (opcode) {
+                case ISTORE, FSTORE, ASTORE, IINC ->
+                    slot = bcs.getIndex();
+                case LSTORE, DSTORE ->
+                    slot = bcs.getIndex() + 1;
+                case ISTORE_0, ISTORE_1, ISTORE_2, ISTORE_3 ->
+                    slot = opcode - ISTORE_0;
+                case FSTORE_0, FSTORE_1, FSTORE_2, FSTORE_3 ->
+                    slot = opcode - FSTORE_0;
+                case ASTORE_0, ASTORE_1, ASTORE_2, ASTORE_3 ->
+                    slot = opcode - ASTORE_0;
+                case LSTORE_0, LSTORE_1, LSTORE_2, LSTORE_3 ->
+                    slot = opcode - LSTORE_0 + 1;
+                case DSTORE_0, DSTORE_1, DSTORE_2, DSTORE_3 ->
+                    slot = opcode - DSTORE_0 + 1;
+                case RawBytecodeHelper.ILLEGAL ->
+                    //malformed code is left to the full computation
+                    slot = limit;
+                default ->
+                    slot = -1;
+            }
+            if (slot >= limit) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean seedFrames() {
+        var stackMap = original.findAttribute(Attributes.STACK_MAP_TABLE);
+        if (stackMap.isEmpty()) {
+            return false;
+        }
+        var originalHandlers = original.exceptionHandlers();
+        if (originalHandlers.size() != handlers.size() || rawHandlers.size() != handlers.size()) {
+            return false;
+        }
+        //skipped blocks must be covered by the same exception handlers as the original blocks
+        for (int i = 0; i < originalHandlers.size(); i++) {
+            var oh = originalHandlers.get(i);
+            var rh = rawHandlers.get(i);
+            var catchType = oh.catchType();
+            if (labelContext.labelToBci(oh.tryStart()) != rh.start()
+                    || labelContext.labelToBci(oh.tryEnd()) != rh.end()
+                    || labelContext.labelToBci(oh.handler()) != rh.handler()
+                    || (catchType.isPresent() ? cpIndexToType(catchType.get().index()) : THROWABLE_TYPE) != rh.catchType()) {
+                return false;
+            }
+        }
+        //original frames are decoded directly from the stack map table into the seed frame
+        var reader = original.classReader;
+        @SuppressWarnings("unchecked")
+        int p = ((BoundAttribute<StackMapTableAttribute>) stackMap.get()).payloadStart;
+        int count = reader.readU2(p);
+        p += 2;
+        int[] originalOffsets = scratch.seedOriginalOffsets = Scratch.ints(scratch.seedOriginalOffsets, count + 1);
+        int[] offsets = scratch.seedOffsets = Scratch.ints(scratch.seedOffsets, count + 1);
+        int[] seeded = scratch.seedFrames = Scratch.ints(scratch.seedFrames, count);
+        var seed = new Frame();
+        seed.setLocalsFromArg(methodName, methodDesc, isStatic, thisType);
+        int bci = -1, i = 0;
+        for (int k = 0; k < count; k++) {
+            int frameType = reader.readU1(p);
+            int offsetDelta;
+            seed.stackSize = 0;
+            if (frameType < 64) {
+                offsetDelta = frameType;
+                p++;
+            } else if (frameType < 128) {
+                offsetDelta = frameType & 0x3f;
+                p = readSeedTypes(reader, p + 1, 1, seed, false);
+            } else if (frameType < 247) {
+                return false;
+            } else {
+                offsetDelta = reader.readU2(p + 1);
+                p += 3;
+                switch (frameType) {
+                    case 247 ->
+                        p = readSeedTypes(reader, p, 1, seed, false);
+                    case 248, 249, 250 -> {
+                        for (int c = frameType; c < 251; c++) {
+                            if (seed.localsSize == 0) return false;
+                            seed.localsSize -= isCategory2_2nd(seed.locals[seed.localsSize - 1]) ? 2 : 1;
+                        }
+                    }
+                    case 251 -> {}
+                    case 252, 253, 254 ->
+                        p = readSeedTypes(reader, p, frameType - 251, seed, true);
+                    default -> {
+                        seed.localsSize = 0;
+                        p = readSeedTypes(reader, p + 2, reader.readU2(p), seed, true);
+                        if (p >= 0) p = readSeedTypes(reader, p + 2, reader.readU2(p), seed, false);
+                    }
+                }
+            }
+            if (p < 0) {
+                return false;
+            }
+            bci += offsetDelta + 1;
+            originalOffsets[k] = bci;
+            offsets[k] = labelContext.labelToBci(original.getLabel(bci));
+            if (offsets[k] < 0 || k > 0 && offsets[k] <= offsets[k - 1]) {
+                return false;
+            }
+            while (i < frames.size() && frames.get(i).offset < offsets[k]) i++;
+            if (i < frames.size() && frames.get(i).offset == offsets[k]) {
+                seed.flags = 0;
+                for (int l = 0; l < seed.localsSize; l++) {
+                    if (seed.locals[l] == UNITIALIZED_THIS_TYPE) seed.flags = FLAG_THIS_UNINIT;
+                }
+                frames.get(i).copyFrom(seed);
+                seeded[k] = i;
+            } else {
+                //original frame not required by the transformed code
+                seeded[k] = -1;
+            }
+        }
+        originalOffsets[count] = original.codeLength();
+        offsets[count] = bytecode.limit();
+        for (int k = 0; k < count; k++) {
+            if (seeded[k] >= 0) {
+                //block matching the original block till the next original frame is only processed when its frame changes
+                var frame = frames.get(seeded[k]);
+                int next = seeded[k] + 1 < frames.size() ? frames.get(seeded[k] + 1).offset : bytecode.limit();
+                int length = next - frame.offset;
+                frame.dirty = next != offsets[k + 1]
+                        || length != originalOffsets[k + 1] - originalOffsets[k]
+                        || !original.compareCodeBytes(bytecode, frame.offset, originalOffsets[k], length);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads verification types of an original stack map frame into the seed frame locals or stack
+     * @return position following the types or -1 if a type is not applicable to the transformed code
+     */
+    private int readSeedTypes(ClassReader reader, int p, int count, Frame seed, boolean locals) {
+        for (int n = 0; n < count; n++) {
+            int tag = reader.readU1(p);
+            int type = switch (tag) {
+                case ITEM_TOP, ITEM_INTEGER, ITEM_FLOAT, ITEM_DOUBLE, ITEM_LONG, ITEM_NULL, ITEM_UNINITIALIZED_THIS ->
+                    tag;
+                case ITEM_OBJECT ->
+                    reader.readEntry(p + 1) instanceof ClassEntry ce ? cpIndexToType(ce.index()) : VOID_TYPE;
+                case ITEM_UNINITIALIZED -> {
+                    int newBci = labelContext.labelToBci(original.getLabel(reader.readU2(p + 1)));
+                    yield newBci < 0 ? VOID_TYPE : uninitializedType(newBci);
+                }
+                default ->
+                    VOID_TYPE;
+            };
+            if (type == VOID_TYPE) {
+                return -1;
+            }
+            p += tag >= ITEM_OBJECT ? 3 : 1;
+            if (locals) {
+                seed.checkLocal(seed.localsSize + 1);
+                seed.locals[seed.localsSize++] = type;
+                if (type == LONG_TYPE || type == DOUBLE_TYPE) {
+                    seed.locals[seed.localsSize++] = type == LONG_TYPE ? LONG2_TYPE : DOUBLE2_TYPE;
+                }
+            } else {
+                seed.pushValue(type);
+            }
+        }
+        return p;
+    }
+
     private void removeRangeFromExcTable(int rangeStart, int rangeEnd) {
         var it = handlers.listIterator();
         while (it.hasNext()) {
@@ -386,7 +836,7 @@ public final class StackMapGenerator {
             @Override
             public void writeBody(BufWriter b) {
                 b.writeU2(frames.size());
-                Frame prevFrame =  new Frame(classHierarchy);
+                Frame prevFrame =  new Frame();
                 prevFrame.setLocalsFromArg(methodName, methodDesc, isStatic, thisType);
                 prevFrame.trimAndCompress();
                 for (var fr : frames) {
@@ -398,46 +848,194 @@ public final class StackMapGenerator {
         };
     }
 
-    private static Type cpIndexToType(int index, ConstantPoolBuilder cp) {
-        return Type.referenceType(((ClassEntry)cp.entryByIndex(index)).asSymbol());
+    private int cpIndexToType(int index) {
+        //class entries are interned by constant pool index, so each is converted to a symbol only once per method
+        if (index >= cpTypes.length) {
+            cpTypes = Arrays.copyOf(cpTypes, Math.max(index + 1, cp.size()));
+        }
+        if (index >= cpLimit) cpLimit = index + 1;
+        int type = cpTypes[index];
+        if (type == TOP_TYPE) {
+            type = cpTypes[index] = referenceType(((ClassEntry)cp.entryByIndex(index)).asSymbol());
+        }
+        return type;
+    }
+
+    private MemberInfo cpIndexToMember(int index, int opcode) {
+        //member references are interned by constant pool index, so each descriptor is parsed only once per method
+        var cpe = cp.entryByIndex(index);
+        var nameAndType = opcode == INVOKEDYNAMIC ? ((DynamicConstantPoolEntry)cpe).nameAndType() : ((MemberRefEntry)cpe).nameAndType();
+        boolean isField = opcode == GETSTATIC || opcode == PUTSTATIC || opcode == GETFIELD || opcode == PUTFIELD;
+        if (index >= cpMembers.length) {
+            cpMembers = Arrays.copyOf(cpMembers, Math.max(index + 1, cp.size()));
+        }
+        if (index >= cpLimit) cpLimit = index + 1;
+        var info = cpMembers[index];
+        if (info == null || info.isField() != isField) {
+            if (isField) {
+                var desc = Util.fieldTypeSymbol(nameAndType);
+                info = new MemberInfo(valueType(desc), Util.isDoubleSlot(desc) ? 2 : 1, false, true);
+            } else {
+                var mDesc = Util.methodTypeSymbol(nameAndType);
+                info = new MemberInfo(valueType(mDesc.returnType()), Util.parameterSlots(mDesc),
+                                      OBJECT_INITIALIZER_NAME.equals(nameAndType.name().stringValue()), false);
+            }
+            cpMembers[index] = info;
+        }
+        return info;
     }
 
+    /**
+     * Type information of a field or method reference
+     * @param type field type or method return type, {@link #VOID_TYPE} for void methods
+     * @param slots field size or method parameters size in slots
+     * @param isInit whether the method is an instance initializer
+     * @param isField whether the reference is a field reference
+     */
+    private record MemberInfo(int type, int slots, boolean isInit, boolean isField) {}
+
     private void processMethod() {
-        currentFrame.setLocalsFromArg(methodName, methodDesc, isStatic, thisType);
-        currentFrame.stackSize = 0;
-        currentFrame.flags = 0;
-        currentFrame.offset = -1;
-        int stackmapIndex = 0;
+        worklist.clear();
+        worklist.set(blockRanks[0]);
+        for (int i = 0; i < frames.size(); i++) {
+            //frames seeded from the original stack map
+            if (frames.get(i).dirty) worklist.set(blockRanks[i + 1]);
+        }
         RawBytecodeHelper bcs = new RawBytecodeHelper(bytecode);
-        boolean ncf = false;
-        while (!bcs.isLastBytecode()) {
-            bcs.rawNext();
-            currentFrame.offset = bcs.bci;
-            if (stackmapIndex < frames.size()) {
-                int thisOffset = frames.get(stackmapIndex).offset;
-                if (ncf && thisOffset > bcs.bci) {
+        for (int rank = worklist.nextSetBit(0); rank >= 0; rank = worklist.nextSetBit(0)) {
+            worklist.clear(rank);
+            int block = blockOrder[rank];
+            int start;
+            if (block == 0) {
+                currentFrame.setLocalsFromArg(methodName, methodDesc, isStatic, thisType);
+                currentFrame.stackSize = 0;
+                currentFrame.flags = 0;
+                currentFrame.offset = -1;
+                start = 0;
+            } else {
+                var frame = frames.get(block - 1);
+                frame.dirty = false;
+                currentFrame.offset = frame.offset;
+                currentFrame.copyFrom(frame);
+                start = frame.offset;
+            }
+            int end = block < frames.size() ? frames.get(block).offset : bcs.endBci;
+            bcs.nextBci = start;
+            boolean ncf = false;
+            while (bcs.nextBci < end && !bcs.isLastBytecode()) {
+                bcs.rawNext();
+                currentFrame.offset = bcs.bci;
+                if (ncf) {
                     throw generatorError("Expecting a stack map frame");
                 }
-                if (thisOffset == bcs.bci) {
-                    if (!ncf) {
-                        currentFrame.checkAssignableTo(frames.get(stackmapIndex));
-                    }
-                    Frame nextFrame = frames.get(stackmapIndex++);
-                    while (!nextFrame.dirty) { //skip unmatched frames
-                        if (stackmapIndex == frames.size()) return; //skip the rest of this round
-                        nextFrame = frames.get(stackmapIndex++);
-                    }
-                    bcs.rawNext(nextFrame.offset); //skip code up-to the next frame
-                    currentFrame.offset = bcs.bci;
-                    currentFrame.copyFrom(nextFrame);
-                    nextFrame.dirty = false;
-                } else if (thisOffset < bcs.bci) {
-                    throw new ClassFormatError(String.format("Bad stack map offset %d", thisOffset));
+                ncf = processBlock(bcs);
+            }
+            if (block < frames.size()) {
+                if (bcs.nextBci > end) {
+                    throw new ClassFormatError(String.format("Bad stack map offset %d", end));
+                }
+                if (!ncf) {
+                    //fall through to the next block
+                    currentFrame.offset = end;
+                    checkAssignableTo(currentFrame, block);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes reverse postorder of the code blocks from the control flow recorded by {@link #detectFrameOffsets()}.
+     * Code blocks not reachable from the method entry follow in the order of their offsets.
+     */
+    private void computeBlockOrder() {
+        int blocksCount = frames.size() + 1;
+        blockOrder = scratch.blockOrder = Scratch.ints(scratch.blockOrder, blocksCount);
+        blockRanks = scratch.blockRanks = Scratch.ints(scratch.blockRanks, blocksCount);
+        if (blocksCount == 1) {
+            //single code block, no control flow to order
+            blockOrder[0] = blockRanks[0] = 0;
+            return;
+        }
+        //successors of each block, sorted by source block into the compressed adjacency arrays
+        int edgesCount = 0;
+        int[] edgeSources = Scratch.ints(scratch.edgeSources, blocksCount + jumpsCount / 2 + rawHandlers.size());
+        int[] edgeTargets = Scratch.ints(scratch.edgeTargets, edgeSources.length);
+        for (int b = 0; b < frames.size(); b++) {
+            if (!flowBreaks.get(frames.get(b).offset)) {
+                edgeSources[edgesCount] = b;
+                edgeTargets[edgesCount++] = b + 1;
+            }
+        }
+        //jumps are recorded in the order of their offsets
+        for (int i = 0, source = 0; i < jumpsCount; i += 2) {
+            while (source < frames.size() && frames.get(source).offset <= jumps[i]) source++;
+            edgeSources[edgesCount] = source;
+            edgeTargets[edgesCount++] = blockIndex(jumps[i + 1]);
+        }
+        for (var exhandler : rawHandlers) {
+            int handlerIndex = frameIndex(exhandler.handler());
+            if (handlerIndex < 0) continue;
+            for (int b = blockIndex(exhandler.start()), last = blockIndex(exhandler.end() - 1); b <= last; b++) {
+                if (edgesCount == edgeSources.length || edgesCount == edgeTargets.length) {
+                    edgeSources = Arrays.copyOf(edgeSources, edgesCount * 2);
+                    edgeTargets = Arrays.copyOf(edgeTargets, edgesCount * 2);
+                }
+                edgeSources[edgesCount] = b;
+                edgeTargets[edgesCount++] = handlerIndex + 1;
+            }
+        }
+        scratch.edgeSources = edgeSources;
+        scratch.edgeTargets = edgeTargets;
+        int[] successorsStart = scratch.successorsStart = Scratch.ints(scratch.successorsStart, blocksCount + 1);
+        Arrays.fill(successorsStart, 0, blocksCount + 1, 0);
+        for (int i = 0; i < edgesCount; i++) {
+            successorsStart[edgeSources[i]]++;
+        }
+        for (int b = 1; b <= blocksCount; b++) {
+            successorsStart[b] += successorsStart[b - 1];
+        }
+        int[] successors = scratch.successors = Scratch.ints(scratch.successors, edgesCount);
+        for (int i = edgesCount - 1; i >= 0; i--) {
+            successors[--successorsStart[edgeSources[i]]] = edgeTargets[i];
+        }
+        for (int b = 0; b < blocksCount; b++) {
+            Arrays.sort(successors, successorsStart[b], successorsStart[b + 1]);
+        }
+
+        //iterative depth-first search from the method entry, visiting successors from the highest offset,
+        //so the reverse postorder keeps sibling blocks in the order of their offsets
+        Arrays.fill(blockRanks, 0, blocksCount, -1);
+        int[] stack = scratch.dfsStack = Scratch.ints(scratch.dfsStack, blocksCount);
+        int[] next = scratch.dfsNext = Scratch.ints(scratch.dfsNext, blocksCount);
+        int depth = 0, postCount = 0;
+        stack[depth++] = 0;
+        blockRanks[0] = 0;
+        next[0] = successorsStart[1];
+        while (depth > 0) {
+            int b = stack[depth - 1];
+            if (next[b] > successorsStart[b]) {
+                int s = successors[--next[b]];
+                if (blockRanks[s] < 0) {
+                    blockRanks[s] = 0;
+                    next[s] = successorsStart[s + 1];
+                    stack[depth++] = s;
                 }
-            } else if (ncf) {
-                throw generatorError("Expecting a stack map frame");
+            } else {
+                depth--;
+                blockOrder[postCount++] = b;
             }
-            ncf = processBlock(bcs);
+        }
+        //reverse the postorder and append unreachable blocks
+        for (int i = 0, j = postCount - 1; i < j; i++, j--) {
+            int t = blockOrder[i];
+            blockOrder[i] = blockOrder[j];
+            blockOrder[j] = t;
+        }
+        for (int b = 0; b < blocksCount; b++) {
+            if (blockRanks[b] < 0) blockOrder[postCount++] = b;
+        }
+        for (int rank = 0; rank < blocksCount; rank++) {
+            blockRanks[blockOrder[rank]] = rank;
         }
     }
 
@@ -447,7 +1045,7 @@ public final class StackMapGenerator {
         boolean this_uninit = false;
         boolean verified_exc_handlers = false;
         int bci = bcs.bci;
-        Type type1, type2, type3, type4;
+        int type1, type2, type3, type4;
         if (RawBytecodeHelper.isStoreIntoLocal(opcode) && bci >= exMin && bci < exMax) {
             processExceptionHandlerTargets(bci, this_uninit);
             verified_exc_handlers = true;
@@ -458,65 +1056,65 @@ public final class StackMapGenerator {
                 ncf = true;
             }
             case ACONST_NULL ->
-                currentFrame.pushStack(Type.NULL_TYPE);
+                currentFrame.pushStack(NULL_TYPE);
             case ICONST_M1, ICONST_0, ICONST_1, ICONST_2, ICONST_3, ICONST_4, ICONST_5, SIPUSH, BIPUSH ->
-                currentFrame.pushStack(Type.INTEGER_TYPE);
+                currentFrame.pushStack(INTEGER_TYPE);
             case LCONST_0, LCONST_1 ->
-                currentFrame.pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.pushStack(LONG_TYPE, LONG2_TYPE);
             case FCONST_0, FCONST_1, FCONST_2 ->
-                currentFrame.pushStack(Type.FLOAT_TYPE);
+                currentFrame.pushStack(FLOAT_TYPE);
             case DCONST_0, DCONST_1 ->
-                currentFrame.pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case LDC ->
                 processLdc(bcs.getIndexU1());
             case LDC_W, LDC2_W ->
                 processLdc(bcs.getIndexU2());
             case ILOAD ->
-                currentFrame.checkLocal(bcs.getIndex()).pushStack(Type.INTEGER_TYPE);
+                currentFrame.checkLocal(bcs.getIndex()).pushStack(INTEGER_TYPE);
             case ILOAD_0, ILOAD_1, ILOAD_2, ILOAD_3 ->
-                currentFrame.checkLocal(opcode - ILOAD_0).pushStack(Type.INTEGER_TYPE);
+                currentFrame.checkLocal(opcode - ILOAD_0).pushStack(INTEGER_TYPE);
             case LLOAD ->
-                currentFrame.checkLocal(bcs.getIndex() + 1).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.checkLocal(bcs.getIndex() + 1).pushStack(LONG_TYPE, LONG2_TYPE);
             case LLOAD_0, LLOAD_1, LLOAD_2, LLOAD_3 ->
-                currentFrame.checkLocal(opcode - LLOAD_0 + 1).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.checkLocal(opcode - LLOAD_0 + 1).pushStack(LONG_TYPE, LONG2_TYPE);
             case FLOAD ->
-                currentFrame.checkLocal(bcs.getIndex()).pushStack(Type.FLOAT_TYPE);
+                currentFrame.checkLocal(bcs.getIndex()).pushStack(FLOAT_TYPE);
             case FLOAD_0, FLOAD_1, FLOAD_2, FLOAD_3 ->
-                currentFrame.checkLocal(opcode - FLOAD_0).pushStack(Type.FLOAT_TYPE);
+                currentFrame.checkLocal(opcode - FLOAD_0).pushStack(FLOAT_TYPE);
             case DLOAD ->
-                currentFrame.checkLocal(bcs.getIndex() + 1).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.checkLocal(bcs.getIndex() + 1).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case DLOAD_0, DLOAD_1, DLOAD_2, DLOAD_3 ->
-                currentFrame.checkLocal(opcode - DLOAD_0 + 1).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.checkLocal(opcode - DLOAD_0 + 1).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case ALOAD ->
                 currentFrame.pushStack(currentFrame.getLocal(bcs.getIndex()));
             case ALOAD_0, ALOAD_1, ALOAD_2, ALOAD_3 ->
                 currentFrame.pushStack(currentFrame.getLocal(opcode - ALOAD_0));
             case IALOAD, BALOAD, CALOAD, SALOAD ->
-                currentFrame.decStack(2).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(2).pushStack(INTEGER_TYPE);
             case LALOAD ->
-                currentFrame.decStack(2).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(2).pushStack(LONG_TYPE, LONG2_TYPE);
             case FALOAD ->
-                currentFrame.decStack(2).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(2).pushStack(FLOAT_TYPE);
             case DALOAD ->
-                currentFrame.decStack(2).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(2).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case AALOAD ->
-                currentFrame.pushStack((type1 = currentFrame.decStack(1).popStack()) == Type.NULL_TYPE ? Type.NULL_TYPE : type1.getComponent());
+                currentFrame.pushStack((type1 = currentFrame.decStack(1).popStack()) == NULL_TYPE ? NULL_TYPE : getComponent(type1));
             case ISTORE ->
-                currentFrame.decStack(1).setLocal(bcs.getIndex(), Type.INTEGER_TYPE);
+                currentFrame.decStack(1).setLocal(bcs.getIndex(), INTEGER_TYPE);
             case ISTORE_0, ISTORE_1, ISTORE_2, ISTORE_3 ->
-                currentFrame.decStack(1).setLocal(opcode - ISTORE_0, Type.INTEGER_TYPE);
+                currentFrame.decStack(1).setLocal(opcode - ISTORE_0, INTEGER_TYPE);
             case LSTORE ->
-                currentFrame.decStack(2).setLocal2(bcs.getIndex(), Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(2).setLocal2(bcs.getIndex(), LONG_TYPE, LONG2_TYPE);
             case LSTORE_0, LSTORE_1, LSTORE_2, LSTORE_3 ->
-                currentFrame.decStack(2).setLocal2(opcode - LSTORE_0, Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(2).setLocal2(opcode - LSTORE_0, LONG_TYPE, LONG2_TYPE);
             case FSTORE ->
-                currentFrame.decStack(1).setLocal(bcs.getIndex(), Type.FLOAT_TYPE);
+                currentFrame.decStack(1).setLocal(bcs.getIndex(), FLOAT_TYPE);
             case FSTORE_0, FSTORE_1, FSTORE_2, FSTORE_3 ->
-                currentFrame.decStack(1).setLocal(opcode - FSTORE_0, Type.FLOAT_TYPE);
+                currentFrame.decStack(1).setLocal(opcode - FSTORE_0, FLOAT_TYPE);
             case DSTORE ->
-                currentFrame.decStack(2).setLocal2(bcs.getIndex(), Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(2).setLocal2(bcs.getIndex(), DOUBLE_TYPE, DOUBLE2_TYPE);
             case DSTORE_0, DSTORE_1, DSTORE_2, DSTORE_3 ->
-                currentFrame.decStack(2).setLocal2(opcode - DSTORE_0, Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(2).setLocal2(opcode - DSTORE_0, DOUBLE_TYPE, DOUBLE2_TYPE);
             case ASTORE ->
                 currentFrame.setLocal(bcs.getIndex(), currentFrame.popStack());
             case ASTORE_0, ASTORE_1, ASTORE_2, ASTORE_3 ->
@@ -567,53 +1165,53 @@ public final class StackMapGenerator {
                 currentFrame.pushStack(type2);
             }
             case IADD, ISUB, IMUL, IDIV, IREM, ISHL, ISHR, IUSHR, IOR, IXOR, IAND ->
-                currentFrame.decStack(2).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(2).pushStack(INTEGER_TYPE);
             case INEG, ARRAYLENGTH, INSTANCEOF ->
-                currentFrame.decStack(1).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(1).pushStack(INTEGER_TYPE);
             case LADD, LSUB, LMUL, LDIV, LREM, LAND, LOR, LXOR ->
-                currentFrame.decStack(4).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(4).pushStack(LONG_TYPE, LONG2_TYPE);
             case LNEG ->
-                currentFrame.decStack(2).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(2).pushStack(LONG_TYPE, LONG2_TYPE);
             case LSHL, LSHR, LUSHR ->
-                currentFrame.decStack(3).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(3).pushStack(LONG_TYPE, LONG2_TYPE);
             case FADD, FSUB, FMUL, FDIV, FREM ->
-                currentFrame.decStack(2).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(2).pushStack(FLOAT_TYPE);
             case FNEG ->
-                currentFrame.decStack(1).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(1).pushStack(FLOAT_TYPE);
             case DADD, DSUB, DMUL, DDIV, DREM ->
-                currentFrame.decStack(4).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(4).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case DNEG ->
-                currentFrame.decStack(2).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(2).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case IINC ->
                 currentFrame.checkLocal(bcs.getIndex());
             case I2L ->
-                currentFrame.decStack(1).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(1).pushStack(LONG_TYPE, LONG2_TYPE);
             case L2I ->
-                currentFrame.decStack(2).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(2).pushStack(INTEGER_TYPE);
             case I2F ->
-                currentFrame.decStack(1).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(1).pushStack(FLOAT_TYPE);
             case I2D ->
-                currentFrame.decStack(1).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(1).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case L2F ->
-                currentFrame.decStack(2).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(2).pushStack(FLOAT_TYPE);
             case L2D ->
-                currentFrame.decStack(2).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(2).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case F2I ->
-                currentFrame.decStack(1).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(1).pushStack(INTEGER_TYPE);
             case F2L ->
-                currentFrame.decStack(1).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(1).pushStack(LONG_TYPE, LONG2_TYPE);
             case F2D ->
-                currentFrame.decStack(1).pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.decStack(1).pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case D2L ->
-                currentFrame.decStack(2).pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.decStack(2).pushStack(LONG_TYPE, LONG2_TYPE);
             case D2F ->
-                currentFrame.decStack(2).pushStack(Type.FLOAT_TYPE);
+                currentFrame.decStack(2).pushStack(FLOAT_TYPE);
             case I2B, I2C, I2S ->
-                currentFrame.decStack(1).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(1).pushStack(INTEGER_TYPE);
             case LCMP, DCMPL, DCMPG ->
-                currentFrame.decStack(4).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(4).pushStack(INTEGER_TYPE);
             case FCMPL, FCMPG, D2I ->
-                currentFrame.decStack(2).pushStack(Type.INTEGER_TYPE);
+                currentFrame.decStack(2).pushStack(INTEGER_TYPE);
             case IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE, IF_ICMPGT, IF_ICMPLE, IF_ACMPEQ, IF_ACMPNE ->
                 checkJumpTarget(currentFrame.decStack(2), bcs.dest());
             case IFEQ, IFNE, IFLT, IFGE, IFGT, IFLE, IFNULL, IFNONNULL ->
@@ -643,15 +1241,15 @@ public final class StackMapGenerator {
             case INVOKEVIRTUAL, INVOKESPECIAL, INVOKESTATIC, INVOKEINTERFACE, INVOKEDYNAMIC ->
                 this_uninit = processInvokeInstructions(bcs, (bci >= exMin && bci < exMax), this_uninit);
             case NEW ->
-                currentFrame.pushStack(Type.uninitializedType(bci));
+                currentFrame.pushStack(uninitializedType(bci));
             case NEWARRAY ->
                 currentFrame.decStack(1).pushStack(getNewarrayType(bcs.getIndex()));
             case ANEWARRAY ->
                 processAnewarray(bcs.getIndexU2());
             case CHECKCAST ->
-                currentFrame.decStack(1).pushStack(cpIndexToType(bcs.getIndexU2(), cp));
+                currentFrame.decStack(1).pushStack(cpIndexToType(bcs.getIndexU2()));
             case MULTIANEWARRAY -> {
-                type1 = cpIndexToType(bcs.getIndexU2(), cp);
+                type1 = cpIndexToType(bcs.getIndexU2());
                 int dim = bcs.getU1(bcs.bci + 3);
                 for (int i = 0; i < dim; i++) {
                     currentFrame.popStack();
@@ -674,8 +1272,8 @@ public final class StackMapGenerator {
             if (bci == ex.start || (currentFrame.localsChanged && bci > ex.start && bci < ex.end)) {
                 int flags = currentFrame.flags;
                 if (this_uninit) flags |= FLAG_THIS_UNINIT;
-                Frame newFrame = currentFrame.frameInExceptionHandler(flags, ex.catchType);
-                checkJumpTarget(newFrame, ex.handler);
+                if (handlerFrame == null) handlerFrame = new Frame(-1, 0, 0, 1, null, new int[1]);
+                checkJumpTarget(currentFrame.frameInExceptionHandler(handlerFrame, flags, ex.catchType), ex.handler);
             }
         }
         currentFrame.localsChanged = false;
@@ -684,25 +1282,25 @@ public final class StackMapGenerator {
     private void processLdc(int index) {
         switch (cp.entryByIndex(index).tag()) {
             case TAG_UTF8 ->
-                currentFrame.pushStack(Type.OBJECT_TYPE);
+                currentFrame.pushStack(OBJECT_TYPE);
             case TAG_STRING ->
-                currentFrame.pushStack(Type.STRING_TYPE);
+                currentFrame.pushStack(STRING_TYPE);
             case TAG_CLASS ->
-                currentFrame.pushStack(Type.CLASS_TYPE);
+                currentFrame.pushStack(CLASS_TYPE);
             case TAG_INTEGER ->
-                currentFrame.pushStack(Type.INTEGER_TYPE);
+                currentFrame.pushStack(INTEGER_TYPE);
             case TAG_FLOAT ->
-                currentFrame.pushStack(Type.FLOAT_TYPE);
+                currentFrame.pushStack(FLOAT_TYPE);
             case TAG_DOUBLE ->
-                currentFrame.pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
+                currentFrame.pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
             case TAG_LONG ->
-                currentFrame.pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
+                currentFrame.pushStack(LONG_TYPE, LONG2_TYPE);
             case TAG_METHODHANDLE ->
-                currentFrame.pushStack(Type.METHOD_HANDLE_TYPE);
+                currentFrame.pushStack(METHOD_HANDLE_TYPE);
             case TAG_METHODTYPE ->
-                currentFrame.pushStack(Type.METHOD_TYPE);
+                currentFrame.pushStack(METHOD_TYPE);
             case TAG_CONSTANTDYNAMIC ->
-                currentFrame.pushStack(((ConstantDynamicEntry)cp.entryByIndex(index)).asSymbol().constantType());
+                currentFrame.pushValue(valueType(((ConstantDynamicEntry)cp.entryByIndex(index)).asSymbol().constantType()));
             default ->
                 throw generatorError("CP entry #%d %s is not loadable constant".formatted(index, cp.entryByIndex(index).tag()));
         }
@@ -749,49 +1347,40 @@ public final class StackMapGenerator {
     }
 
     private void processFieldInstructions(RawBytecodeHelper bcs) {
-        var desc = Util.fieldTypeSymbol(((MemberRefEntry)cp.entryByIndex(bcs.getIndexU2())).nameAndType());
+        var field = cpIndexToMember(bcs.getIndexU2(), bcs.rawCode);
         switch (bcs.rawCode) {
             case GETSTATIC ->
-                currentFrame.pushStack(desc);
-            case PUTSTATIC -> {
-                currentFrame.popStack();
-                if (Util.isDoubleSlot(desc)) currentFrame.popStack();
-            }
+                currentFrame.pushValue(field.type());
+            case PUTSTATIC ->
+                currentFrame.decStack(field.slots());
             case GETFIELD -> {
                 currentFrame.popStack();
-                currentFrame.pushStack(desc);
-            }
-            case PUTFIELD -> {
-                currentFrame.popStack();
-                currentFrame.popStack();
-                if (Util.isDoubleSlot(desc)) currentFrame.popStack();
+                currentFrame.pushValue(field.type());
             }
+            case PUTFIELD ->
+                currentFrame.decStack(field.slots() + 1);
             default -> throw new AssertionError("Should not reach here");
         }
     }
 
     private boolean processInvokeInstructions(RawBytecodeHelper bcs, boolean inTryBlock, boolean thisUninit) {
-        int index = bcs.getIndexU2();
         int opcode = bcs.rawCode;
-        var cpe = cp.entryByIndex(index);
-        var nameAndType = opcode == INVOKEDYNAMIC ? ((DynamicConstantPoolEntry)cpe).nameAndType() : ((MemberRefEntry)cpe).nameAndType();
-        String invokeMethodName = nameAndType.name().stringValue();
-        var mDesc = Util.methodTypeSymbol(nameAndType);
+        var method = cpIndexToMember(bcs.getIndexU2(), opcode);
         int bci = bcs.bci;
-        currentFrame.decStack(Util.parameterSlots(mDesc));
+        currentFrame.decStack(method.slots());
         if (opcode != INVOKESTATIC && opcode != INVOKEDYNAMIC) {
-            if (OBJECT_INITIALIZER_NAME.equals(invokeMethodName)) {
-                Type type = currentFrame.popStack();
-                if (type == Type.UNITIALIZED_THIS_TYPE) {
+            if (method.isInit()) {
+                int type = currentFrame.popStack();
+                if (type == UNITIALIZED_THIS_TYPE) {
                     if (inTryBlock) {
                         processExceptionHandlerTargets(bci, true);
                     }
                     currentFrame.initializeObject(type, thisType);
                     thisUninit = true;
-                } else if (type.tag == ITEM_UNINITIALIZED) {
-                    int new_offset = type.bci;
+                } else if (tag(type) == ITEM_UNINITIALIZED) {
+                    int new_offset = uninitializedBci(type);
                     int new_class_index = bcs.getIndexU2Raw(new_offset + 1);
-                    Type new_class_type = cpIndexToType(new_class_index, cp);
+                    int new_class_type = cpIndexToType(new_class_index);
                     if (inTryBlock) {
                         processExceptionHandlerTargets(bci, thisUninit);
                     }
@@ -803,18 +1392,18 @@ public final class StackMapGenerator {
                 currentFrame.popStack();
             }
         }
-        currentFrame.pushStack(mDesc.returnType());
+        currentFrame.pushValue(method.type());
         return thisUninit;
     }
 
-    private Type getNewarrayType(int index) {
+    private int getNewarrayType(int index) {
         if (index < T_BOOLEAN || index > T_LONG) throw generatorError("Illegal newarray instruction type %d".formatted(index));
         return ARRAY_FROM_BASIC_TYPE[index];
     }
 
     private void processAnewarray(int index) {
         currentFrame.popStack();
-        currentFrame.pushStack(cpIndexToType(index, cp).toArray());
+        currentFrame.pushStack(toArray(cpIndexToType(index)));
     }
 
     /**
@@ -839,7 +1428,7 @@ public final class StackMapGenerator {
         //try to attach debug info about corrupted bytecode to the message
         try {
             var cc = ClassFile.of();
-            var clm = cc.parse(cc.build(cp.classEntry(thisType.sym()), cp, clb ->
+            var clm = cc.parse(cc.build(cp.classEntry(thisClass), cp, clb ->
                     clb.withMethod(methodName, methodDesc, isStatic ? ACC_STATIC : 0, mb ->
                             ((DirectMethodBuilder)mb).writeAttribute(new UnboundAttribute.AdHocAttribute<CodeAttribute>(Attributes.CODE) {
                                 @Override
@@ -875,13 +1464,44 @@ public final class StackMapGenerator {
      * @return <code>java.lang.BitSet</code> of detected frames offsets
      */
     private BitSet detectFrameOffsets() {
-        var offsets = new BitSet() {
-            @Override
-            public void set(int i) {
-                if (i < 0 || i >= bytecode.capacity()) throw new IllegalArgumentException();
-                super.set(i);
+        var offsets = scratch.frameOffsets;
+        if (recordedFlow != null) {
+            detectRecordedFrameOffsets(offsets);
+        } else {
+            scanFrameOffsets(offsets);
+        }
+        for (var exhandler : rawHandlers) try {
+             setFrameOffset(offsets, exhandler.handler());
+        } catch (IllegalArgumentException iae) {
+            if (!filterDeadLabels)
+                throw generatorError("Detected exception handler out of bytecode range");
+        }
+        return offsets;
+    }
+
+    private void detectRecordedFrameOffsets(BitSet offsets) {
+        var dcb = recordedFlow;
+        for (int i = 0; i < dcb.flowBreaksCount; i++) {
+            //no control flow at the end of the code is not followed by a frame
+            int bci = dcb.flowBreaks[i];
+            if (bci < bytecode.capacity()) {
+                setFrameOffset(offsets, bci);
+                flowBreaks.set(bci);
             }
-        };
+        }
+        for (int i = 0; i < dcb.jumpsCount; i++) {
+            int bci = dcb.jumpSources[i];
+            int target = labelContext.labelToBci(dcb.jumpTargets[i]);
+            try {
+                setFrameOffset(offsets, target);
+            } catch (IllegalArgumentException iae) {
+                throw generatorError("Detected branch target out of bytecode range", bci);
+            }
+            addJump(bci, target);
+        }
+    }
+
+    private void scanFrameOffsets(BitSet offsets) {
         RawBytecodeHelper bcs = new RawBytecodeHelper(bytecode);
         boolean no_control_flow = false;
         int opcode, bci = 0;
@@ -889,22 +1509,26 @@ public final class StackMapGenerator {
             opcode = bcs.rawNext();
             bci = bcs.bci;
             if (no_control_flow) {
-                offsets.set(bci);
+                setFrameOffset(offsets, bci);
+                flowBreaks.set(bci);
             }
             no_control_flow = switch (opcode) {
                 case GOTO -> {
-                            offsets.set(bcs.dest());
+                            setFrameOffset(offsets, bcs.dest());
+                            addJump(bci, bcs.dest());
                             yield true;
                         }
                 case GOTO_W -> {
-                            offsets.set(bcs.destW());
+                            setFrameOffset(offsets, bcs.destW());
+                            addJump(bci, bcs.destW());
                             yield true;
                         }
                 case IF_ICMPEQ, IF_ICMPNE, IF_ICMPLT, IF_ICMPGE,
                      IF_ICMPGT, IF_ICMPLE, IFEQ, IFNE,
                      IFLT, IFGE, IFGT, IFLE, IF_ACMPEQ,
                      IF_ACMPNE , IFNULL , IFNONNULL -> {
-                            offsets.set(bcs.dest());
+                            setFrameOffset(offsets, bcs.dest());
+                            addJump(bci, bcs.dest());
                             yield false;
                         }
                 case TABLESWITCH, LOOKUPSWITCH -> {
@@ -920,9 +1544,12 @@ public final class StackMapGenerator {
                                 keys = bcs.getInt(aligned_bci + 4);
                                 delta = 2;
                             }
-                            offsets.set(bci + default_ofset);
+                            setFrameOffset(offsets, bci + default_ofset);
+                            addJump(bci, bci + default_ofset);
                             for (int i = 0; i < keys; i++) {
-                                offsets.set(bci + bcs.getInt(aligned_bci + (3 + i * delta) * 4));
+                                int target = bci + bcs.getInt(aligned_bci + (3 + i * delta) * 4);
+                                setFrameOffset(offsets, target);
+                                addJump(bci, target);
                             }
                             yield true;
                         }
@@ -933,13 +1560,19 @@ public final class StackMapGenerator {
         } catch (IllegalArgumentException iae) {
             throw generatorError("Detected branch target out of bytecode range", bci);
         }
-        for (var exhandler : rawHandlers) try {
-             offsets.set(exhandler.handler());
-        } catch (IllegalArgumentException iae) {
-            if (!filterDeadLabels)
-                throw generatorError("Detected exception handler out of bytecode range");
+    }
+
+    private void setFrameOffset(BitSet offsets, int offset) {
+        if (offset < 0 || offset >= bytecode.capacity()) throw new IllegalArgumentException();
+        offsets.set(offset);
+    }
+
+    private void addJump(int bci, int target) {
+        if (jumpsCount == jumps.length) {
+            jumps = Arrays.copyOf(jumps, jumpsCount * 2);
         }
-        return offsets;
+        jumps[jumpsCount++] = bci;
+        jumps[jumpsCount++] = target;
     }
 
     private final class Frame {
@@ -951,64 +1584,57 @@ public final class StackMapGenerator {
         boolean dirty = false;
         boolean localsChanged = false;
 
-        private final ClassHierarchyImpl classHierarchy;
-
-        private Type[] locals, stack;
+        private int[] locals, stack;
 
-        Frame(ClassHierarchyImpl classHierarchy) {
-            this(-1, 0, 0, 0, null, null, classHierarchy);
+        Frame() {
+            this(-1, 0, 0, 0, null, null);
         }
 
-        Frame(int offset, ClassHierarchyImpl classHierarchy) {
-            this(offset, -1, 0, 0, null, null, classHierarchy);
+        Frame(int offset) {
+            this(offset, -1, 0, 0, null, null);
         }
 
-        Frame(int offset, int flags, int locals_size, int stack_size, Type[] locals, Type[] stack, ClassHierarchyImpl classHierarchy) {
+        Frame(int offset, int flags, int locals_size, int stack_size, int[] locals, int[] stack) {
             this.offset = offset;
             this.localsSize = locals_size;
             this.stackSize = stack_size;
             this.flags = flags;
             this.locals = locals;
             this.stack = stack;
-            this.classHierarchy = classHierarchy;
         }
 
         @Override
         public String toString() {
-            return (dirty ? "frame* @" : "frame @") + offset + " with locals " + (locals == null ? "[]" : Arrays.asList(locals).subList(0, localsSize)) + " and stack " + (stack == null ? "[]" : Arrays.asList(stack).subList(0, stackSize));
-        }
-
-        Frame pushStack(ClassDesc desc) {
-            return switch (desc.descriptorString().charAt(0)) {
-                case 'J' ->
-                    pushStack(Type.LONG_TYPE, Type.LONG2_TYPE);
-                case 'D' ->
-                    pushStack(Type.DOUBLE_TYPE, Type.DOUBLE2_TYPE);
-                case 'I', 'Z', 'B', 'C', 'S' ->
-                    pushStack(Type.INTEGER_TYPE);
-                case 'F' ->
-                    pushStack(Type.FLOAT_TYPE);
-                case 'V' ->
+            return (dirty ? "frame* @" : "frame @") + offset + " with locals " + typesToString(locals, localsSize) + " and stack " + typesToString(stack, stackSize);
+        }
+
+        Frame pushValue(int type) {
+            return switch (type) {
+                case LONG_TYPE ->
+                    pushStack(LONG_TYPE, LONG2_TYPE);
+                case DOUBLE_TYPE ->
+                    pushStack(DOUBLE_TYPE, DOUBLE2_TYPE);
+                case VOID_TYPE ->
                     this;
                 default ->
-                    pushStack(Type.referenceType(desc));
+                    pushStack(type);
             };
         }
 
-        Frame pushStack(Type type) {
+        Frame pushStack(int type) {
             checkStack(stackSize);
             stack[stackSize++] = type;
             return this;
         }
 
-        Frame pushStack(Type type1, Type type2) {
+        Frame pushStack(int type1, int type2) {
             checkStack(stackSize + 1);
             stack[stackSize++] = type1;
             stack[stackSize++] = type2;
             return this;
         }
 
-        Type popStack() {
+        int popStack() {
             if (stackSize < 1) throw generatorError("Operand stack underflow");
             return stack[--stackSize];
         }
@@ -1019,37 +1645,41 @@ public final class StackMapGenerator {
             return this;
         }
 
-        Frame frameInExceptionHandler(int flags, Type excType) {
-            return new Frame(offset, flags, localsSize, 1, locals, new Type[] {excType}, classHierarchy);
+        Frame frameInExceptionHandler(Frame handlerFrame, int flags, int excType) {
+            //the handler frame shares the locals, it is only used as a source of the jump target checks
+            handlerFrame.offset = offset;
+            handlerFrame.flags = flags;
+            handlerFrame.localsSize = localsSize;
+            handlerFrame.locals = locals;
+            handlerFrame.stack[0] = excType;
+            return handlerFrame;
         }
 
-        void initializeObject(Type old_object, Type new_object) {
+        void initializeObject(int old_object, int new_object) {
             int i;
             for (i = 0; i < localsSize; i++) {
-                if (locals[i].equals(old_object)) {
+                if (locals[i] == old_object) {
                     locals[i] = new_object;
                     localsChanged = true;
                 }
             }
             for (i = 0; i < stackSize; i++) {
-                if (stack[i].equals(old_object)) {
+                if (stack[i] == old_object) {
                     stack[i] = new_object;
                 }
             }
-            if (old_object == Type.UNITIALIZED_THIS_TYPE) {
+            if (old_object == UNITIALIZED_THIS_TYPE) {
                 flags = 0;
             }
         }
 
         Frame checkLocal(int index) {
             if (index >= frameMaxLocals) frameMaxLocals = index + 1;
+            //new slots are filled with zeros, which stand for TOP_TYPE
             if (locals == null) {
-                locals = new Type[index + FRAME_DEFAULT_CAPACITY];
-                Arrays.fill(locals, Type.TOP_TYPE);
+                locals = new int[index + FRAME_DEFAULT_CAPACITY];
             } else if (index >= locals.length) {
-                int current = locals.length;
                 locals = Arrays.copyOf(locals, index + FRAME_DEFAULT_CAPACITY);
-                Arrays.fill(locals, current, locals.length, Type.TOP_TYPE);
             }
             return this;
         }
@@ -1057,27 +1687,24 @@ public final class StackMapGenerator {
         private void checkStack(int index) {
             if (index >= frameMaxStack) frameMaxStack = index + 1;
             if (stack == null) {
-                stack = new Type[index + FRAME_DEFAULT_CAPACITY];
-                Arrays.fill(stack, Type.TOP_TYPE);
+                stack = new int[index + FRAME_DEFAULT_CAPACITY];
             } else if (index >= stack.length) {
-                int current = stack.length;
                 stack = Arrays.copyOf(stack, index + FRAME_DEFAULT_CAPACITY);
-                Arrays.fill(stack, current, stack.length, Type.TOP_TYPE);
             }
         }
 
-        private void setLocalRawInternal(int index, Type type) {
+        private void setLocalRawInternal(int index, int type) {
             checkLocal(index);
-            localsChanged |= !type.equals(locals[index]);
+            localsChanged |= type != locals[index];
             locals[index] = type;
         }
 
-        void setLocalsFromArg(String name, MethodTypeDesc methodDesc, boolean isStatic, Type thisKlass) {
+        void setLocalsFromArg(String name, MethodTypeDesc methodDesc, boolean isStatic, int thisKlass) {
             localsSize = 0;
             if (!isStatic) {
                 localsSize++;
-                if (OBJECT_INITIALIZER_NAME.equals(name) && !CD_Object.equals(thisKlass.sym)) {
-                    setLocal(0, Type.UNITIALIZED_THIS_TYPE);
+                if (OBJECT_INITIALIZER_NAME.equals(name) && thisKlass != OBJECT_TYPE) {
+                    setLocal(0, UNITIALIZED_THIS_TYPE);
                     flags |= FLAG_THIS_UNINIT;
                 } else {
                     setLocalRawInternal(0, thisKlass);
@@ -1086,31 +1713,31 @@ public final class StackMapGenerator {
             for (int i = 0; i < methodDesc.parameterCount(); i++) {
                 var desc = methodDesc.parameterType(i);
                 if (desc.isClassOrInterface() || desc.isArray()) {
-                    setLocalRawInternal(localsSize++, Type.referenceType(desc));
+                    setLocalRawInternal(localsSize++, referenceType(desc));
                 } else switch (desc.descriptorString().charAt(0)) {
                     case 'J' -> {
-                        setLocalRawInternal(localsSize++, Type.LONG_TYPE);
-                        setLocalRawInternal(localsSize++, Type.LONG2_TYPE);
+                        setLocalRawInternal(localsSize++, LONG_TYPE);
+                        setLocalRawInternal(localsSize++, LONG2_TYPE);
                     }
                     case 'D' -> {
-                        setLocalRawInternal(localsSize++, Type.DOUBLE_TYPE);
-                        setLocalRawInternal(localsSize++, Type.DOUBLE2_TYPE);
+                        setLocalRawInternal(localsSize++, DOUBLE_TYPE);
+                        setLocalRawInternal(localsSize++, DOUBLE2_TYPE);
                     }
                     case 'I', 'Z', 'B', 'C', 'S' ->
-                        setLocalRawInternal(localsSize++, Type.INTEGER_TYPE);
+                        setLocalRawInternal(localsSize++, INTEGER_TYPE);
                     case 'F' ->
-                        setLocalRawInternal(localsSize++, Type.FLOAT_TYPE);
+                        setLocalRawInternal(localsSize++, FLOAT_TYPE);
                     default -> throw new AssertionError("Should not reach here");
                 }
             }
         }
 
         void copyFrom(Frame src) {
-            if (locals != null && src.localsSize < locals.length) Arrays.fill(locals, src.localsSize, locals.length, Type.TOP_TYPE);
+            if (locals != null && src.localsSize < locals.length) Arrays.fill(locals, src.localsSize, locals.length, TOP_TYPE);
             localsSize = src.localsSize;
             checkLocal(src.localsSize - 1);
             if (src.localsSize > 0) System.arraycopy(src.locals, 0, locals, 0, src.localsSize);
-            if (stack != null && src.stackSize < stack.length) Arrays.fill(stack, src.stackSize, stack.length, Type.TOP_TYPE);
+            if (stack != null && src.stackSize < stack.length) Arrays.fill(stack, src.stackSize, stack.length, TOP_TYPE);
             stackSize = src.stackSize;
             checkStack(src.stackSize - 1);
             if (src.stackSize > 0) System.arraycopy(src.stack, 0, stack, 0, src.stackSize);
@@ -1138,33 +1765,33 @@ public final class StackMapGenerator {
                     throw generatorError("Stack size mismatch");
                 }
                 for (int i = 0; i < target.stackSize; i++) {
-                    if (merge(stack[i], target.stack, i, target) == Type.TOP_TYPE) {
+                    if (merge(stack[i], target.stack, i, target) == TOP_TYPE) {
                         throw generatorError("Stack content mismatch");
                     }
                 }
             }
         }
 
-        private Type getLocalRawInternal(int index) {
+        private int getLocalRawInternal(int index) {
             checkLocal(index);
             return locals[index];
         }
 
-        Type getLocal(int index) {
-            Type ret = getLocalRawInternal(index);
+        int getLocal(int index) {
+            int ret = getLocalRawInternal(index);
             if (index >= localsSize) {
                 localsSize = index + 1;
             }
             return ret;
         }
 
-        void setLocal(int index, Type type) {
-            Type old = getLocalRawInternal(index);
-            if (old == Type.DOUBLE_TYPE || old == Type.LONG_TYPE) {
-                setLocalRawInternal(index + 1, Type.TOP_TYPE);
+        void setLocal(int index, int type) {
+            int old = getLocalRawInternal(index);
+            if (old == DOUBLE_TYPE || old == LONG_TYPE) {
+                setLocalRawInternal(index + 1, TOP_TYPE);
             }
-            if (old == Type.DOUBLE2_TYPE || old == Type.LONG2_TYPE) {
-                setLocalRawInternal(index - 1, Type.TOP_TYPE);
+            if (old == DOUBLE2_TYPE || old == LONG2_TYPE) {
+                setLocalRawInternal(index - 1, TOP_TYPE);
             }
             setLocalRawInternal(index, type);
             if (index >= localsSize) {
@@ -1172,14 +1799,14 @@ public final class StackMapGenerator {
             }
         }
 
-        void setLocal2(int index, Type type1, Type type2) {
-            Type old = getLocalRawInternal(index + 1);
-            if (old == Type.DOUBLE_TYPE || old == Type.LONG_TYPE) {
-                setLocalRawInternal(index + 2, Type.TOP_TYPE);
+        void setLocal2(int index, int type1, int type2) {
+            int old = getLocalRawInternal(index + 1);
+            if (old == DOUBLE_TYPE || old == LONG_TYPE) {
+                setLocalRawInternal(index + 2, TOP_TYPE);
             }
             old = getLocalRawInternal(index);
-            if (old == Type.DOUBLE2_TYPE || old == Type.LONG2_TYPE) {
-                setLocalRawInternal(index - 1, Type.TOP_TYPE);
+            if (old == DOUBLE2_TYPE || old == LONG2_TYPE) {
+                setLocalRawInternal(index - 1, TOP_TYPE);
             }
             setLocalRawInternal(index, type1);
             setLocalRawInternal(index + 1, type2);
@@ -1188,21 +1815,21 @@ public final class StackMapGenerator {
             }
         }
 
-        private Type merge(Type me, Type[] toTypes, int i, Frame target) {
-            var to = toTypes[i];
-            var newTo = to.mergeFrom(me, classHierarchy);
-            if (to != newTo && !to.equals(newTo)) {
+        private int merge(int me, int[] toTypes, int i, Frame target) {
+            int to = toTypes[i];
+            int newTo = mergeFrom(to, me);
+            if (to != newTo) {
                 toTypes[i] = newTo;
                 target.dirty = true;
             }
             return newTo;
         }
 
-        private static int trimAndCompress(Type[] types, int count) {
-            while (count > 0 && types[count - 1] == Type.TOP_TYPE) count--;
+        private static int trimAndCompress(int[] types, int count) {
+            while (count > 0 && types[count - 1] == TOP_TYPE) count--;
             int compressed = 0;
             for (int i = 0; i < count; i++) {
-                if (!types[i].isCategory2_2nd()) {
+                if (!isCategory2_2nd(types[i])) {
                     types[compressed++] = types[i];
                 }
             }
@@ -1214,7 +1841,7 @@ public final class StackMapGenerator {
             stackSize = trimAndCompress(stack, stackSize);
         }
 
-        private static boolean equals(Type[] l1, Type[] l2, int commonSize) {
+        private static boolean equals(int[] l1, int[] l2, int commonSize) {
             if (l1 == null || l2 == null) return commonSize == 0;
             return Arrays.equals(l1, 0, commonSize, l2, 0, commonSize);
         }
@@ -1230,7 +1857,7 @@ public final class StackMapGenerator {
                     } else {   //chop, same extended or append frame
                         out.writeU1(251 + diffLocalsSize);
                         out.writeU2(offsetDelta);
-                        for (int i=commonLocalsSize; i<localsSize; i++) locals[i].writeTo(out, cp);
+                        for (int i=commonLocalsSize; i<localsSize; i++) writeType(out, locals[i], cp);
                     }
                     return;
                 }
@@ -1241,187 +1868,226 @@ public final class StackMapGenerator {
                     out.writeU1(247);
                     out.writeU2(offsetDelta);
                 }
-                stack[0].writeTo(out, cp);
+                writeType(out, stack[0], cp);
                 return;
             }
             //full frame
             out.writeU1(255);
             out.writeU2(offsetDelta);
             out.writeU2(localsSize);
-            for (int i=0; i<localsSize; i++) locals[i].writeTo(out, cp);
+            for (int i=0; i<localsSize; i++) writeType(out, locals[i], cp);
             out.writeU2(stackSize);
-            for (int i=0; i<stackSize; i++) stack[i].writeTo(out, cp);
+            for (int i=0; i<stackSize; i++) writeType(out, stack[i], cp);
         }
     }
 
-    private static record Type(int tag, ClassDesc sym, int bci) {
+    //------ int-coded types
 
-        //singleton types
-        static final Type TOP_TYPE = simpleType(ITEM_TOP),
-                NULL_TYPE = simpleType(ITEM_NULL),
-                INTEGER_TYPE = simpleType(ITEM_INTEGER),
-                FLOAT_TYPE = simpleType(ITEM_FLOAT),
-                LONG_TYPE = simpleType(ITEM_LONG),
-                LONG2_TYPE = simpleType(ITEM_LONG_2ND),
-                DOUBLE_TYPE = simpleType(ITEM_DOUBLE),
-                BOOLEAN_TYPE = simpleType(ITEM_BOOLEAN),
-                BYTE_TYPE = simpleType(ITEM_BYTE),
-                CHAR_TYPE = simpleType(ITEM_CHAR),
-                SHORT_TYPE = simpleType(ITEM_SHORT),
-                DOUBLE2_TYPE = simpleType(ITEM_DOUBLE_2ND),
-                UNITIALIZED_THIS_TYPE = simpleType(ITEM_UNINITIALIZED_THIS);
+    private static int predefinedType(int symbolIndex) {
+        return (symbolIndex << TYPE_TAG_BITS) | ITEM_OBJECT;
+    }
 
-        //frequently used types to reduce footprint
-        static final Type OBJECT_TYPE = referenceType(CD_Object),
-            THROWABLE_TYPE = referenceType(CD_Throwable),
-            INT_ARRAY_TYPE = referenceType(CD_int.arrayType()),
-            BOOLEAN_ARRAY_TYPE = referenceType(CD_boolean.arrayType()),
-            BYTE_ARRAY_TYPE = referenceType(CD_byte.arrayType()),
-            CHAR_ARRAY_TYPE = referenceType(CD_char.arrayType()),
-            SHORT_ARRAY_TYPE = referenceType(CD_short.arrayType()),
-            LONG_ARRAY_TYPE = referenceType(CD_long.arrayType()),
-            DOUBLE_ARRAY_TYPE = referenceType(CD_double.arrayType()),
-            FLOAT_ARRAY_TYPE = referenceType(CD_float.arrayType()),
-            STRING_TYPE = referenceType(CD_String),
-            CLASS_TYPE = referenceType(CD_Class),
-            METHOD_HANDLE_TYPE = referenceType(CD_MethodHandle),
-            METHOD_TYPE = referenceType(CD_MethodType);
+    private static int tag(int type) {
+        return type & TYPE_TAG_MASK;
+    }
 
-        private static Type simpleType(int tag) {
-            return new Type(tag, null, 0);
-        }
+    private static int uninitializedType(int bci) {
+        return (bci << TYPE_TAG_BITS) | ITEM_UNINITIALIZED;
+    }
 
-        static Type referenceType(ClassDesc desc) {
-            return new Type(ITEM_OBJECT, desc, 0);
-        }
+    private static int uninitializedBci(int type) {
+        return type >>> TYPE_TAG_BITS;
+    }
 
-        static Type uninitializedType(int bci) {
-            return new Type(ITEM_UNINITIALIZED, null, bci);
-        }
+    private static boolean isCategory2_2nd(int type) {
+        return type == DOUBLE2_TYPE || type == LONG2_TYPE;
+    }
 
-        @Override //mandatory override to avoid use of method reference during JDK bootstrap
-        public boolean equals(Object o) {
-            return (o instanceof Type t) && t.tag == tag && t.bci == bci && Objects.equals(sym, t.sym);
-        }
+    private static boolean isReference(int type) {
+        return tag(type) == ITEM_OBJECT || type == NULL_TYPE;
+    }
 
-        boolean isCategory2_2nd() {
-            return this == DOUBLE2_TYPE || this == LONG2_TYPE;
+    private int referenceType(ClassDesc desc) {
+        var predefined = PREDEFINED_SYMBOL_INDEXES.get(desc);
+        if (predefined != null) {
+            return predefinedType(predefined);
         }
-
-        boolean isReference() {
-            return tag == ITEM_OBJECT || this == NULL_TYPE;
+        var index = symbolIndexes.get(desc);
+        if (index == null) {
+            if (symbolsCount == symbols.length) {
+                symbols = Arrays.copyOf(symbols, symbolsCount * 2);
+                componentTypes = Arrays.copyOf(componentTypes, symbolsCount * 2);
+                arrayTypes = Arrays.copyOf(arrayTypes, symbolsCount * 2);
+            }
+            symbols[symbolsCount] = desc;
+            index = PREDEFINED_SYMBOLS.length + symbolsCount++;
+            symbolIndexes.put(desc, index);
         }
+        return predefinedType(index);
+    }
 
-        boolean isObject() {
-            return tag == ITEM_OBJECT && sym.isClassOrInterface();
+    private ClassDesc symbol(int type) {
+        int index = type >>> TYPE_TAG_BITS;
+        return index < PREDEFINED_SYMBOLS.length ? PREDEFINED_SYMBOLS[index] : symbols[index - PREDEFINED_SYMBOLS.length];
+    }
+
+    private int valueType(ClassDesc desc) {
+        return switch (desc.descriptorString().charAt(0)) {
+            case 'J' -> LONG_TYPE;
+            case 'D' -> DOUBLE_TYPE;
+            case 'I', 'Z', 'B', 'C', 'S' -> INTEGER_TYPE;
+            case 'F' -> FLOAT_TYPE;
+            case 'V' -> VOID_TYPE;
+            default -> referenceType(desc);
+        };
+    }
+
+    private boolean isObject(int type) {
+        return tag(type) == ITEM_OBJECT && symbol(type).isClassOrInterface();
+    }
+
+    private boolean isArray(int type) {
+        return tag(type) == ITEM_OBJECT && symbol(type).isArray();
+    }
+
+    private int mergeFrom(int to, int from) {
+        if (to == TOP_TYPE || to == from) {
+            return to;
+        } else {
+            return switch (tag(to)) {
+                case ITEM_BOOLEAN, ITEM_BYTE, ITEM_CHAR, ITEM_SHORT ->
+                    from == INTEGER_TYPE ? to : TOP_TYPE;
+                default ->
+                    isReference(to) && isReference(from) ? mergeReferenceFrom(to, from) : TOP_TYPE;
+            };
         }
+    }
 
-        boolean isArray() {
-            return tag == ITEM_OBJECT && sym.isArray();
+    private int mergeComponentFrom(int to, int from) {
+        if (to == TOP_TYPE || to == from) {
+            return to;
+        } else {
+            return switch (tag(to)) {
+                case ITEM_BOOLEAN, ITEM_BYTE, ITEM_CHAR, ITEM_SHORT ->
+                    TOP_TYPE;
+                default ->
+                    isReference(to) && isReference(from) ? mergeReferenceFrom(to, from) : TOP_TYPE;
+            };
         }
+    }
 
-        Type mergeFrom(Type from, ClassHierarchyImpl context) {
-            if (this == TOP_TYPE || this == from || equals(from)) {
-                return this;
-            } else {
-                return switch (tag) {
-                    case ITEM_BOOLEAN, ITEM_BYTE, ITEM_CHAR, ITEM_SHORT ->
-                        from == INTEGER_TYPE ? this : TOP_TYPE;
-                    default ->
-                        isReference() && from.isReference() ? mergeReferenceFrom(from, context) : TOP_TYPE;
-                };
+    private int mergeReferenceFrom(int to, int from) {
+        //equal types are already handled by the callers, symbols being interned
+        if (from == NULL_TYPE) {
+            return to;
+        } else if (to == NULL_TYPE) {
+            return from;
+        } else if (isObject(to)) {
+            if (to == OBJECT_TYPE) {
+                return to;
+            }
+            var sym = symbol(to);
+            if (classHierarchy.isInterface(sym)) {
+                if (!isArray(from) || to == CLONEABLE_TYPE || to == SERIALIZABLE_TYPE) {
+                    return to;
+                }
+            } else if (isObject(from)) {
+                var anc = classHierarchy.commonAncestor(sym, symbol(from));
+                return anc == null ? to : referenceType(anc);
+            }
+        } else if (isArray(to) && isArray(from)) {
+            int compThis = getComponent(to);
+            int compFrom = getComponent(from);
+            if (compThis != TOP_TYPE && compFrom != TOP_TYPE) {
+                return toArray(mergeComponentFrom(compThis, compFrom));
             }
         }
+        return OBJECT_TYPE;
+    }
 
-        Type mergeComponentFrom(Type from, ClassHierarchyImpl context) {
-            if (this == TOP_TYPE || this == from || equals(from)) {
-                return this;
-            } else {
-                return switch (tag) {
-                    case ITEM_BOOLEAN, ITEM_BYTE, ITEM_CHAR, ITEM_SHORT ->
-                        TOP_TYPE;
-                    default ->
-                        isReference() && from.isReference() ? mergeReferenceFrom(from, context) : TOP_TYPE;
-                };
-            }
-        }
-
-        private static final ClassDesc CD_Cloneable = ClassDesc.of("java.lang.Cloneable");
-        private static final ClassDesc CD_Serializable = ClassDesc.of("java.io.Serializable");
-
-        private Type mergeReferenceFrom(Type from, ClassHierarchyImpl context) {
-            if (from == NULL_TYPE) {
-                return this;
-            } else if (this == NULL_TYPE) {
-                return from;
-            } else if (sym.equals(from.sym)) {
-                return this;
-            } else if (isObject()) {
-                if (CD_Object.equals(sym)) {
-                    return this;
+    private int toArray(int type) {
+        return switch (tag(type)) {
+            case ITEM_BOOLEAN -> BOOLEAN_ARRAY_TYPE;
+            case ITEM_BYTE -> BYTE_ARRAY_TYPE;
+            case ITEM_CHAR -> CHAR_ARRAY_TYPE;
+            case ITEM_SHORT -> SHORT_ARRAY_TYPE;
+            case ITEM_INTEGER -> INT_ARRAY_TYPE;
+            case ITEM_LONG -> LONG_ARRAY_TYPE;
+            case ITEM_FLOAT -> FLOAT_ARRAY_TYPE;
+            case ITEM_DOUBLE -> DOUBLE_ARRAY_TYPE;
+            case ITEM_OBJECT -> {
+                int index = (type >>> TYPE_TAG_BITS) - PREDEFINED_SYMBOLS.length;
+                if (index < 0) {
+                    yield referenceType(symbol(type).arrayType());
                 }
-                if (context.isInterface(sym)) {
-                    if (!from.isArray() || CD_Cloneable.equals(sym) || CD_Serializable.equals(sym)) {
-                        return this;
-                    }
-                } else if (from.isObject()) {
-                    var anc = context.commonAncestor(sym, from.sym);
-                    return anc == null ? this : Type.referenceType(anc);
-                }
-            } else if (isArray() && from.isArray()) {
-                Type compThis = getComponent();
-                Type compFrom = from.getComponent();
-                if (compThis != TOP_TYPE && compFrom != TOP_TYPE) {
-                    return  compThis.mergeComponentFrom(compFrom, context).toArray();
+                int arrayType = arrayTypes[index];
+                if (arrayType == TOP_TYPE) {
+                    arrayType = referenceType(symbol(type).arrayType());
+                    arrayTypes[index] = arrayType;
                 }
+                yield arrayType;
+            }
+            default -> OBJECT_TYPE;
+        };
+    }
+
+    private int getComponent(int type) {
+        if (isArray(type)) {
+            int index = (type >>> TYPE_TAG_BITS) - PREDEFINED_SYMBOLS.length;
+            if (index < 0) {
+                return componentOf(symbol(type));
             }
-            return OBJECT_TYPE;
-        }
-
-        Type toArray() {
-            return switch (tag) {
-                case ITEM_BOOLEAN -> BOOLEAN_ARRAY_TYPE;
-                case ITEM_BYTE -> BYTE_ARRAY_TYPE;
-                case ITEM_CHAR -> CHAR_ARRAY_TYPE;
-                case ITEM_SHORT -> SHORT_ARRAY_TYPE;
-                case ITEM_INTEGER -> INT_ARRAY_TYPE;
-                case ITEM_LONG -> LONG_ARRAY_TYPE;
-                case ITEM_FLOAT -> FLOAT_ARRAY_TYPE;
-                case ITEM_DOUBLE -> DOUBLE_ARRAY_TYPE;
-                case ITEM_OBJECT -> Type.referenceType(sym.arrayType());
-                default -> OBJECT_TYPE;
+            int componentType = componentTypes[index];
+            if (componentType == TOP_TYPE) {
+                componentType = componentOf(symbols[index]);
+                componentTypes[index] = componentType;
+            }
+            return componentType;
+        }
+        return TOP_TYPE;
+    }
+
+    private int componentOf(ClassDesc arrayDesc) {
+        var comp = arrayDesc.componentType();
+        if (comp.isPrimitive()) {
+            return switch (comp.descriptorString().charAt(0)) {
+                case 'Z' -> BOOLEAN_TYPE;
+                case 'B' -> BYTE_TYPE;
+                case 'C' -> CHAR_TYPE;
+                case 'S' -> SHORT_TYPE;
+                case 'I' -> INTEGER_TYPE;
+                case 'J' -> LONG_TYPE;
+                case 'F' -> FLOAT_TYPE;
+                case 'D' -> DOUBLE_TYPE;
+                default -> TOP_TYPE;
             };
         }
+        return referenceType(comp);
+    }
 
-        Type getComponent() {
-            if (isArray()) {
-                var comp = sym.componentType();
-                if (comp.isPrimitive()) {
-                    return switch (comp.descriptorString().charAt(0)) {
-                        case 'Z' -> Type.BOOLEAN_TYPE;
-                        case 'B' -> Type.BYTE_TYPE;
-                        case 'C' -> Type.CHAR_TYPE;
-                        case 'S' -> Type.SHORT_TYPE;
-                        case 'I' -> Type.INTEGER_TYPE;
-                        case 'J' -> Type.LONG_TYPE;
-                        case 'F' -> Type.FLOAT_TYPE;
-                        case 'D' -> Type.DOUBLE_TYPE;
-                        default -> Type.TOP_TYPE;
-                    };
-                }
-                return Type.referenceType(comp);
-            }
-            return Type.TOP_TYPE;
+    private void writeType(BufWriter bw, int type, ConstantPoolBuilder cp) {
+        int tag = tag(type);
+        bw.writeU1(tag);
+        switch (tag) {
+            case ITEM_OBJECT ->
+                bw.writeU2(cp.classEntry(symbol(type)).index());
+            case ITEM_UNINITIALIZED ->
+                bw.writeU2(uninitializedBci(type));
         }
+    }
 
-        void writeTo(BufWriter bw, ConstantPoolBuilder cp) {
-            bw.writeU1(tag);
-            switch (tag) {
-                case ITEM_OBJECT ->
-                    bw.writeU2(cp.classEntry(sym).index());
-                case ITEM_UNINITIALIZED ->
-                    bw.writeU2(bci);
+    private String typesToString(int[] types, int count) {
+        if (types == null) return "[]";
+        var sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            int type = types[i];
+            switch (tag(type)) {
+                case ITEM_OBJECT -> sb.append(symbol(type).displayName());
+                case ITEM_UNINITIALIZED -> sb.append("uninitialized(").append(uninitializedBci(type)).append(')');
+                default -> sb.append("item(").append(type).append(')');
             }
         }
+        return sb.append(']').toString();
     }
 }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2024, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.glavo.classfile.impl;
+
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.glavo.classfile.jdk.ClassDescUtils;
+
+/**
+ * A pool of the class names and descriptors inflated from the constant pools of
+ * the classfiles parsed by the contexts sharing an {@linkplain
+ * org.glavo.classfile.ClassFile.InterningOption interning option}, and of their
+ * symbols. Each map is cleared when it reaches {@code MAX_SIZE} entries, so the
+ * pool does not grow with the number of classfiles parsed; the values already
+ * handed out stay valid, they are only no longer shared with later ones.
+ */
+public final class SymbolPool {
+
+    private static final int MAX_SIZE = 1 << 16;
+
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    // keyed by internal name or array descriptor, as in class entries
+    private final ConcurrentHashMap<String, ClassDesc> classes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ClassDesc> fieldTypes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MethodTypeDesc> methodTypes = new ConcurrentHashMap<>();
+
+    public String intern(String s) {
+        String prev = putIfAbsent(strings, s, s);
+        return prev == null ? s : prev;
+    }
+
+    private static <K, V> V putIfAbsent(ConcurrentHashMap<K, V> map, K key, V value) {
+        if (map.size() >= MAX_SIZE)
+            map.clear();
+        return map.putIfAbsent(key, value);
+    }
+
+    public ClassDesc classDesc(String internalNameOrArrayDesc) {
+        var cd = classes.get(internalNameOrArrayDesc);
+        if (cd == null) {
+            cd = internalNameOrArrayDesc.charAt(0) == '['
+                 ? fieldType(internalNameOrArrayDesc)
+                 : ClassDescUtils.ofInternalName(internalNameOrArrayDesc);
+            var prev = putIfAbsent(classes, internalNameOrArrayDesc, cd);
+            if (prev != null)
+                cd = prev;
+        }
+        return cd;
+    }
+
+    public ClassDesc fieldType(String descriptor) {
+        var cd = fieldTypes.get(descriptor);
+        if (cd == null) {
+            // classes share their symbol with the class entries
+            int last = descriptor.length() - 1;
+            cd = descriptor.charAt(0) == 'L' && last > 1 && descriptor.charAt(last) == ';'
+                 ? classDesc(descriptor.substring(1, last))
+                 : ClassDesc.ofDescriptor(descriptor);
+            var prev = putIfAbsent(fieldTypes, descriptor, cd);
+            if (prev != null)
+                cd = prev;
+        }
+        return cd;
+    }
+
+    public MethodTypeDesc methodType(String descriptor) {
+        var mtd = methodTypes.get(descriptor);
+        if (mtd == null) {
+            mtd = MethodTypeDesc.ofDescriptor(descriptor);
+            var params = mtd.parameterArray();
+            for (int i = 0; i < params.length; i++)
+                params[i] = fieldType(params[i].descriptorString());
+            mtd = MethodTypeDesc.of(fieldType(mtd.returnType().descriptorString()), params);
+            var prev = putIfAbsent(methodTypes, descriptor, mtd);
+            if (prev != null)
+                mtd = prev;
+        }
+        return mtd;
+    }
+}
@@ -36,6 +36,7 @@ import org.glavo.classfile.constant.ModuleDesc;
 import org.glavo.classfile.constantpool.ClassEntry;
 import org.glavo.classfile.constantpool.ModuleEntry;
 import org.glavo.classfile.constantpool.NameAndTypeEntry;
+import org.glavo.classfile.constantpool.Utf8Entry;
 import org.glavo.classfile.jdk.ClassDescUtils;
 import org.glavo.classfile.jdk.CollectionUtils;
 
@@ -178,6 +179,21 @@ public class Util {
         return ((AbstractPoolEntry.NameAndTypeEntryImpl)nat).methodTypeSymbol();
     }
 
+    public static ClassDesc fieldTypeSymbol(Utf8Entry descriptor) {
+        return ((AbstractPoolEntry.Utf8EntryImpl)descriptor).fieldTypeSymbol();
+    }
+
+    public static MethodTypeDesc methodTypeSymbol(Utf8Entry descriptor) {
+        return ((AbstractPoolEntry.Utf8EntryImpl)descriptor).methodTypeSymbol();
+    }
+
+    public static int parameterSlots(NameAndTypeEntry nat) {
+        var mtd = ((AbstractPoolEntry.NameAndTypeEntryImpl)nat).typeSym;
+        return mtd instanceof MethodTypeDesc md
+               ? parameterSlots(md)
+               : ((AbstractPoolEntry.Utf8EntryImpl)nat.type()).parameterSlots();
+    }
+
     public static int slotSize(ClassDesc desc) {
         return switch (desc.descriptorString().charAt(0)) {
             case 'V' -> 0;
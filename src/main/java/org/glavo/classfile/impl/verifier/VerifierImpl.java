@@ -108,6 +108,10 @@ public final class VerifierImpl {
     }
 
     public static List<VerifyError> verify(ClassModel classModel, ClassHierarchyResolver classHierarchyResolver, Consumer<String> logger) {
+        return verify(classModel, new ClassHierarchyImpl(classHierarchyResolver), logger);
+    }
+
+    public static List<VerifyError> verify(ClassModel classModel, ClassHierarchyImpl classHierarchy, Consumer<String> logger) {
         var klass = new VerificationWrapper(classModel);
         if (!is_eligible_for_verification(klass)) {
             return List.of();
@@ -115,7 +119,7 @@ public final class VerifierImpl {
         log_info(logger, "Start class verification for: %s", klass.thisClassName());
         try {
             if (klass.majorVersion() >= STACKMAP_ATTRIBUTE_MAJOR_VERSION) {
-                var errors = new VerifierImpl(klass, classHierarchyResolver, logger).verify_class();
+                var errors = new VerifierImpl(klass, classHierarchy, logger).verify_class();
                 if (!errors.isEmpty() && klass.majorVersion() < NOFAILOVER_MAJOR_VERSION) {
                     log_info(logger, "Fail over class verification to old verifier for: %s", klass.thisClassName());
                     return inference_verify(klass);
@@ -227,9 +231,9 @@ public final class VerifierImpl {
     private static final int STATIC_METHOD_IN_INTERFACE_MAJOR_VERSION = 52;
     private static final int MAX_ARRAY_DIMENSIONS = 255;
 
-    VerifierImpl(VerificationWrapper klass, ClassHierarchyResolver classHierarchyResolver, Consumer<String> logger) {
+    VerifierImpl(VerificationWrapper klass, ClassHierarchyImpl classHierarchy, Consumer<String> logger) {
         _klass = klass;
-        _class_hierarchy = new ClassHierarchyImpl(classHierarchyResolver);
+        _class_hierarchy = classHierarchy;
         _this_type = VerificationType.reference_type(klass.thisClassName());
         _logger = logger;
     }
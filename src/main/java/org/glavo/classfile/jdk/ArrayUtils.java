@@ -3,7 +3,20 @@ package org.glavo.classfile.jdk;
 public final class ArrayUtils {
     public static int signedHashCode(int result, byte[] a, int fromIndex, int length) {
         int end = fromIndex + length;
-        for (int i = fromIndex; i < end; i++) {
+        int i = fromIndex;
+        // eight bytes per step, breaking the dependency on the previous result
+        for (; i <= end - 8; i += 8) {
+            result = 31 * 31 * 31 * 31 * 31 * 31 * 31 * 31 * result
+                     + 31 * 31 * 31 * 31 * 31 * 31 * 31 * (a[i] & 0xff)
+                     + 31 * 31 * 31 * 31 * 31 * 31 * (a[i + 1] & 0xff)
+                     + 31 * 31 * 31 * 31 * 31 * (a[i + 2] & 0xff)
+                     + 31 * 31 * 31 * 31 * (a[i + 3] & 0xff)
+                     + 31 * 31 * 31 * (a[i + 4] & 0xff)
+                     + 31 * 31 * (a[i + 5] & 0xff)
+                     + 31 * (a[i + 6] & 0xff)
+                     + (a[i + 7] & 0xff);
+        }
+        for (; i < end; i++) {
             result = 31 * result + (a[i] & 0xff);
         }
         return result;
@@ -0,0 +1,128 @@
+/*
+ * @test
+ * @summary Testing the annotation index component.
+ * @run junit AnnotationIndexTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.components.AnnotationIndex;
+import org.glavo.classfile.components.AnnotationIndex.Target;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnotationIndexTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Visible {
+        String value() default "";
+    }
+
+    @Retention(RetentionPolicy.CLASS)
+    @interface Invisible {
+    }
+
+    @Visible("a")
+    static class A {
+        @Invisible
+        int field;
+
+        @Visible
+        @Invisible
+        void method(String s) {
+        }
+    }
+
+    @Visible("b")
+    @Invisible
+    static class B {
+    }
+
+    private static final ClassDesc VISIBLE = ClassDesc.of("AnnotationIndexTest$Visible");
+    private static final ClassDesc INVISIBLE = ClassDesc.of("AnnotationIndexTest$Invisible");
+    private static final ClassDesc CD_A = ClassDesc.of("AnnotationIndexTest$A");
+    private static final ClassDesc CD_B = ClassDesc.of("AnnotationIndexTest$B");
+
+    private static byte[] classBytes(Class<?> c) throws IOException {
+        try (InputStream in = c.getResourceAsStream(c.getName() + ".class")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String describe(Target t) {
+        return t.kind() + " " + t.owner().displayName()
+               + t.memberName().map(n -> "." + n).orElse("")
+               + t.memberType().orElse("")
+               + (t.runtimeVisible() ? " visible" : " invisible");
+    }
+
+    private static void assertIndex(AnnotationIndex index) {
+        assertEquals(List.of(INVISIBLE, VISIBLE), index.annotationTypes());
+        //the members of a class come before the class, as in the classfile
+        assertEquals(List.of("METHOD AnnotationIndexTest$A.method(Ljava/lang/String;)V visible",
+                             "CLASS AnnotationIndexTest$A visible",
+                             "CLASS AnnotationIndexTest$B visible"),
+                     index.find(VISIBLE).stream().map(AnnotationIndexTest::describe).toList());
+        assertEquals(List.of("FIELD AnnotationIndexTest$A.fieldI invisible",
+                             "METHOD AnnotationIndexTest$A.method(Ljava/lang/String;)V invisible",
+                             "CLASS AnnotationIndexTest$B invisible"),
+                     index.find(INVISIBLE).stream().map(AnnotationIndexTest::describe).toList());
+        var a = index.find(VISIBLE).get(1);
+        assertEquals(CD_A, a.owner());
+        assertEquals(Optional.empty(), a.memberName());
+        assertEquals(CD_B, index.find(INVISIBLE).get(2).owner());
+        assertTrue(index.find(ClassDesc.of("java.lang.Deprecated")).isEmpty());
+    }
+
+    @Test
+    void testIndex() throws IOException {
+        var index = AnnotationIndex.of(List.of(classBytes(A.class), new byte[] {1, 2, 3}, classBytes(B.class)));
+        assertIndex(index);
+    }
+
+    @Test
+    void testWriteAndOpen() throws IOException {
+        var dir = Files.createTempDirectory("annotationIndex");
+        try {
+            Files.write(dir.resolve("A.class"), classBytes(A.class));
+            Files.write(dir.resolve("B.class"), classBytes(B.class));
+            Files.write(dir.resolve("C.class"), new byte[] {(byte) 0xCA, (byte) 0xFE});
+            var index = AnnotationIndex.ofClassPath(List.of(dir, dir.resolve("missing.jar")));
+            assertIndex(index);
+
+            Path indexFile = dir.resolve("index").resolve("annotations.idx");
+            index.write(indexFile);
+            assertIndex(AnnotationIndex.open(indexFile));
+            byte[] content = Files.readAllBytes(indexFile);
+
+            Files.write(indexFile, new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+            assertThrows(IOException.class, () -> AnnotationIndex.open(indexFile));
+
+            //offsets and counts beyond the end of the file are rejected when opening, not when finding
+            Files.write(indexFile, Arrays.copyOf(content, content.length - 1));
+            assertThrows(IOException.class, () -> AnnotationIndex.open(indexFile));
+            int stringCount = ByteBuffer.wrap(content).getInt(8);
+            int typesPos = 12 + stringCount * 4;
+            for (int pos : new int[] {12, typesPos + 4 + 8, typesPos}) {
+                var corrupted = ByteBuffer.wrap(content.clone()).putInt(pos, Integer.MAX_VALUE - 8);
+                Files.write(indexFile, corrupted.array());
+                assertThrows(IOException.class, () -> AnnotationIndex.open(indexFile));
+            }
+        } finally {
+            try (var s = Files.walk(dir)) {
+                s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * @test
+ * @summary Testing ClassFile batch transformation.
+ * @run junit BatchTransformTest
+ */
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassTransform;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTransformTest {
+
+    private static final int COUNT = 100;
+
+    private static byte[] classBytes(int i) {
+        return ClassFile.of().build(ClassDesc.of("test.C" + i), clb -> clb.withField("f" + i, ClassDesc.of("java.lang.String"), 0));
+    }
+
+    private static final ClassTransform RENAME_FIELDS = (clb, cle) -> {
+        if (cle instanceof org.glavo.classfile.FieldModel fm) {
+            clb.withField("renamed_" + fm.fieldName().stringValue(), fm.fieldTypeSymbol(), fm.flags().flagsMask());
+        } else {
+            clb.with(cle);
+        }
+    };
+
+    private static void assertResults(List<ClassFile.BatchResult> results, boolean named) {
+        assertEquals(COUNT, results.size());
+        for (int i = 0; i < COUNT; i++) {
+            var r = results.get(i);
+            assertEquals(i, r.index());
+            assertNull(r.error());
+            var cm = ClassFile.of().parse(r.bytes());
+            if (named) {
+                assertEquals(cm.thisClass().asInternalName() + ".class", r.name());
+            } else {
+                assertNull(r.name());
+                assertEquals("test/C" + i, cm.thisClass().asInternalName());
+            }
+            assertEquals("renamed_f" + cm.thisClass().asInternalName().substring(6),
+                         cm.fields().get(0).fieldName().stringValue());
+        }
+    }
+
+    @Test
+    void testStreamKeepsOrder() {
+        var results = new ArrayList<ClassFile.BatchResult>();
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            ClassFile.of().transformAll(IntStream.range(0, COUNT).mapToObj(BatchTransformTest::classBytes),
+                                        RENAME_FIELDS, executor, results::add);
+        } finally {
+            executor.shutdown();
+        }
+        assertResults(results, false);
+    }
+
+    @Test
+    void testErrorsPerClass() {
+        var results = new ArrayList<ClassFile.BatchResult>();
+        ClassFile.of().transformAll(Stream.of(classBytes(0), new byte[] {1, 2, 3}, classBytes(2)),
+                                    ClassTransform.ACCEPT_ALL, results::add);
+        assertEquals(3, results.size());
+        assertNotNull(results.get(0).bytes());
+        assertNull(results.get(1).bytes());
+        assertInstanceOf(IllegalArgumentException.class, results.get(1).error());
+        assertNotNull(results.get(2).bytes());
+    }
+
+    @Test
+    void testHandlerFailureCancelsPending() {
+        //the first task runs at once, the others are queued until the batch is aborted
+        var queued = new ArrayList<Runnable>();
+        var transformed = new AtomicInteger();
+        Executor executor = task -> {
+            if (transformed.get() == 0 && queued.isEmpty())
+                task.run();
+            else
+                queued.add(task);
+        };
+        var e = assertThrows(IllegalStateException.class, () ->
+                ClassFile.of().transformAll(IntStream.range(0, COUNT).mapToObj(BatchTransformTest::classBytes),
+                                            ClassTransform.endHandler(clb -> transformed.incrementAndGet()),
+                                            executor, r -> { throw new IllegalStateException("handler"); }));
+        assertEquals("handler", e.getMessage());
+        assertFalse(queued.isEmpty());
+        queued.forEach(Runnable::run);
+        assertEquals(1, transformed.get());
+    }
+
+    @Test
+    void testDirectory(@TempDir Path dir) throws IOException {
+        for (int i = 0; i < COUNT; i++) {
+            Path file = dir.resolve("test/C" + i + ".class");
+            Files.createDirectories(file.getParent());
+            Files.write(file, classBytes(i));
+        }
+        Files.writeString(dir.resolve("test/resource.txt"), "not a class");
+        var results = new ArrayList<ClassFile.BatchResult>();
+        ClassFile.of().transformAll(dir, RENAME_FIELDS, results::add);
+        assertResults(results, true);
+        for (int i = 1; i < COUNT; i++) {
+            assertTrue(results.get(i - 1).name().compareTo(results.get(i).name()) < 0);
+        }
+    }
+
+    @Test
+    void testJar(@TempDir Path dir) throws IOException {
+        Path jar = dir.resolve("test.jar");
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            for (int i = 0; i < COUNT; i++) {
+                out.putNextEntry(new JarEntry("test/C" + i + ".class"));
+                out.write(classBytes(i));
+                out.closeEntry();
+            }
+            out.putNextEntry(new JarEntry("test/resource.txt"));
+            out.closeEntry();
+        }
+        var results = new ArrayList<ClassFile.BatchResult>();
+        ClassFile.of().transformAll(jar, RENAME_FIELDS, results::add);
+        assertResults(results, true);
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals("test/C" + i + ".class", results.get(i).name());
+        }
+    }
+}
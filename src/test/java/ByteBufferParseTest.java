@@ -0,0 +1,95 @@
+/*
+ * @test
+ * @summary Testing ClassFile parsing from direct and mapped buffers.
+ * @run junit ByteBufferParseTest
+ */
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.ClassTransform;
+import org.glavo.classfile.CodeTransform;
+import org.glavo.classfile.components.ClassPrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteBufferParseTest {
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    static List<byte[]> corpus() throws IOException {
+        try (Stream<Path> s = Files.walk(JRT.getPath("modules/java.base/java/util/concurrent"))) {
+            return s.filter(p -> p.toString().endsWith(".class")).map(p -> {
+                try {
+                    return Files.readAllBytes(p);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }).toList();
+        }
+    }
+
+    private static String print(ClassModel cm) {
+        var sb = new StringBuilder();
+        ClassPrinter.toYaml(cm, ClassPrinter.Verbosity.TRACE_ALL, sb::append);
+        return sb.toString();
+    }
+
+    private static void assertSameModel(byte[] bytes, ClassModel fromBuffer) {
+        var cc = ClassFile.of();
+        var fromArray = cc.parse(bytes);
+        assertEquals(print(fromArray), print(fromBuffer));
+        assertArrayEquals(cc.transform(fromArray, ClassTransform.ACCEPT_ALL),
+                          cc.transform(fromBuffer, ClassTransform.ACCEPT_ALL));
+        var explode = ClassTransform.transformingMethodBodies(CodeTransform.ACCEPT_ALL);
+        assertArrayEquals(cc.transform(fromArray, explode),
+                          cc.transform(fromBuffer, explode));
+        assertEquals(cc.verify(fromArray), cc.verify(fromBuffer));
+    }
+
+    @Test
+    void testDirectBuffer() throws IOException {
+        for (byte[] bytes : corpus()) {
+            var buffer = ByteBuffer.allocateDirect(bytes.length + 16);
+            buffer.position(7).put(bytes).flip().position(7);
+            assertSameModel(bytes, ClassFile.of().parse(buffer));
+            assertEquals(7, buffer.position());
+        }
+    }
+
+    @Test
+    void testHeapBufferSlice() throws IOException {
+        for (byte[] bytes : corpus()) {
+            var array = new byte[bytes.length + 16];
+            System.arraycopy(bytes, 0, array, 5, bytes.length);
+            assertSameModel(bytes, ClassFile.of().parse(ByteBuffer.wrap(array, 5, bytes.length).slice()));
+            assertSameModel(bytes, ClassFile.of().parse(ByteBuffer.wrap(array, 5, bytes.length).asReadOnlyBuffer()));
+        }
+    }
+
+    @Test
+    void testMapped(@TempDir Path dir) throws IOException {
+        byte[] bytes = corpus().get(0);
+        Path file = dir.resolve("Test.class");
+        Files.write(file, bytes);
+        assertSameModel(bytes, ClassFile.of().parseMapped(file));
+    }
+
+    @Test
+    void testTruncated() throws IOException {
+        byte[] bytes = corpus().get(0);
+        var buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip().limit(bytes.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> print(ClassFile.of().parse(buffer)));
+    }
+}
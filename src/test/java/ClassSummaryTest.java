@@ -0,0 +1,134 @@
+/*
+ * @test
+ * @summary Testing ClassFile header-only class summaries.
+ * @run junit ClassSummaryTest
+ */
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.ClassModel;
+import org.glavo.classfile.ClassSummary;
+import org.glavo.classfile.constantpool.ConstantPoolException;
+import org.glavo.classfile.constantpool.ClassEntry;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassSummaryTest {
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    static List<byte[]> corpus() throws IOException {
+        try (Stream<Path> s = Stream.concat(Files.walk(JRT.getPath("modules/java.base/java/util")),
+                                            Files.walk(JRT.getPath("modules/java.base/module-info.class")))) {
+            return s.filter(p -> p.toString().endsWith(".class")).map(p -> {
+                try {
+                    return Files.readAllBytes(p);
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }).toList();
+        }
+    }
+
+    @Test
+    void testSummaryMatchesModel() throws IOException {
+        var cc = ClassFile.of();
+        for (byte[] bytes : corpus()) {
+            ClassModel cm = cc.parse(bytes);
+            for (boolean withMembers : new boolean[] {false, true}) {
+                ClassSummary cs = cc.parseSummary(bytes, withMembers);
+                assertEquals(cm.majorVersion(), cs.majorVersion());
+                assertEquals(cm.minorVersion(), cs.minorVersion());
+                assertEquals(cm.flags().flagsMask(), cs.flags().flagsMask());
+                assertEquals(cm.thisClass().asInternalName(), cs.thisClass());
+                assertEquals(cm.superclass().map(ClassEntry::asInternalName), cs.superclass());
+                assertEquals(cm.interfaces().stream().map(ClassEntry::asInternalName).toList(), cs.interfaces());
+                assertEquals(cm.fields().size(), cs.fieldCount());
+                assertEquals(cm.methods().size(), cs.methodCount());
+                if (withMembers) {
+                    assertEquals(cm.fields().size(), cs.fields().size());
+                    for (int i = 0; i < cs.fieldCount(); i++) {
+                        var f = cm.fields().get(i);
+                        var fs = cs.fields().get(i);
+                        assertEquals(f.flags().flagsMask(), fs.flags().flagsMask());
+                        assertEquals(f.fieldName().stringValue(), fs.name());
+                        assertEquals(f.fieldType().stringValue(), fs.descriptor());
+                    }
+                    assertEquals(cm.methods().size(), cs.methods().size());
+                    for (int i = 0; i < cs.methodCount(); i++) {
+                        var m = cm.methods().get(i);
+                        var ms = cs.methods().get(i);
+                        assertEquals(m.flags().flagsMask(), ms.flags().flagsMask());
+                        assertEquals(m.methodName().stringValue(), ms.name());
+                        assertEquals(m.methodType().stringValue(), ms.descriptor());
+                    }
+                } else {
+                    assertTrue(cs.fields().isEmpty());
+                    assertTrue(cs.methods().isEmpty());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testNewerVersion() {
+        byte[] bytes = ClassFile.of().build(ClassDesc.of("Test"), clb -> clb.withVersion(ClassFile.latestMajorVersion() + 1, 0));
+        assertThrows(IllegalArgumentException.class, () -> ClassFile.of().parse(bytes));
+        assertEquals(ClassFile.latestMajorVersion() + 1, ClassFile.of().parseSummary(bytes).majorVersion());
+        assertEquals("Test", ClassFile.of().parseSummary(bytes).thisClass());
+    }
+
+    @Test
+    void testMalformedLaterEntries() {
+        int[] unused = new int[1];
+        byte[] bytes = ClassFile.of().build(ClassDesc.of("test.Header"),
+                clb -> unused[0] = clb.constantPool().classEntry(ClassDesc.of("test.Unused")).index());
+        //the name of the last class entry, following its name, is replaced by the invalid index 0
+        byte[] name = "test/Unused".getBytes();
+        int p = 0;
+        while (!Arrays.equals(bytes, p, p + name.length, name, 0, name.length))
+            p++;
+        p += name.length;
+        assertEquals(ClassFile.TAG_CLASS, bytes[p]);
+        bytes[p + 1] = 0;
+        bytes[p + 2] = 0;
+
+        //the header is read without reaching the malformed entry
+        var cs = ClassFile.of().parseSummary(bytes, true);
+        assertEquals("test/Header", cs.thisClass());
+        assertEquals(Optional.of("java/lang/Object"), cs.superclass());
+        var cm = ClassFile.of().parse(bytes);
+        assertEquals("test/Header", cm.thisClass().asInternalName());
+        assertThrows(ConstantPoolException.class, () -> cm.constantPool().entryByIndex(unused[0]));
+    }
+
+    @Test
+    void testResourceParsingResolver() {
+        byte[] iface = ClassFile.of().build(ClassDesc.of("test.I"),
+                clb -> clb.withFlags(ClassFile.ACC_INTERFACE | ClassFile.ACC_ABSTRACT));
+        byte[] cls = ClassFile.of().build(ClassDesc.of("test.C"),
+                clb -> clb.withSuperclass(ClassDesc.of("test.S")).withInterfaceSymbols(ClassDesc.of("test.I")));
+        var resolver = ClassHierarchyResolver.ofResourceParsing(cd -> switch (cd.descriptorString()) {
+            case "Ltest/I;" -> new ByteArrayInputStream(iface);
+            case "Ltest/C;" -> new ByteArrayInputStream(cls);
+            default -> null;
+        });
+        assertEquals(ClassHierarchyResolver.ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("test.I")));
+        assertEquals(ClassHierarchyResolver.ClassHierarchyInfo.ofClass(ClassDesc.of("test.S")), resolver.getClassInfo(ClassDesc.of("test.C")));
+        assertNull(resolver.getClassInfo(CD_Object));
+    }
+}
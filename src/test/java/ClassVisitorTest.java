@@ -0,0 +1,153 @@
+/*
+ * @test
+ * @summary Testing the streaming visitor parse of classfiles.
+ * @run junit ClassVisitorTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.ClassVisitor.VisitResult;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.glavo.classfile.constantpool.ClassEntry;
+import org.glavo.classfile.constantpool.ConstantPool;
+import org.glavo.classfile.constantpool.InvokeDynamicEntry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClassVisitorTest {
+
+    private static byte[] classBytes(String name) throws IOException {
+        try (InputStream in = Object.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static class Recorder implements ClassVisitor {
+        final List<String> events = new ArrayList<>();
+        ConstantPool cp;
+
+        @Override
+        public VisitResult visitClass(int majorVersion, int minorVersion, AccessFlags flags,
+                                      ClassEntry thisClass, Optional<ClassEntry> superclass, List<ClassEntry> interfaces) {
+            cp = thisClass.constantPool();
+            events.add("class " + thisClass.asInternalName() + " " + interfaces.size());
+            return VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult visitField(FieldModel field) {
+            events.add("field " + field.fieldName());
+            return VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult visitMethod(MethodModel method) {
+            events.add("method " + method.methodName() + method.methodType());
+            return VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult visitAttribute(Attribute<?> attribute) {
+            events.add("attribute " + attribute.attributeName());
+            return VisitResult.CONTINUE;
+        }
+
+        @Override
+        public VisitResult visitInstruction(InstructionCursor instruction) {
+            events.add(instruction.bci() + " " + instruction.opcode());
+            return VisitResult.CONTINUE;
+        }
+    }
+
+    private static void recordAttributes(List<String> events, AttributedElement element) {
+        for (var attr : element.attributes()) {
+            events.add("attribute " + attr.attributeName());
+            if (attr instanceof CodeAttribute code) {
+                var cursor = code.cursor();
+                while (cursor.next()) events.add(cursor.bci() + " " + cursor.opcode());
+                recordAttributes(events, code);
+            }
+        }
+    }
+
+    @Test
+    void testVisitOrder() throws IOException {
+        byte[] bytes = classBytes("/java/lang/String.class");
+        var cc = ClassFile.of();
+        var recorder = new Recorder();
+        cc.parse(bytes, recorder);
+
+        var cm = cc.parse(bytes);
+        var expected = new ArrayList<String>();
+        expected.add("class " + cm.thisClass().asInternalName() + " " + cm.interfaces().size());
+        for (var fm : cm.fields()) {
+            expected.add("field " + fm.fieldName());
+            recordAttributes(expected, fm);
+        }
+        for (var mm : cm.methods()) {
+            expected.add("method " + mm.methodName() + mm.methodType());
+            recordAttributes(expected, mm);
+        }
+        recordAttributes(expected, cm);
+        assertEquals(expected, recorder.events);
+    }
+
+    @Test
+    void testSkipAndStop() throws IOException {
+        byte[] bytes = classBytes("/java/lang/String.class");
+        var cc = ClassFile.of();
+        var cm = cc.parse(bytes);
+        //skipping the members attributes
+        var skipping = new Recorder() {
+            @Override
+            public VisitResult visitField(FieldModel field) {
+                super.visitField(field);
+                return VisitResult.SKIP;
+            }
+
+            @Override
+            public VisitResult visitMethod(MethodModel method) {
+                super.visitMethod(method);
+                return VisitResult.SKIP;
+            }
+        };
+        cc.parse(bytes, skipping);
+        assertEquals(1 + cm.fields().size() + cm.methods().size() + cm.attributes().size(), skipping.events.size());
+
+        //stopping at the first invokedynamic, resolved before the class attributes are read
+        var stopping = new Recorder() {
+            InvokeDynamicEntry indy;
+
+            @Override
+            public VisitResult visitInstruction(InstructionCursor instruction) {
+                super.visitInstruction(instruction);
+                if (instruction.opcode() == Opcode.INVOKEDYNAMIC) {
+                    indy = (InvokeDynamicEntry) cp.entryByIndex(instruction.cpIndex());
+                    return VisitResult.STOP;
+                }
+                return VisitResult.CONTINUE;
+            }
+        };
+        cc.parse(bytes, stopping);
+        assertNotNull(stopping.indy);
+        assertTrue(stopping.events.get(stopping.events.size() - 1).endsWith(" INVOKEDYNAMIC"));
+        assertNotNull(stopping.indy.bootstrap().bootstrapMethod());
+
+        //skipping the whole class
+        var nothing = new Recorder() {
+            @Override
+            public VisitResult visitClass(int majorVersion, int minorVersion, AccessFlags flags,
+                                          ClassEntry thisClass, Optional<ClassEntry> superclass, List<ClassEntry> interfaces) {
+                super.visitClass(majorVersion, minorVersion, flags, thisClass, superclass, interfaces);
+                return VisitResult.SKIP;
+            }
+        };
+        cc.parse(bytes, nothing);
+        assertEquals(1, nothing.events.size());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * @test
+ * @summary Testing memoized common ancestor resolution.
+ * @run junit CommonAncestorCacheTest
+ */
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.CodeBuilder;
+import org.glavo.classfile.impl.ClassHierarchyImpl;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_boolean;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommonAncestorCacheTest {
+
+    private static final ClassDesc A = ClassDesc.of("test.A"), B = ClassDesc.of("test.B"),
+            C = ClassDesc.of("test.C"), D = ClassDesc.of("test.D"), I = ClassDesc.of("test.I"),
+            X = ClassDesc.of("test.X"), Y = ClassDesc.of("test.Y"), MISSING = ClassDesc.of("test.Missing");
+
+    private static ClassHierarchyResolver hierarchy(AtomicInteger calls) {
+        // A <- B <- C, A <- D, X extends a missing class, Y extends X
+        Map<ClassDesc, ClassDesc> supers = new HashMap<>();
+        supers.put(A, CD_Object);
+        supers.put(B, A);
+        supers.put(C, B);
+        supers.put(D, A);
+        supers.put(X, MISSING);
+        supers.put(Y, X);
+        var resolver = ClassHierarchyResolver.of(List.of(I), supers);
+        return cd -> {
+            calls.incrementAndGet();
+            return resolver.getClassInfo(cd);
+        };
+    }
+
+    @Test
+    void testCommonAncestor() {
+        var calls = new AtomicInteger();
+        var ch = new ClassHierarchyImpl(hierarchy(calls).cachedConcurrent());
+        assertEquals(A, ch.commonAncestor(C, D));
+        assertEquals(A, ch.commonAncestor(D, C));
+        assertEquals(B, ch.commonAncestor(C, B));
+        assertEquals(CD_Object, ch.commonAncestor(C, I));
+        assertEquals(X, ch.commonAncestor(X, Y));
+        assertTrue(ch.isAssignableFrom(A, C));
+        assertFalse(ch.isAssignableFrom(C, D));
+        // memoized results, each class resolved once
+        for (int i = 0; i < 10; i++) {
+            assertEquals(A, ch.commonAncestor(C, D));
+            assertTrue(ch.isAssignableFrom(A, C));
+        }
+        assertEquals(9, calls.get());
+    }
+
+    @Test
+    void testUnresolvedNotMemoized() {
+        var ch = new ClassHierarchyImpl(hierarchy(new AtomicInteger()));
+        // the missing super class of X fails every request not matched before reaching it
+        assertThrows(IllegalArgumentException.class, () -> ch.commonAncestor(X, C));
+        assertThrows(IllegalArgumentException.class, () -> ch.commonAncestor(X, C));
+        assertThrows(IllegalArgumentException.class, () -> ch.commonAncestor(C, Y));
+        assertThrows(IllegalArgumentException.class, () -> ch.commonAncestor(MISSING, C));
+    }
+
+    private static void mergeCAndD(CodeBuilder cob) {
+        var other = cob.newLabel();
+        var merge = cob.newLabel();
+        cob.iload(0).ifeq(other)
+           .new_(C).dup().invokespecial(C, "<init>", MethodTypeDesc.of(CD_void)).goto_(merge)
+           .labelBinding(other)
+           .new_(D).dup().invokespecial(D, "<init>", MethodTypeDesc.of(CD_void))
+           .labelBinding(merge)
+           .areturn();
+    }
+
+    @Test
+    void testReusedAcrossMethods() {
+        var calls = new AtomicInteger();
+        var cc = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(hierarchy(calls)));
+        var type = MethodTypeDesc.of(A, CD_boolean);
+        cc.build(ClassDesc.of("test.M1"), clb -> clb.withMethodBody("m", type, ClassFile.ACC_STATIC, CommonAncestorCacheTest::mergeCAndD));
+        int first = calls.get();
+        assertTrue(first > 0);
+        // the stack maps of other methods built with the same option reuse the classes and the common ancestor
+        cc.build(ClassDesc.of("test.M2"), clb -> {
+            for (int i = 0; i < 3; i++) {
+                clb.withMethodBody("m" + i, type, ClassFile.ACC_STATIC, CommonAncestorCacheTest::mergeCAndD);
+            }
+        });
+        assertEquals(first, calls.get());
+    }
+}
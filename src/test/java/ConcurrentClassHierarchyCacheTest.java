@@ -0,0 +1,134 @@
+/*
+ * @test
+ * @summary Testing ClassHierarchyResolver thread-safe caching.
+ * @run junit ConcurrentClassHierarchyCacheTest
+ */
+import java.lang.constant.ClassDesc;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.ClassHierarchyResolver.ClassHierarchyInfo;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentClassHierarchyCacheTest {
+
+    private static final int THREADS = 32;
+
+    @Test
+    void testDeduplicatesInFlightLookups() throws Exception {
+        var calls = new ConcurrentHashMap<ClassDesc, AtomicInteger>();
+        var release = new CountDownLatch(1);
+        ClassHierarchyResolver slow = cd -> {
+            calls.computeIfAbsent(cd, k -> new AtomicInteger()).incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            return cd.displayName().startsWith("I") ? ClassHierarchyInfo.ofInterface() : ClassHierarchyInfo.ofClass(CD_Object);
+        };
+        var resolver = slow.cachedConcurrent();
+        var pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            var futures = new ArrayList<Future<ClassHierarchyInfo>>();
+            for (int i = 0; i < THREADS; i++) {
+                var cd = ClassDesc.of(i % 2 == 0 ? "test.C" : "test.I");
+                futures.add(pool.submit(() -> resolver.getClassInfo(cd)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (int i = 0; i < THREADS; i++) {
+                assertEquals(i % 2 == 0 ? ClassHierarchyInfo.ofClass(CD_Object) : ClassHierarchyInfo.ofInterface(),
+                             futures.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1, calls.get(ClassDesc.of("test.C")).get());
+        assertEquals(1, calls.get(ClassDesc.of("test.I")).get());
+    }
+
+    @Test
+    void testCachesUnresolved() {
+        var calls = new AtomicInteger();
+        ClassHierarchyResolver nothing = cd -> {
+            calls.incrementAndGet();
+            return null;
+        };
+        var resolver = nothing.cachedConcurrent();
+        assertNull(resolver.getClassInfo(ClassDesc.of("test.C")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("test.C")));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testFailureNotCached() {
+        var calls = new AtomicInteger();
+        ClassHierarchyResolver failing = cd -> {
+            if (calls.incrementAndGet() == 1)
+                throw new IllegalArgumentException("first");
+            return ClassHierarchyInfo.ofClass(CD_Object);
+        };
+        var resolver = failing.cachedConcurrent();
+        assertThrows(IllegalArgumentException.class, () -> resolver.getClassInfo(ClassDesc.of("test.C")));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(ClassDesc.of("test.C")));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testBounded() {
+        var calls = new AtomicInteger();
+        ClassHierarchyResolver counting = cd -> {
+            calls.incrementAndGet();
+            return ClassHierarchyInfo.ofClass(CD_Object);
+        };
+        var resolver = counting.cachedConcurrent(10);
+        var hot = ClassDesc.of("test.Hot");
+        for (int i = 0; i < 1000; i++) {
+            resolver.getClassInfo(hot);
+            resolver.getClassInfo(ClassDesc.of("test.C" + i));
+        }
+        // the hot class survives the sweeps, cold classes are evicted and resolved again
+        assertEquals(1001, calls.get());
+        resolver.getClassInfo(ClassDesc.of("test.C0"));
+        assertEquals(1002, calls.get());
+        assertThrows(IllegalArgumentException.class, () -> counting.cachedConcurrent(-1));
+    }
+
+    @Test
+    void testHotSubsetSurvives() {
+        var calls = new ConcurrentHashMap<ClassDesc, AtomicInteger>();
+        ClassHierarchyResolver counting = cd -> {
+            calls.computeIfAbsent(cd, k -> new AtomicInteger()).incrementAndGet();
+            return ClassHierarchyInfo.ofClass(CD_Object);
+        };
+        var resolver = counting.cachedConcurrent(64);
+        var hot = new ArrayList<ClassDesc>();
+        for (int i = 0; i < 64; i++) {
+            var cd = ClassDesc.of("test.C" + i);
+            resolver.getClassInfo(cd);
+            if (i % 8 == 0)
+                hot.add(cd);
+        }
+        for (int i = 64; i < 2000; i++) {
+            hot.forEach(resolver::getClassInfo);
+            resolver.getClassInfo(ClassDesc.of("test.C" + i));
+        }
+        // the hot classes are read between the sweeps, so they are never evicted
+        for (var cd : hot) {
+            assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(cd));
+            assertEquals(1, calls.get(cd).get(), cd.displayName());
+        }
+        resolver.getClassInfo(ClassDesc.of("test.C1"));
+        assertEquals(2, calls.get(ClassDesc.of("test.C1")).get());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * @test
+ * @summary Testing stack maps regeneration reusing the original frames.
+ * @run junit IncrementalStackMapsTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.StackMapFrameInfo;
+import org.glavo.classfile.instruction.ExceptionCatch;
+import org.glavo.classfile.instruction.ReturnInstruction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalStackMapsTest {
+
+    static class Sample {
+        static int loop(String s, int n) {
+            CharSequence cs = s;
+            int sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += cs.length();
+                if (sum > 100) cs = new StringBuilder(s);
+            }
+            return sum;
+        }
+
+        static int guarded(String s) {
+            try {
+                return Integer.parseInt(s);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static final ClassDesc CD_CharSequence = ClassDesc.of("java.lang.CharSequence");
+
+    private static byte[] sampleBytes() throws IOException {
+        try (InputStream in = IncrementalStackMapsTest.class.getResourceAsStream("IncrementalStackMapsTest$Sample.class")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static ClassTransform prologue(boolean dropHandlers) {
+        return ClassTransform.transformingMethodBodies(new CodeTransform() {
+            @Override
+            public void atStart(CodeBuilder cob) {
+                cob.iconst_0().pop();
+            }
+
+            @Override
+            public void accept(CodeBuilder cob, CodeElement coe) {
+                if (!(dropHandlers && coe instanceof ExceptionCatch)) cob.with(coe);
+            }
+        });
+    }
+
+    private static List<StackMapFrameInfo> frames(byte[] bytes, String methodName) {
+        var code = ClassFile.of().parse(bytes).methods().stream()
+                            .filter(m -> m.methodName().equalsString(methodName))
+                            .findFirst().orElseThrow().code().orElseThrow();
+        return code.findAttribute(Attributes.STACK_MAP_TABLE).orElseThrow().entries();
+    }
+
+    private static boolean hasCharSequenceLocal(byte[] bytes) {
+        return frames(bytes, "loop").stream()
+                   .flatMap(f -> f.locals().stream())
+                   .anyMatch(t -> t instanceof StackMapFrameInfo.ObjectVerificationTypeInfo o
+                                  && o.classSymbol().equals(CD_CharSequence));
+    }
+
+    @Test
+    void testPrologueReusesOriginalFrames() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        byte[] reused = cc.transform(cc.parse(bytes), prologue(false));
+        assertTrue(cc.verify(reused).isEmpty());
+        //original frames declare the local variable type, generated frames infer it
+        assertTrue(hasCharSequenceLocal(reused));
+
+        var gen = ClassFile.of(ClassFile.StackMapsOption.GENERATE_STACK_MAPS);
+        byte[] generated = gen.transform(gen.parse(bytes), prologue(false));
+        assertTrue(gen.verify(generated).isEmpty());
+        assertFalse(hasCharSequenceLocal(generated));
+    }
+
+    @Test
+    void testChangedExceptionTable() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        var gen = ClassFile.of(ClassFile.StackMapsOption.GENERATE_STACK_MAPS);
+        byte[] transformed = cc.transform(cc.parse(bytes), prologue(true));
+        assertTrue(cc.verify(transformed).isEmpty());
+        //original frames are not applicable, so the frames are fully generated and the handler is patched as dead code
+        byte[] generated = gen.transform(gen.parse(bytes), prologue(true));
+        var expected = frames(generated, "guarded");
+        var actual = frames(transformed, "guarded");
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).locals().toString(), actual.get(i).locals().toString());
+            assertEquals(expected.get(i).stack().toString(), actual.get(i).stack().toString());
+        }
+    }
+
+    //timing agent pattern, the prologue stores into a new local loaded before each return
+    private static final ClassTransform TIMING = ClassTransform.transformingMethodBodies(new CodeTransform() {
+        private int slot;
+
+        @Override
+        public void atStart(CodeBuilder cob) {
+            slot = cob.allocateLocal(TypeKind.LongType);
+            cob.invokestatic(ClassDesc.of("java.lang.System"), "nanoTime", MethodTypeDesc.of(ConstantDescs.CD_long))
+               .lstore(slot);
+        }
+
+        @Override
+        public void accept(CodeBuilder cob, CodeElement coe) {
+            if (coe instanceof ReturnInstruction) cob.lload(slot).pop2();
+            cob.with(coe);
+        }
+    });
+
+    @Test
+    void testPrologueWithNewLocal() throws IOException {
+        var cc = ClassFile.of();
+        for (byte[] bytes : List.of(sampleBytes(), classBytes("/java/util/HashMap.class"), classBytes("/java/lang/String.class"))) {
+            byte[] transformed = cc.transform(cc.parse(bytes), TIMING);
+            assertEquals(List.of(), cc.verify(transformed));
+        }
+    }
+
+    private static byte[] classBytes(String name) throws IOException {
+        try (InputStream in = Object.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+}
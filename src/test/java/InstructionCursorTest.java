@@ -0,0 +1,96 @@
+/*
+ * @test
+ * @summary Testing the instruction cursor against the code elements.
+ * @run junit InstructionCursorTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.glavo.classfile.instruction.*;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstructionCursorTest {
+
+    private static void assertCursor(CodeAttribute code) {
+        var cursor = code.cursor();
+        int bci = 0;
+        for (var e : code) {
+            if (e instanceof Instruction i) {
+                assertTrue(cursor.next());
+                assertEquals(i.opcode(), cursor.opcode());
+                assertEquals(bci, cursor.bci());
+                assertEquals(i.sizeInBytes(), cursor.sizeInBytes());
+                int cpIndex = switch (i) {
+                    case FieldInstruction fi -> fi.field().index();
+                    case InvokeInstruction ii -> ii.method().index();
+                    case InvokeDynamicInstruction ii -> ii.invokedynamic().index();
+                    case ConstantInstruction.LoadConstantInstruction lci -> lci.constantEntry().index();
+                    case NewObjectInstruction ni -> ni.className().index();
+                    case NewReferenceArrayInstruction ni -> ni.componentType().index();
+                    case NewMultiArrayInstruction ni -> ni.arrayType().index();
+                    case TypeCheckInstruction ti -> ti.type().index();
+                    default -> -1;
+                };
+                assertEquals(cpIndex, cursor.cpIndex());
+                int slot = switch (i) {
+                    case LoadInstruction li -> li.slot();
+                    case StoreInstruction si -> si.slot();
+                    case IncrementInstruction ii -> ii.slot();
+                    case DiscontinuedInstruction.RetInstruction ri -> ri.slot();
+                    default -> -1;
+                };
+                assertEquals(slot, cursor.localSlot());
+                int target = switch (i) {
+                    case BranchInstruction bi -> code.labelToBci(bi.target());
+                    case DiscontinuedInstruction.JsrInstruction ji -> code.labelToBci(ji.target());
+                    default -> -1;
+                };
+                assertEquals(target, cursor.branchTarget());
+                assertEquals(i instanceof ConstantInstruction ci ? ci.constantValue() : null, cursor.constantValue());
+                bci += i.sizeInBytes();
+            }
+        }
+        assertFalse(cursor.next());
+        assertThrows(IllegalStateException.class, cursor::opcode);
+    }
+
+    @Test
+    void testClassCode() throws IOException {
+        byte[] bytes;
+        try (InputStream in = Object.class.getResourceAsStream("/java/lang/String.class")) {
+            bytes = in.readAllBytes();
+        }
+        for (var mm : ClassFile.of().parse(bytes).methods()) {
+            mm.code().ifPresent(code -> assertCursor((CodeAttribute) code));
+        }
+    }
+
+    @Test
+    void testWideAndFarBranches() {
+        var cc = ClassFile.of();
+        var cm = cc.parse(cc.build(ClassDesc.of("test.Wide"), clb -> clb
+                .withMethodBody("m", MethodTypeDesc.of(CD_long, CD_int), ClassFile.ACC_STATIC, cob -> {
+                    var end = cob.newLabel();
+                    cob.iload(0).ifeq(end);
+                    for (int i = 0; i < 33000; i++) cob.nop();
+                    cob.labelBinding(end)
+                       .iinc(300, 1).iload(300).i2l()
+                       .bipush(-5).pop().sipush(-300).pop().ldc(12345678L).ladd()
+                       .lreturn();
+                })));
+        var code = (CodeAttribute) cm.methods().get(0).code().orElseThrow();
+        assertCursor(code);
+        var cursor = code.cursor();
+        assertThrows(IllegalStateException.class, cursor::bci);
+        assertTrue(cursor.next());
+        assertEquals(Opcode.ILOAD_0, cursor.opcode());
+        assertEquals(0, cursor.localSlot());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * @test
+ * @summary Testing the interning of strings and symbols across a ClassFile context.
+ * @run junit InterningOptionTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.constantpool.ClassEntry;
+import org.glavo.classfile.impl.SymbolPool;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterningOptionTest {
+
+    private static byte[] classBytes(String name) throws IOException {
+        try (InputStream in = Object.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static MethodModel method(ClassModel cm, String name, String type) {
+        return cm.methods().stream()
+                 .filter(m -> m.methodName().equalsString(name) && m.methodType().equalsString(type))
+                 .findFirst().orElseThrow();
+    }
+
+    private static ClassEntry superclass(ClassModel cm) {
+        return cm.superclass().orElseThrow();
+    }
+
+    @Test
+    void testShared() throws IOException {
+        var option = ClassFile.InterningOption.of();
+        var cm1 = ClassFile.of(option).parse(classBytes("/java/lang/String.class"));
+        //another context with the same option shares the pool
+        var cm2 = ClassFile.of(option, ClassFile.DebugElementsOption.DROP_DEBUG).parse(classBytes("/java/lang/Math.class"));
+
+        assertSame(superclass(cm1).asInternalName(), superclass(cm2).asInternalName());
+        assertSame(superclass(cm1).asSymbol(), superclass(cm2).asSymbol());
+        assertSame(method(cm1, "<init>", "()V").methodType().stringValue(),
+                   method(cm2, "<init>", "()V").methodType().stringValue());
+        assertSame(method(cm1, "<init>", "()V").methodTypeSymbol(), method(cm2, "<init>", "()V").methodTypeSymbol());
+        assertSame(cm1.thisClass().asSymbol(),
+                   method(cm1, "toString", "()Ljava/lang/String;").methodTypeSymbol().returnType());
+        assertSame(method(cm1, "valueOf", "(I)Ljava/lang/String;").methodTypeSymbol().parameterType(0),
+                   method(cm2, "abs", "(I)I").methodTypeSymbol().returnType());
+
+        var field = cm1.fields().stream().filter(f -> f.fieldName().equalsString("hash")).findFirst().orElseThrow();
+        assertSame(method(cm1, "hashCode", "()I").methodTypeSymbol().returnType(), field.fieldTypeSymbol());
+    }
+
+    @Test
+    void testSharedAfterEqualsString() throws IOException {
+        var option = ClassFile.InterningOption.of();
+        var cm1 = ClassFile.of(option).parse(classBytes("/java/lang/String.class"));
+        var cm2 = ClassFile.of(option).parse(classBytes("/java/lang/Math.class"));
+        //a string compared equal to an entry not yet inflated is not adopted unless pooled
+        var name = new String("java/lang/Object");
+        assertTrue(superclass(cm1).name().equalsString(name));
+        assertTrue(superclass(cm2).name().equalsString(new String(name)));
+        assertSame(superclass(cm1).asInternalName(), superclass(cm2).asInternalName());
+    }
+
+    @Test
+    void testMalformedFieldType() {
+        var bytes = ClassFile.of().build(ClassDesc.of("Fields"), cb -> {
+            cb.withField(cb.constantPool().utf8Entry("ok"), cb.constantPool().utf8Entry("Ljava/lang/String;"), 0);
+            cb.withField(cb.constantPool().utf8Entry("bad"), cb.constantPool().utf8Entry("Lfoo"), 0);
+        });
+        var cm = ClassFile.of(ClassFile.InterningOption.of()).parse(bytes);
+        assertEquals(ClassDesc.of("java.lang.String"), cm.fields().get(0).fieldTypeSymbol());
+        assertThrows(IllegalArgumentException.class, () -> cm.fields().get(1).fieldTypeSymbol());
+    }
+
+    @Test
+    void testNotShared() throws IOException {
+        var cm1 = ClassFile.of().parse(classBytes("/java/lang/String.class"));
+        var cm2 = ClassFile.of(ClassFile.InterningOption.of()).parse(classBytes("/java/lang/Thread.class"));
+        var cm3 = ClassFile.of(ClassFile.InterningOption.none()).parse(classBytes("/java/lang/Math.class"));
+        for (var other : new ClassModel[] {cm2, cm3}) {
+            assertEquals(superclass(cm1).asInternalName(), superclass(other).asInternalName());
+            assertNotSame(superclass(cm1).asInternalName(), superclass(other).asInternalName());
+            assertEquals(superclass(cm1).asSymbol(), superclass(other).asSymbol());
+            assertNotSame(superclass(cm1).asSymbol(), superclass(other).asSymbol());
+        }
+        assertEquals(MethodTypeDesc.of(ClassDesc.ofDescriptor("I")), method(cm2, "getPriority", "()I").methodTypeSymbol());
+    }
+
+    @Test
+    void testOnlyNamesAndDescriptors() throws IOException {
+        var option = ClassFile.InterningOption.of();
+        var m1 = ClassFile.of(option).parse(classBytes("/java/lang/String.class")).methods().get(0);
+        var m2 = ClassFile.of(option).parse(classBytes("/java/lang/String.class")).methods().get(0);
+        //member names are not interned, their descriptors are
+        assertEquals(m1.methodName().stringValue(), m2.methodName().stringValue());
+        assertNotSame(m1.methodName().stringValue(), m2.methodName().stringValue());
+        assertSame(m1.methodType().stringValue(), m2.methodType().stringValue());
+    }
+
+    @Test
+    void testBounded() {
+        var pool = new SymbolPool();
+        var first = pool.intern(new String("java/lang/Object"));
+        assertSame(first, pool.intern(new String("java/lang/Object")));
+        for (int i = 0; i < 1 << 16; i++) {
+            pool.intern("test/C" + i);
+        }
+        //the pool started over once full
+        assertNotSame(first, pool.intern(new String("java/lang/Object")));
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * @test
+ * @summary Testing the class hierarchy snapshot of the running JDK.
+ * @run junit JdkHierarchySnapshotTest
+ */
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.impl.PersistentClassHierarchyResolver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdkHierarchySnapshotTest {
+
+    private static final FileSystem JRT = FileSystems.getFileSystem(URI.create("jrt:/"));
+
+    @Test
+    void testSnapshotMatchesClassLoading(@TempDir Path dir) throws IOException {
+        Path index = dir.resolve("jdk.idx");
+        assertNull(PersistentClassHierarchyResolver.openJdkSnapshot(index, false));
+        var built = ClassHierarchyResolver.ofJdkSnapshot(index);
+        var snapshot = PersistentClassHierarchyResolver.openJdkSnapshot(index, false);
+        assertNotNull(snapshot);
+
+        var classLoading = ClassHierarchyResolver.ofClassLoading(ClassLoader.getSystemClassLoader());
+        try (Stream<Path> s = Files.walk(JRT.getPath("modules/java.base/java/lang"))) {
+            for (var p : s.filter(p -> p.toString().endsWith(".class")).toList()) {
+                var cd = ClassFile.of().parse(p).thisClass().asSymbol();
+                var expected = classLoading.getClassInfo(cd);
+                assertEquals(expected, built.getClassInfo(cd), cd.displayName());
+                assertEquals(expected, snapshot.getClassInfo(cd), cd.displayName());
+            }
+        }
+        assertEquals(ClassHierarchyResolver.ClassHierarchyInfo.ofClass(null), snapshot.getClassInfo(CD_Object));
+        assertNull(snapshot.getClassInfo(ClassDesc.of("test.Missing")));
+    }
+}
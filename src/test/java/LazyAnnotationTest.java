@@ -0,0 +1,88 @@
+/*
+ * @test
+ * @summary Testing annotations read from classfiles with elements decoded on demand.
+ * @run junit LazyAnnotationTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.List;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.RuntimeVisibleAnnotationsAttribute;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyAnnotationTest {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Nested {
+        String value();
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface Anno {
+        String name();
+        int[] ints();
+        Nested[] nested();
+        Class<?> type();
+        ElementType kind();
+    }
+
+    @Anno(name = "sample", ints = {1, 2, 3}, nested = {@Nested("a"), @Nested("b")}, type = String.class, kind = ElementType.FIELD)
+    @Nested("outer")
+    static class Sample {
+    }
+
+    private static byte[] sampleBytes() throws IOException {
+        try (InputStream in = LazyAnnotationTest.class.getResourceAsStream("LazyAnnotationTest$Sample.class")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static List<Annotation> annotations(ClassModel cm) {
+        return cm.findAttribute(Attributes.RUNTIME_VISIBLE_ANNOTATIONS).orElseThrow().annotations();
+    }
+
+    @Test
+    void testElementValue() throws IOException {
+        var cm = ClassFile.of().parse(sampleBytes());
+        var anno = annotations(cm).get(0);
+        assertEquals("LLazyAnnotationTest$Anno;", anno.className().stringValue());
+        //looked up before and after the elements are decoded
+        for (int round = 0; round < 2; round++) {
+            assertEquals("sample", ((AnnotationValue.OfString) anno.elementValue("name").orElseThrow()).stringValue());
+            assertEquals("FIELD", ((AnnotationValue.OfEnum) anno.elementValue("kind").orElseThrow()).constantName().stringValue());
+            var nested = (AnnotationValue.OfArray) anno.elementValue("nested").orElseThrow();
+            assertEquals(2, nested.values().size());
+            var b = ((AnnotationValue.OfAnnotation) nested.values().get(1)).annotation();
+            assertEquals("b", ((AnnotationValue.OfString) b.elementValue("value").orElseThrow()).stringValue());
+            assertTrue(anno.elementValue("missing").isEmpty());
+            assertEquals(5, anno.elements().size());
+        }
+        for (var e : anno.elements()) {
+            assertEquals(e.value(), anno.elementValue(e.name().stringValue()).orElseThrow());
+        }
+    }
+
+    @Test
+    void testRewrite() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cm = ClassFile.of().parse(bytes);
+        ClassTransform rewrite = (clb, cle) -> {
+            if (cle instanceof RuntimeVisibleAnnotationsAttribute rvaa)
+                clb.with(RuntimeVisibleAnnotationsAttribute.of(rvaa.annotations()));
+            else
+                clb.with(cle);
+        };
+        //same constant pool copies the annotations, a new one rewrites them
+        for (var cc : List.of(ClassFile.of(), ClassFile.of(ClassFile.ConstantPoolSharingOption.NEW_POOL))) {
+            var transformed = cc.parse(cc.transform(cm, rewrite));
+            assertEquals(annotations(cm).toString(), annotations(transformed).toString());
+        }
+        assertArrayEquals(bytes, ClassFile.of().transform(cm, rewrite));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * @test
+ * @summary Testing transforms selecting methods by name, opcodes and attributes.
+ * @run junit MethodSelectorTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodSelectorTest {
+
+    static abstract class Sample {
+        int plain(int a) { return a + 1; }
+        String call(Object o) { return o.toString(); }
+        int call(String s) { return s.length(); }
+        @Deprecated
+        void old() {}
+        abstract void none();
+    }
+
+    private static byte[] sampleBytes() throws IOException {
+        try (InputStream in = MethodSelectorTest.class.getResourceAsStream("MethodSelectorTest$Sample.class")) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static String selected(ClassModel cm, MethodSelector selector) {
+        return cm.methods().stream()
+                 .filter(selector)
+                 .map(mm -> mm.methodName().stringValue() + mm.methodType().stringValue())
+                 .collect(Collectors.joining(" "));
+    }
+
+    @Test
+    void testSelection() throws IOException {
+        var cm = ClassFile.of().parse(sampleBytes());
+        assertEquals("call(Ljava/lang/Object;)Ljava/lang/String; call(Ljava/lang/String;)I",
+                     selected(cm, MethodSelector.ofMethod("call")));
+        assertEquals("call(Ljava/lang/String;)I",
+                     selected(cm, MethodSelector.ofMethod("call", MethodTypeDesc.of(CD_int, CD_String))));
+        assertEquals("call(Ljava/lang/Object;)Ljava/lang/String; call(Ljava/lang/String;)I",
+                     selected(cm, MethodSelector.ofOpcodes(Opcode.INVOKEVIRTUAL)));
+        assertEquals("plain(I)I",
+                     selected(cm, MethodSelector.ofOpcodes(Opcode.IADD, Opcode.ILOAD_W)));
+        assertEquals("old()V",
+                     selected(cm, MethodSelector.ofAttribute(Attributes.RUNTIME_VISIBLE_ANNOTATIONS)));
+        assertEquals("<init>()V plain(I)I call(Ljava/lang/Object;)Ljava/lang/String; call(Ljava/lang/String;)I old()V",
+                     selected(cm, MethodSelector.ofAttribute(Attributes.CODE)));
+        assertEquals("call(Ljava/lang/String;)I old()V",
+                     selected(cm, MethodSelector.ofMethod("call", MethodTypeDesc.of(CD_int, CD_String))
+                                                .or(MethodSelector.ofMethod("old"))));
+        assertEquals("",
+                     selected(cm, MethodSelector.ofMethod("plain").and(MethodSelector.ofOpcodes(Opcode.INVOKEVIRTUAL))));
+    }
+
+    @Test
+    void testWideOpcodes() {
+        var cc = ClassFile.of();
+        var cm = cc.parse(cc.build(ClassDesc.of("test.Wide"), clb -> clb
+                .withMethodBody("narrow", MethodTypeDesc.of(CD_int, CD_int), ClassFile.ACC_STATIC, cob -> cob.iload(200).ireturn())
+                .withMethodBody("wide", MethodTypeDesc.of(CD_int, CD_int), ClassFile.ACC_STATIC, cob -> cob.iload(300).ireturn())));
+        assertEquals("narrow(I)I", selected(cm, MethodSelector.ofOpcodes(Opcode.ILOAD)));
+        assertEquals("wide(I)I", selected(cm, MethodSelector.ofOpcodes(Opcode.ILOAD_W)));
+    }
+
+    @Test
+    void testMalformedCode() {
+        var cc = ClassFile.of();
+        byte[] bytes = cc.build(ClassDesc.of("test.Bad"), clb -> clb
+                .withMethodBody("bad", MethodTypeDesc.of(CD_void), ClassFile.ACC_STATIC, cob -> cob.nop().iconst_0().pop().return_()));
+        //iconst_0 is replaced by an undefined opcode, after the matching nop
+        int p = 0;
+        while (bytes[p] != 0 || bytes[p + 1] != 0x03 || bytes[p + 2] != 0x57 || bytes[p + 3] != (byte) 0xB1)
+            p++;
+        bytes[p + 1] = (byte) 0xE4;
+        var mm = cc.parse(bytes).methods().get(0);
+        assertThrows(IllegalArgumentException.class, () -> MethodSelector.ofOpcodes(Opcode.NOP).test(mm));
+        assertThrows(IllegalArgumentException.class, () -> MethodSelector.ofOpcodes(Opcode.IADD).test(mm));
+        assertThrows(IllegalArgumentException.class, () -> ((CodeAttribute) mm.code().orElseThrow()).opcodeSummary());
+    }
+
+    @Test
+    void testTransformSelected() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        var cm = cc.parse(bytes);
+        var selector = MethodSelector.ofOpcodes(Opcode.INVOKEVIRTUAL);
+        //the prologue is added to the selected bodies only
+        var transform = ClassTransform.transformingMethodBodies(selector, new CodeTransform() {
+            @Override
+            public void atStart(CodeBuilder cob) {
+                cob.nop();
+            }
+
+            @Override
+            public void accept(CodeBuilder cob, CodeElement coe) {
+                cob.with(coe);
+            }
+        });
+        var transformed = cc.parse(cc.transform(cm, transform));
+        assertTrue(cc.verify(transformed).isEmpty());
+        List<String> prologues = transformed.methods().stream()
+                                            .filter(mm -> mm.code().isPresent()
+                                                          && mm.code().get().elementStream().filter(e -> e instanceof Instruction).findFirst().orElseThrow()
+                                                               instanceof Instruction i && i.opcode() == Opcode.NOP)
+                                            .map(mm -> mm.methodName().stringValue())
+                                            .toList();
+        assertEquals(List.of("call", "call"), prologues);
+        for (int i = 0; i < cm.methods().size(); i++) {
+            var mm = cm.methods().get(i);
+            if (!selector.test(mm))
+                assertEquals(mm.code().map(c -> ((CodeAttribute) c).codeLength()),
+                             transformed.methods().get(i).code().map(c -> ((CodeAttribute) c).codeLength()));
+        }
+    }
+}
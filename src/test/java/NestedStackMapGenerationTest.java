@@ -0,0 +1,83 @@
+/*
+ * @test
+ * @summary Testing the per-thread working buffers of stack maps generation.
+ * @run junit NestedStackMapGenerationTest
+ */
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+import java.util.Map;
+
+import org.glavo.classfile.*;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class NestedStackMapGenerationTest {
+
+    private static final MethodTypeDesc MTD_void = MethodTypeDesc.of(CD_void);
+    private static final ClassDesc A = ClassDesc.of("test.A"), B = ClassDesc.of("test.B"), C = ClassDesc.of("test.C");
+
+    private static byte[] build(ClassFile cc, String className, ClassDesc first, ClassDesc second) {
+        return cc.build(ClassDesc.of(className), clb -> clb
+                .withMethodBody("m", MethodTypeDesc.of(CD_Object, CD_boolean), ClassFile.ACC_STATIC, cob -> {
+                    var other = cob.newLabel();
+                    var end = cob.newLabel();
+                    cob.iload(0).ifeq(other)
+                       .new_(first).dup().invokespecial(first, "<init>", MTD_void).goto_(end)
+                       .labelBinding(other)
+                       .new_(second).dup().invokespecial(second, "<init>", MTD_void)
+                       .labelBinding(end)
+                       .astore(1)
+                       .iconst_0().istore(2)
+                       .aload(1).areturn();
+                }));
+    }
+
+    @Test
+    void testGenerationNestedInResolver() {
+        var resolver = ClassHierarchyResolver.of(List.of(), Map.of(A, C, B, C, C, CD_Object));
+        var expected = build(ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)), "test.Outer", A, B);
+        var nested = new byte[1][];
+        ClassHierarchyResolver nesting = cd -> {
+            if (nested[0] == null) {
+                //stack maps of another class are generated while the outer generator is in progress
+                nested[0] = build(ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)), "test.Nested", B, A);
+            }
+            return resolver.getClassInfo(cd);
+        };
+        var actual = build(ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(nesting)), "test.Outer", A, B);
+        assertNotNull(nested[0]);
+        assertArrayEquals(expected, actual);
+        assertArrayEquals(build(ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver)), "test.Nested", B, A), nested[0]);
+    }
+
+    private static byte[] buildLoops(ClassFile cc, int loops) {
+        return cc.build(ClassDesc.of("test.Loops"), clb -> clb
+                .withMethodBody("m", MethodTypeDesc.of(CD_Object, CD_int), ClassFile.ACC_STATIC, cob -> {
+                    cob.aconst_null().astore(1);
+                    for (int i = 0; i < loops; i++) {
+                        var loop = cob.newBoundLabel();
+                        cob.iinc(0, -1).iload(0).ifle(loop)
+                           .new_(CD_Object).dup().invokespecial(CD_Object, "<init>", MTD_void).astore(1);
+                    }
+                    cob.aload(1).areturn();
+                }));
+    }
+
+    @Test
+    void testBuffersOfLargeMethodsNotRetained() throws Exception {
+        var cc = ClassFile.of();
+        var small = buildLoops(cc, 3);
+        var large = buildLoops(cc, 3000);
+        // the buffers grown by the large method are dropped, the following methods start from fresh ones
+        assertArrayEquals(small, buildLoops(cc, 3));
+        assertArrayEquals(large, buildLoops(cc, 3000));
+        var other = new byte[1][];
+        var thread = new Thread(() -> other[0] = buildLoops(ClassFile.of(), 3000));
+        thread.start();
+        thread.join();
+        assertArrayEquals(large, other[0]);
+    }
+}
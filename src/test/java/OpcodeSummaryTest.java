@@ -0,0 +1,82 @@
+/*
+ * @test
+ * @summary Testing the summary of opcodes in code attributes.
+ * @run junit OpcodeSummaryTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpcodeSummaryTest {
+
+    static class Sample {
+        static int counter;
+        Object lock = new Object();
+
+        Object create() {
+            synchronized (lock) {
+                counter++;
+                return new StringBuilder().append(counter).toString();
+            }
+        }
+    }
+
+    private static CodeAttribute code(ClassModel cm, String methodName) {
+        return (CodeAttribute) cm.methods().stream()
+                                 .filter(mm -> mm.methodName().equalsString(methodName))
+                                 .findFirst().orElseThrow().code().orElseThrow();
+    }
+
+    @Test
+    void testSummary() throws IOException {
+        byte[] bytes;
+        try (InputStream in = OpcodeSummaryTest.class.getResourceAsStream("OpcodeSummaryTest$Sample.class")) {
+            bytes = in.readAllBytes();
+        }
+        var code = code(ClassFile.of().parse(bytes), "create");
+        var summary = code.opcodeSummary();
+        assertSame(summary, code.opcodeSummary());
+        assertTrue(summary.contains(Opcode.MONITORENTER));
+        assertTrue(summary.contains(Opcode.NEW));
+        assertFalse(summary.contains(Opcode.INVOKEDYNAMIC));
+        assertFalse(summary.contains(Opcode.ALOAD_W));
+        long invokes = 0, fieldAccesses = 0, news = 0;
+        for (var e : code) {
+            if (e instanceof Instruction i) {
+                assertTrue(summary.contains(i.opcode()));
+                switch (i.opcode().kind()) {
+                    case INVOKE, INVOKE_DYNAMIC -> invokes++;
+                    case FIELD_ACCESS -> fieldAccesses++;
+                    case NEW_OBJECT -> news++;
+                    default -> {}
+                }
+            }
+        }
+        assertEquals(3, invokes);
+        assertEquals(invokes, summary.invokeCount());
+        assertEquals(fieldAccesses, summary.fieldAccessCount());
+        assertEquals(news, summary.newCount());
+    }
+
+    @Test
+    void testWideOpcodes() {
+        var cc = ClassFile.of();
+        var cm = cc.parse(cc.build(ClassDesc.of("test.Wide"), clb -> clb
+                .withMethodBody("m", MethodTypeDesc.of(CD_int, CD_int), ClassFile.ACC_STATIC,
+                                cob -> cob.iinc(300, 1).iload(300).ireturn())));
+        var summary = code(cm, "m").opcodeSummary();
+        assertTrue(summary.contains(Opcode.IINC_W));
+        assertTrue(summary.contains(Opcode.ILOAD_W));
+        assertFalse(summary.contains(Opcode.IINC));
+        assertFalse(summary.contains(Opcode.ILOAD));
+        assertEquals(0, summary.invokeCount());
+    }
+}
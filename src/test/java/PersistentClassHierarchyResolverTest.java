@@ -0,0 +1,184 @@
+/*
+ * @test
+ * @summary Testing ClassHierarchyResolver persistent index.
+ * @run junit PersistentClassHierarchyResolverTest
+ */
+import java.io.IOException;
+import java.lang.constant.ClassDesc;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.glavo.classfile.ClassFile;
+import org.glavo.classfile.ClassHierarchyResolver;
+import org.glavo.classfile.ClassHierarchyResolver.ClassHierarchyInfo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentClassHierarchyResolverTest {
+
+    private static final ClassHierarchyResolver NOTHING = cd -> null;
+
+    private static byte[] classBytes(String name, String superName) {
+        return ClassFile.of().build(ClassDesc.of(name), clb -> clb.withSuperclass(ClassDesc.of(superName)));
+    }
+
+    private static byte[] interfaceBytes(String name) {
+        return ClassFile.of().build(ClassDesc.of(name),
+                clb -> clb.withFlags(ClassFile.ACC_INTERFACE | ClassFile.ACC_ABSTRACT));
+    }
+
+    private static void writeClass(Path dir, String name, byte[] bytes) throws IOException {
+        Path file = dir.resolve(name.replace('.', '/') + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, bytes);
+    }
+
+    private static Path writeJar(Path jar) throws IOException {
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("lib/A.class"));
+            out.write(classBytes("lib.A", "java.lang.Object"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("lib/I.class"));
+            out.write(interfaceBytes("lib.I"));
+            out.closeEntry();
+            out.putNextEntry(new JarEntry("META-INF/versions/9/lib/A.class"));
+            out.write(classBytes("lib.A", "lib.Wrong"));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    @Test
+    void testResolve(@TempDir Path dir) throws IOException {
+        Path classes = dir.resolve("classes");
+        writeClass(classes, "app.B", classBytes("app.B", "lib.A"));
+        writeClass(classes, "app.C", classBytes("app.C", "app.B"));
+        Path jar = writeJar(dir.resolve("lib.jar"));
+        Path index = dir.resolve("cache/hierarchy.idx");
+
+        var resolver = NOTHING.persistent(index, List.of(classes, jar));
+        assertTrue(Files.isRegularFile(index));
+        assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("lib.A")), resolver.getClassInfo(ClassDesc.of("app.B")));
+        assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("app.B")), resolver.getClassInfo(ClassDesc.of("app.C")));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(ClassDesc.of("lib.A")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.Missing")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app")));
+
+        var fallback = ClassHierarchyResolver.of(List.of(), Map.of(ClassDesc.of("app.Missing"), CD_Object))
+                                             .persistent(index, List.of(classes, jar));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), fallback.getClassInfo(ClassDesc.of("app.Missing")));
+    }
+
+    @Test
+    void testReuseAndInvalidate(@TempDir Path dir) throws IOException {
+        Path classes = dir.resolve("classes");
+        writeClass(classes, "app.B", classBytes("app.B", "java.lang.Object"));
+        Path jar = writeJar(dir.resolve("lib.jar"));
+        Path index = dir.resolve("hierarchy.idx");
+
+        NOTHING.persistent(index, List.of(classes, jar));
+        byte[] content = Files.readAllBytes(index);
+        FileTime written = Files.getLastModifiedTime(index);
+        Files.setLastModifiedTime(index, FileTime.fromMillis(written.toMillis() - 10_000));
+        FileTime reused = Files.getLastModifiedTime(index);
+
+        var resolver = NOTHING.persistent(index, List.of(classes, jar));
+        assertEquals(reused, Files.getLastModifiedTime(index));
+        assertArrayEquals(content, Files.readAllBytes(index));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(ClassDesc.of("app.B")));
+
+        writeClass(classes, "app.B", classBytes("app.B", "lib.A"));
+        Files.setLastModifiedTime(classes.resolve("app/B.class"), FileTime.fromMillis(written.toMillis() + 10_000));
+        resolver = NOTHING.persistent(index, List.of(classes, jar));
+        assertNotEquals(reused, Files.getLastModifiedTime(index));
+        assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("lib.A")), resolver.getClassInfo(ClassDesc.of("app.B")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+
+        resolver = NOTHING.persistent(index, List.of(jar));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.B")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+    }
+
+    @Test
+    void testCorruptedIndex(@TempDir Path dir) throws IOException {
+        Path jar = writeJar(dir.resolve("lib.jar"));
+        Path index = dir.resolve("hierarchy.idx");
+        NOTHING.persistent(index, List.of(jar));
+        byte[] content = Files.readAllBytes(index);
+        Files.write(index, Arrays.copyOf(content, content.length / 2));
+
+        var resolver = NOTHING.persistent(index, List.of(jar));
+        assertArrayEquals(content, Files.readAllBytes(index));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+    }
+
+    @Test
+    void testCorruptedOffsets(@TempDir Path dir) throws IOException {
+        Path jar = writeJar(dir.resolve("lib.jar"));
+        Path index = dir.resolve("hierarchy.idx");
+        NOTHING.persistent(index, List.of(jar));
+        byte[] content = Files.readAllBytes(index);
+        //the first record offset of the only section points past the end of the file
+        var corrupted = ByteBuffer.wrap(content.clone());
+        int table = 14 + corrupted.getShort(12) + 12;
+        corrupted.putInt(table + 4, Integer.MAX_VALUE - 8);
+        Files.write(index, corrupted.array());
+
+        var resolver = NOTHING.persistent(index, List.of(jar));
+        assertArrayEquals(content, Files.readAllBytes(index));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(ClassDesc.of("lib.A")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+    }
+
+    @Test
+    void testOfClassModels() {
+        var cc = ClassFile.of();
+        var resolver = ClassHierarchyResolver.of(List.of(cc.parse(classBytes("app.B", "lib.A")),
+                                                         cc.parse(interfaceBytes("lib.I")),
+                                                         cc.parse(classBytes("app.B", "lib.Wrong"))));
+        assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("lib.A")), resolver.getClassInfo(ClassDesc.of("app.B")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("lib.A")));
+    }
+
+    @Test
+    void testOfClassFiles(@TempDir Path dir) throws IOException {
+        var resolver = ClassHierarchyResolver.ofClassFiles(writeJar(dir.resolve("lib.jar")));
+        assertEquals(ClassHierarchyInfo.ofClass(CD_Object), resolver.getClassInfo(ClassDesc.of("lib.A")));
+        assertEquals(ClassHierarchyInfo.ofInterface(), resolver.getClassInfo(ClassDesc.of("lib.I")));
+
+        Path classes = dir.resolve("classes");
+        writeClass(classes, "app.B", classBytes("app.B", "lib.A"));
+        Files.write(classes.resolve("app/Broken.class"), new byte[] {1, 2, 3});
+        resolver = ClassHierarchyResolver.ofClassFiles(classes);
+        assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("lib.A")), resolver.getClassInfo(ClassDesc.of("app.B")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.Broken")));
+    }
+
+    @Test
+    void testNonAsciiNames() {
+        var cc = ClassFile.of();
+        var names = List.of("app.A", "app.\u00e9t\u00e9", "app.\u4e2d", "app.\ud83d\ude00", "app.\uffe0", "app.Z");
+        var resolver = ClassHierarchyResolver.of(names.stream().map(n -> cc.parse(classBytes(n, "app.\u00e9t\u00e9"))).toList());
+        for (var n : names) {
+            var info = resolver.getClassInfo(ClassDesc.of(n));
+            assertEquals(ClassHierarchyInfo.ofClass(ClassDesc.of("app.\u00e9t\u00e9")), info, n);
+            // decoded once, the following lookups return the same instance
+            assertSame(info, resolver.getClassInfo(ClassDesc.of(n)), n);
+        }
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.\u00e9")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.\ud83d\ude01")));
+        assertNull(resolver.getClassInfo(ClassDesc.of("app.\u4e2d\u4e2d")));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * @test
+ * @summary Testing the symbols memoized on constant pool entries.
+ * @run junit PoolEntrySymbolTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.constantpool.ClassEntry;
+import org.glavo.classfile.constantpool.MemberRefEntry;
+import org.glavo.classfile.constantpool.PoolEntry;
+import org.glavo.classfile.instruction.InvokeInstruction;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoolEntrySymbolTest {
+
+    private static byte[] classBytes(String name) throws IOException {
+        try (InputStream in = Object.class.getResourceAsStream(name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static int slots(MethodTypeDesc mtd) {
+        int slots = 0;
+        for (var p : mtd.parameterList())
+            slots += TypeKind.from(p).slotSize();
+        return slots;
+    }
+
+    @Test
+    void testSharedSymbols() throws IOException {
+        var cm = ClassFile.of().parse(classBytes("/java/lang/String.class"));
+        for (var mm : cm.methods()) {
+            assertSame(mm.methodTypeSymbol(), mm.methodTypeSymbol());
+        }
+        var refs = new ArrayList<MemberRefEntry>();
+        for (PoolEntry e : cm.constantPool()) {
+            if (e instanceof ClassEntry ce)
+                assertSame(ce.asSymbol(), ce.asSymbol());
+            if (e instanceof MemberRefEntry mre)
+                refs.add(mre);
+        }
+        assertFalse(refs.isEmpty());
+        for (var ref : refs) {
+            var nat = ref.nameAndType();
+            if (nat.type().stringValue().startsWith("(")) {
+                var invoke = InvokeInstruction.of(Opcode.INVOKEINTERFACE, ref);
+                var mtd = invoke.typeSymbol();
+                assertEquals(slots(mtd) + 1, invoke.count());
+                assertSame(mtd, InvokeInstruction.of(Opcode.INVOKEINTERFACE, ref).typeSymbol());
+            }
+        }
+    }
+
+    @Test
+    void testParameterSlots() throws IOException {
+        byte[] bytes = classBytes("/java/util/concurrent/ConcurrentHashMap.class");
+        var cm = ClassFile.of().parse(bytes);
+        //the count of the copy is read from the descriptor before any symbol is parsed
+        var copy = ClassFile.of().parse(bytes);
+        int count = 0;
+        for (var mm : cm.methods()) {
+            var code = mm.code();
+            if (code.isEmpty()) continue;
+            for (var e : code.get()) {
+                if (e instanceof InvokeInstruction ii && ii.opcode() == Opcode.INVOKEINTERFACE) {
+                    var ref = (MemberRefEntry) copy.constantPool().entryByIndex(ii.method().index());
+                    assertEquals(ii.count(), InvokeInstruction.of(Opcode.INVOKEINTERFACE, ref).count());
+                    assertEquals(slots(ii.typeSymbol()) + 1, ii.count());
+                    count++;
+                }
+            }
+        }
+        assertTrue(count > 0);
+    }
+
+    @Test
+    void testConcurrentSymbols() throws Exception {
+        byte[] bytes = classBytes("/java/lang/String.class");
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 20; round++) {
+                var cm = ClassFile.of().parse(bytes);
+                var entry = cm.superclass().orElseThrow();
+                var method = cm.methods().get(cm.methods().size() / 2);
+                var tasks = new ArrayList<Callable<Object[]>>();
+                for (int i = 0; i < 4; i++)
+                    tasks.add(() -> new Object[] {entry.asSymbol(), method.methodTypeSymbol()});
+                List<Future<Object[]>> results = executor.invokeAll(tasks);
+                var first = results.get(0).get();
+                assertEquals(ClassDesc.of("java.lang.Object"), first[0]);
+                for (var r : results) {
+                    assertSame(first[0], r.get()[0]);
+                    assertSame(first[1], r.get()[1]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
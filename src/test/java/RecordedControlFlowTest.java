@@ -0,0 +1,61 @@
+/*
+ * @test
+ * @summary Testing stack maps generation from the control flow recorded by the code builder.
+ * @run junit RecordedControlFlowTest
+ */
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.glavo.classfile.attribute.StackMapFrameInfo;
+import org.glavo.classfile.instruction.SwitchCase;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordedControlFlowTest {
+
+    private static byte[] build(ClassFile cc) {
+        return cc.build(ClassDesc.of("test.Flow"), clb -> clb
+                .withMethodBody("m", MethodTypeDesc.of(CD_int, CD_int), ClassFile.ACC_STATIC, cob -> {
+                    var far = cob.newLabel();
+                    var one = cob.newLabel();
+                    var other = cob.newLabel();
+                    //forward jump over more than a short offset is inflated to a reversed branch and goto_w
+                    cob.iload(0).ifeq(far);
+                    for (int i = 0; i < 33000; i++) cob.nop();
+                    cob.labelBinding(far)
+                       .iload(0)
+                       .tableswitch(0, 1, other, List.of(SwitchCase.of(0, one), SwitchCase.of(1, other)))
+                       .labelBinding(one)
+                       .iconst_1().ireturn()
+                       //dead code following no control flow
+                       .iconst_2().ireturn()
+                       .labelBinding(other)
+                       .iload(0).ireturn();
+                }));
+    }
+
+    private static List<Integer> frameOffsets(ClassFile cc, byte[] bytes) {
+        var code = cc.parse(bytes).methods().get(0).code().orElseThrow();
+        return code.findAttribute(Attributes.STACK_MAP_TABLE).orElseThrow().entries().stream()
+                   .map(StackMapFrameInfo::target)
+                   .map(l -> ((CodeAttribute) code).labelToBci(l))
+                   .toList();
+    }
+
+    @Test
+    void testRecordedFlowMatchesTransformed() {
+        var cc = ClassFile.of(ClassFile.StackMapsOption.GENERATE_STACK_MAPS);
+        byte[] built = build(cc);
+        assertTrue(cc.verify(built).isEmpty());
+        //transformed code is written from the bound instructions
+        byte[] transformed = cc.transform(cc.parse(built), ClassTransform.transformingMethodBodies(CodeTransform.ACCEPT_ALL));
+        assertTrue(cc.verify(transformed).isEmpty());
+        assertEquals(frameOffsets(cc, built), frameOffsets(cc, transformed));
+        assertEquals(5, frameOffsets(cc, built).size());
+    }
+}
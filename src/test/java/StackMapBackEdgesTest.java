@@ -0,0 +1,95 @@
+/*
+ * @test
+ * @summary Testing stack maps generation of methods with many back edges.
+ * @run junit StackMapBackEdgesTest
+ */
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.util.List;
+import java.util.Map;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.CodeAttribute;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackMapBackEdgesTest {
+
+    private static final ClassDesc A = ClassDesc.of("test.A"), B = ClassDesc.of("test.B"), C = ClassDesc.of("test.C"),
+            D = ClassDesc.of("test.D"), E = ClassDesc.of("test.E"), F = ClassDesc.of("test.F");
+
+    private static void newInstance(CodeBuilder cob, ClassDesc cd) {
+        cob.new_(cd).dup().invokespecial(cd, "<init>", MethodTypeDesc.of(CD_void));
+    }
+
+    private static byte[] build(ClassFile cc) {
+        ClassDesc[] assigned = {E, D, F, C};
+        return cc.build(ClassDesc.of("test.Loops"), clb -> clb.withMethodBody("m", MethodTypeDesc.of(CD_Object, CD_int), ClassFile.ACC_STATIC, cob -> {
+            newInstance(cob, E);
+            cob.astore(1);
+            for (int l = 2; l <= 5; l++) cob.aconst_null().astore(l);
+            for (int k = 0; k < assigned.length; k++) {
+                // a loop shifting the locals, with a nested loop replacing the first one
+                cob.iconst_0().istore(6);
+                var loop = cob.newBoundLabel();
+                var loopEnd = cob.newLabel();
+                cob.iload(6).iload(0).if_icmpge(loopEnd);
+                for (int l = 5; l > 1; l--) cob.aload(l - 1).astore(l);
+                cob.iconst_0().istore(7);
+                var inner = cob.newBoundLabel();
+                var innerEnd = cob.newLabel();
+                cob.iload(7).iload(6).if_icmpge(innerEnd);
+                var other = cob.newLabel();
+                var next = cob.newLabel();
+                cob.iload(7).iconst_1().iand().ifeq(other);
+                newInstance(cob, assigned[k]);
+                cob.astore(1).goto_(next).labelBinding(other);
+                newInstance(cob, k % 2 == 0 ? E : F);
+                cob.astore(1).labelBinding(next).iinc(7, 1).goto_(inner)
+                   .labelBinding(innerEnd).iinc(6, 1).goto_(loop).labelBinding(loopEnd);
+            }
+            cob.aload(5).areturn();
+        }));
+    }
+
+    @Test
+    void testFramesMatchBaseline() {
+        // A <- B <- C <- D <- E, C <- F
+        var resolver = ClassHierarchyResolver.of(List.of(), Map.of(A, CD_Object, B, A, C, B, D, C, E, D, F, C));
+        var cc = ClassFile.of(ClassFile.ClassHierarchyResolverOption.of(resolver));
+        byte[] bytes = build(cc);
+        var code = (CodeAttribute) cc.parse(bytes).methods().get(0).code().orElseThrow();
+        var frames = code.findAttribute(Attributes.STACK_MAP_TABLE).orElseThrow().entries().stream()
+                         .map(f -> code.labelToBci(f.target()) + " " + f.locals() + " " + f.stack())
+                         .toList();
+        // the frames generated by sweeping the whole code until no frame changes
+        assertEquals(List.of(
+                "21 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER] []",
+                "41 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER, ITEM_INTEGER] []",
+                "66 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER, ITEM_INTEGER] []",
+                "74 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER, ITEM_INTEGER] []",
+                "80 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER, ITEM_INTEGER] []",
+                "86 [ITEM_INTEGER, test/E, test/E, test/E, test/E, test/E, ITEM_INTEGER] []",
+                "89 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []",
+                "109 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "134 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "142 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "148 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "154 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []",
+                "157 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []",
+                "177 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "202 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "210 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "216 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "222 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []",
+                "225 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []",
+                "245 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "270 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "278 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "284 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER, ITEM_INTEGER] []",
+                "290 [ITEM_INTEGER, test/C, test/C, test/C, test/C, test/C, ITEM_INTEGER] []"), frames);
+        assertEquals(List.of(), cc.verify(bytes));
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * @test
+ * @summary Testing transformations passing all the class elements through untouched.
+ * @run junit UnchangedTransformTest
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.constant.MethodTypeDesc;
+import java.nio.ByteBuffer;
+import java.util.stream.Collectors;
+
+import org.glavo.classfile.*;
+import org.glavo.classfile.attribute.SourceFileAttribute;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.constant.ConstantDescs.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnchangedTransformTest {
+
+    static class Sample {
+        int a, b;
+        void m1() {}
+        void m2() {}
+        void m3() {}
+        void m4() {}
+    }
+
+    private static byte[] sampleBytes() throws IOException {
+        try (InputStream in = UnchangedTransformTest.class.getResourceAsStream("UnchangedTransformTest$Sample.class")) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testAcceptAll() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        byte[] transformed = cc.transform(cc.parse(bytes), ClassTransform.ACCEPT_ALL);
+        assertArrayEquals(bytes, transformed);
+        assertNotSame(bytes, transformed);
+        var direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        assertArrayEquals(bytes, cc.transform(cc.parse(direct), ClassTransform.ACCEPT_ALL));
+    }
+
+    @Test
+    void testChangedClass() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        var cm = cc.parse(bytes);
+        //new constant pool entries
+        byte[] withMethod = cc.transform(cm, ClassTransform.endHandler(clb -> clb.withMethodBody("added", MethodTypeDesc.of(CD_void), 0, CodeBuilder::return_)));
+        assertEquals(cm.methods().size() + 1, cc.parse(withMethod).methods().size());
+        //same constant pool with different header
+        byte[] withFlags = cc.transform(cm, (clb, cle) -> {
+            if (cle instanceof AccessFlags af) clb.withFlags(af.flagsMask() | ClassFile.ACC_FINAL);
+            else clb.with(cle);
+        });
+        assertEquals(bytes.length, withFlags.length);
+        assertTrue(cc.parse(withFlags).flags().has(AccessFlag.FINAL));
+        //replaced attribute
+        byte[] replaced = cc.transform(cm, ClassTransform.endHandler(clb -> clb.with(SourceFileAttribute.of("Other.java"))));
+        assertEquals("Other.java", cc.parse(replaced).findAttribute(Attributes.SOURCE_FILE).orElseThrow().sourceFile().stringValue());
+    }
+
+    @Test
+    void testDroppedMembers() throws IOException {
+        byte[] bytes = sampleBytes();
+        var cc = ClassFile.of();
+        //untouched runs of members around the dropped ones are copied at once
+        byte[] transformed = cc.transform(cc.parse(bytes), ClassTransform.dropping(
+                cle -> cle instanceof MethodModel mm && mm.methodName().equalsString("m2")
+                       || cle instanceof FieldModel fm && fm.fieldName().equalsString("a")));
+        var cm = cc.parse(transformed);
+        assertEquals("b", cm.fields().stream().map(f -> f.fieldName().stringValue()).collect(Collectors.joining()));
+        assertEquals("<init>m1m3m4", cm.methods().stream().map(m -> m.methodName().stringValue()).collect(Collectors.joining()));
+        assertTrue(cc.verify(transformed).isEmpty());
+    }
+}
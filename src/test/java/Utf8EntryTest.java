@@ -29,6 +29,7 @@
 import org.glavo.classfile.ClassModel;
 import org.glavo.classfile.ClassFile;
 import org.glavo.classfile.constantpool.ConstantPool;
+import org.glavo.classfile.constantpool.ConstantPoolBuilder;
 import org.glavo.classfile.constantpool.PoolEntry;
 import org.glavo.classfile.constantpool.StringEntry;
 import org.glavo.classfile.constantpool.Utf8Entry;
@@ -92,6 +93,41 @@ class Utf8EntryTest {
         assertEquals(utf8Entry.stringValue(), s);
     }
 
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "",
+            "a",
+            "java/lang",
+            "java/lang/Object",
+            "Ljava/lang/invoke/MethodHandles$Lookup;",
+            "java/lang/\u0080bject",
+            "java/lang/Objec\u0800",
+            "\u07FFava/lang/Object"
+        }
+    )
+    void testEqualsAndHash(String s) {
+        // each comparison on a freshly parsed entry, before and after inflating
+        assertTrue(parseUtf8(s).equalsString(s));
+        assertFalse(parseUtf8(s).equalsString(s + "x"));
+        assertFalse(parseUtf8(s).equalsString(s + "\u0080"));
+        if (!s.isEmpty()) {
+            assertFalse(parseUtf8(s).equalsString(s.substring(0, s.length() - 1)));
+            assertFalse(parseUtf8(s).equalsString(s.substring(0, s.length() - 1) + "?"));
+            assertFalse(parseUtf8(s).equalsString("?" + s.substring(1)));
+        }
+        var built = ConstantPoolBuilder.of().utf8Entry(s);
+        var parsed = parseUtf8(s);
+        assertEquals(built.hashCode(), parsed.hashCode());
+        assertEquals(built, parsed);
+        assertTrue(parsed.equalsString(s));
+        assertFalse(parsed.equalsString(s + "x"));
+    }
+
+    static Utf8Entry parseUtf8(String s) {
+        return obtainStringEntry(ClassFile.of().parse(createClassFile(s)).constantPool()).utf8();
+    }
+
     static Stream<UnaryOperator<byte[]>> malformedStringsProvider() {
         List<UnaryOperator<byte[]>> l = new ArrayList<>();
 